@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents a service provider whose asynchronous methods run the blocking
+ * lookups on an {@link java.util.concurrent.Executor}. Unless another executor
+ * is set, a shared pool of daemon threads is used, which is bounded so that a
+ * burst of lookups queues up instead of opening an unbounded number of
+ * connections.
+ *
+ * @author turt2live
+ */
+public abstract class AbstractAsyncServiceProvider implements AsyncServiceProvider {
+
+    private static final int DEFAULT_THREADS = 16;
+    private static final Executor DEFAULT_EXECUTOR;
+
+    static {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "UUID-Library Worker #" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        DEFAULT_EXECUTOR = executor;
+    }
+
+    private volatile Executor executor = DEFAULT_EXECUTOR;
+
+    /**
+     * Gets the executor the blocking lookups of this provider run on
+     *
+     * @return the executor in use
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor the blocking lookups of this provider run on, such as a
+     * plugin's own asynchronous scheduler
+     *
+     * @param executor the executor to use, cannot be null
+     */
+    public void setExecutor(Executor executor) {
+        if (executor == null) throw new IllegalArgumentException();
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<PlayerRecord> doLookupAsync(final UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        return CompletableFuture.supplyAsync(() -> doLookup(uuid), executor);
+    }
+
+    @Override
+    public CompletableFuture<PlayerRecord> doLookupAsync(final String playerName) {
+        if (playerName == null) throw new IllegalArgumentException();
+        return CompletableFuture.supplyAsync(() -> doLookup(playerName), executor);
+    }
+
+    @Override
+    public CompletableFuture<String[]> getNameHistoryAsync(final UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        return CompletableFuture.supplyAsync(() -> getNameHistory(uuid), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> doBulkLookupAsync(final UUID... uuids) {
+        checkValues(uuids);
+        return CompletableFuture.supplyAsync(() -> doBulkLookup(uuids), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> doBulkLookupAsync(final String... playerNames) {
+        checkValues(playerNames);
+        return CompletableFuture.supplyAsync(() -> doBulkLookup(playerNames), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> getRandomSampleAsync(final int amount) {
+        if (amount <= 0) throw new IllegalArgumentException();
+        return CompletableFuture.supplyAsync(() -> getRandomSample(amount), executor);
+    }
+
+    private static void checkValues(Object[] values) {
+        if (values == null) throw new IllegalArgumentException();
+        for (Object value : values) if (value == null) throw new IllegalArgumentException();
+    }
+}
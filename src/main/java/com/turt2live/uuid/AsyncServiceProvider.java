@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents a service provider which can perform its lookups without blocking
+ * the calling thread. Each method mirrors a method of {@link ServiceProvider}
+ * and completes with the value that method would have returned, including null
+ * for connection problems. Exceptions thrown by the lookup complete the future
+ * exceptionally.
+ *
+ * @author turt2live
+ */
+public interface AsyncServiceProvider extends ServiceProvider {
+
+    /**
+     * Performs a lookup operation on a UUID without blocking
+     *
+     * @param uuid the UUID to lookup, cannot be null
+     *
+     * @return a future for the result of {@link #doLookup(java.util.UUID)}
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public CompletableFuture<PlayerRecord> doLookupAsync(UUID uuid);
+
+    /**
+     * Performs a lookup operation on a player name without blocking
+     *
+     * @param playerName the player name to lookup, cannot be null
+     *
+     * @return a future for the result of {@link #doLookup(String)}
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public CompletableFuture<PlayerRecord> doLookupAsync(String playerName);
+
+    /**
+     * Gets a player's name history from their UUID without blocking
+     *
+     * @param uuid the UUID to lookup, cannot be null
+     *
+     * @return a future for the result of {@link #getNameHistory(java.util.UUID)}
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public CompletableFuture<String[]> getNameHistoryAsync(UUID uuid);
+
+    /**
+     * Performs a bulk lookup operation on the UUIDs supplied without blocking
+     *
+     * @param uuids the uuids to lookup, no element can be null
+     *
+     * @return a future for the result of {@link #doBulkLookup(java.util.UUID...)}
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null values
+     */
+    public CompletableFuture<List<PlayerRecord>> doBulkLookupAsync(UUID... uuids);
+
+    /**
+     * Performs a bulk lookup operation on the player names supplied without blocking
+     *
+     * @param playerNames the player names to lookup, no element can be null
+     *
+     * @return a future for the result of {@link #doBulkLookup(String...)}
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null values
+     */
+    public CompletableFuture<List<PlayerRecord>> doBulkLookupAsync(String... playerNames);
+
+    /**
+     * Gets a random sample of player records from the service without blocking
+     *
+     * @param amount the amount of player records to fetch, cannot be negative or zero
+     *
+     * @return a future for the result of {@link #getRandomSample(int)}
+     *
+     * @throws java.lang.IllegalArgumentException thrown for values less than or equal to zero
+     */
+    public CompletableFuture<List<PlayerRecord>> getRandomSampleAsync(int amount);
+}
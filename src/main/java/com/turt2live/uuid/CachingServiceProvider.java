@@ -17,38 +17,150 @@
 
 package com.turt2live.uuid;
 
+import com.turt2live.uuid.cache.EvictionPolicy;
+import com.turt2live.uuid.cache.ExpirySweeper;
+import com.turt2live.uuid.cache.NegativeCache;
+import com.turt2live.uuid.cache.RecordCache;
+import com.turt2live.uuid.cache.RecordStore;
+import com.turt2live.uuid.cache.RefreshListener;
+import com.turt2live.uuid.cache.SingleFlight;
+import com.turt2live.uuid.cache.TinyLfuPolicy;
+
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a service provider that caches it's results in memory for the duration
  * specified (default is 1 hour or until the service's expiration time is reached, if
  * any).
+ * <p>
+ * This provider is safe for use by multiple threads at once. Cache hits do not
+ * lock, and players are stored in both the unique ID and name indexes together.
+ * <p>
+ * By default the cache is unbounded. A maximum size may be supplied, in which
+ * case an {@link com.turt2live.uuid.cache.EvictionPolicy} decides which players
+ * are kept.
+ * <p>
+ * Concurrent misses for the same unique ID, or the same name (ignoring case),
+ * are collapsed into a single request to the underlying service. The misses of a
+ * bulk lookup are forwarded to the service as bulk lookups, split to respect
+ * {@link ServiceProvider#getMaxBulkLookupSize()}.
+ * <p>
+ * Players the service reports as not existing are remembered in a separate,
+ * smaller, cache with a short cache time (default 5 minutes), so that repeated
+ * lookups of unknown names do not reach the service. Connection problems are
+ * never cached. Players missing from a bulk response are not remembered either,
+ * as some services leave out players they failed to look up.
+ * <p>
+ * The asynchronous methods never block on the cache: hits return a future which
+ * is already complete, so callbacks run on the caller's thread. Misses use the
+ * service's own asynchronous methods if it is an {@link AsyncServiceProvider},
+ * otherwise they run on this provider's executor.
+ * <p>
+ * Refresh-ahead can be enabled with {@link #setRefreshAhead(long, long, int)}.
+ * Players read shortly before they expire are then looked up again in the
+ * background while callers keep getting the cached player, so frequently
+ * requested players do not make anyone wait on the service.
  *
  * @author turt2live
  */
-public class CachingServiceProvider implements ServiceProvider {
+public class CachingServiceProvider extends AbstractAsyncServiceProvider {
+
+    private final RecordStore cache;
+    private final BulkLoader<UUID, UUID> uuidLoader = new BulkLoader<UUID, UUID>() {
+        @Override
+        UUID toKey(UUID uuid) {
+            return uuid;
+        }
+
+        @Override
+        UUID keyOf(PlayerRecord record) {
+            return record.getUuid();
+        }
+
+        @Override
+        PlayerRecord fromCache(UUID uuid) {
+            PlayerRecord record = cache.get(uuid);
+            if (record == null && isKnownUnknown(uuid)) record = new UnknownPlayerRecord(uuid);
+            return record;
+        }
+
+        @Override
+        void cacheUnknown(UUID uuid) {
+            NegativeCache negative = negativeCache;
+            if (negative != null) negative.add(uuid);
+        }
+
+        @Override
+        PlayerRecord fetch(UUID uuid) {
+            return serviceProvider.doLookup(uuid);
+        }
 
-    private class CachedRecord {
+        @Override
+        List<PlayerRecord> fetch(List<UUID> uuids) {
+            return serviceProvider.doBulkLookup(uuids.toArray(new UUID[uuids.size()]));
+        }
 
-        private long expires;
-        private PlayerRecord record;
+        @Override
+        CompletableFuture<PlayerRecord> fetchAsync(AsyncServiceProvider service, UUID uuid) {
+            return service.doLookupAsync(uuid);
+        }
 
-        CachedRecord(PlayerRecord record, long expires) {
-            this.record = record;
-            this.expires = expires;
+        @Override
+        CompletableFuture<List<PlayerRecord>> fetchAsync(AsyncServiceProvider service, List<UUID> uuids) {
+            return service.doBulkLookupAsync(uuids.toArray(new UUID[uuids.size()]));
+        }
+    };
+    private final BulkLoader<String, String> nameLoader = new BulkLoader<String, String>() {
+        @Override
+        String toKey(String playerName) {
+            return playerName.toLowerCase();
         }
 
-        public boolean isExpired() {
-            return expires > System.currentTimeMillis();
+        @Override
+        String keyOf(PlayerRecord record) {
+            return record.getName() == null ? null : record.getName().toLowerCase();
         }
 
-        public PlayerRecord getRecord() {
+        @Override
+        PlayerRecord fromCache(String playerName) {
+            PlayerRecord record = cache.get(playerName);
+            if (record == null && isKnownUnknown(playerName)) record = new UnknownPlayerRecord(playerName);
             return record;
         }
-    }
 
-    private Map<String, CachedRecord> byName = new HashMap<>();
-    private Map<UUID, CachedRecord> byUuid = new HashMap<>();
+        @Override
+        void cacheUnknown(String playerName) {
+            NegativeCache negative = negativeCache;
+            if (negative != null) negative.add(playerName);
+        }
+
+        @Override
+        PlayerRecord fetch(String playerName) {
+            return serviceProvider.doLookup(playerName);
+        }
+
+        @Override
+        List<PlayerRecord> fetch(List<String> playerNames) {
+            return serviceProvider.doBulkLookup(playerNames.toArray(new String[playerNames.size()]));
+        }
+
+        @Override
+        CompletableFuture<PlayerRecord> fetchAsync(AsyncServiceProvider service, String playerName) {
+            return service.doLookupAsync(playerName);
+        }
+
+        @Override
+        CompletableFuture<List<PlayerRecord>> fetchAsync(AsyncServiceProvider service, List<String> playerNames) {
+            return service.doBulkLookupAsync(playerNames.toArray(new String[playerNames.size()]));
+        }
+    };
+    private final AtomicInteger refreshing = new AtomicInteger();
+    private volatile int maximumRefreshes;
+    private ExpirySweeper sweeper;
+    private volatile NegativeCache negativeCache = new NegativeCache(5 * 60 * 1000, 10000); // 5 minutes
     private ServiceProvider serviceProvider;
     private long cacheTimeMax = 1 * 60 * 60 * 1000; // 60 minutes
 
@@ -73,10 +185,51 @@ public class CachingServiceProvider implements ServiceProvider {
      * @param maximumCacheTime the maximum cache time, in seconds. Cannot be negative or zero.
      */
     public CachingServiceProvider(ServiceProvider other, long maximumCacheTime) {
-        if (other == null || maximumCacheTime <= 0) throw new IllegalArgumentException();
+        this(other, maximumCacheTime, (EvictionPolicy) null);
+    }
+
+    /**
+     * Creates a new caching service provider which holds at most the supplied
+     * number of players. Players are evicted using a W-TinyLFU policy, which
+     * keeps frequently requested players cached through floods of one-off
+     * lookups.
+     *
+     * @param other            the other service provider to use, cannot be null
+     * @param maximumCacheTime the maximum cache time, in seconds. Cannot be negative or zero.
+     * @param maximumSize      the maximum number of players to cache. Cannot be negative or zero.
+     */
+    public CachingServiceProvider(ServiceProvider other, long maximumCacheTime, int maximumSize) {
+        this(other, maximumCacheTime, new TinyLfuPolicy(maximumSize));
+    }
+
+    /**
+     * Creates a new caching service provider which is bounded by the supplied
+     * eviction policy. The policy should not be shared with any other cache.
+     *
+     * @param other            the other service provider to use, cannot be null
+     * @param maximumCacheTime the maximum cache time, in seconds. Cannot be negative or zero.
+     * @param policy           the eviction policy to use, or null for an unbounded cache
+     */
+    public CachingServiceProvider(ServiceProvider other, long maximumCacheTime, EvictionPolicy policy) {
+        this(other, maximumCacheTime, new RecordCache(policy));
+    }
+
+    /**
+     * Creates a new caching service provider which keeps players in the supplied
+     * store, such as a {@link com.turt2live.uuid.cache.CompactRecordCache} for
+     * large caches where memory matters more than eviction. The store should not
+     * be shared with any other cache.
+     *
+     * @param other            the other service provider to use, cannot be null
+     * @param maximumCacheTime the maximum cache time, in seconds. Cannot be negative or zero.
+     * @param store            the store to keep players in, cannot be null
+     */
+    public CachingServiceProvider(ServiceProvider other, long maximumCacheTime, RecordStore store) {
+        if (other == null || maximumCacheTime <= 0 || store == null) throw new IllegalArgumentException();
 
         this.serviceProvider = other;
         this.cacheTimeMax = maximumCacheTime * 1000;
+        this.cache = store;
     }
 
     /**
@@ -86,7 +239,7 @@ public class CachingServiceProvider implements ServiceProvider {
      * @param playerNames the player names to cache, cannot be null
      */
     public void seedLoad(Map<UUID, String> playerNames) {
-        seedLoad(playerNames, cacheTimeMax);
+        seedLoad(playerNames, cacheTimeMax / 1000);
     }
 
     /**
@@ -99,57 +252,154 @@ public class CachingServiceProvider implements ServiceProvider {
     public void seedLoad(Map<UUID, String> playerNames, long cacheTime) {
         if (playerNames == null || cacheTime <= 0) throw new IllegalArgumentException();
 
+        long expires = System.currentTimeMillis() + cacheTime * 1000;
         for (Map.Entry<UUID, String> record : playerNames.entrySet()) {
             if (record.getKey() == null || record.getValue() == null) continue;
             PlayerRecord entry = new MemoryPlayerRecord(record.getKey(), record.getValue());
-            cache(entry, cacheTime);
+            cache.put(entry, expires);
         }
     }
 
-    private PlayerRecord checkRecord(UUID uuid) {
-        CachedRecord existing = byUuid.get(uuid);
-        if (existing == null || existing.isExpired()) {
-            if (existing != null) {
-                byUuid.remove(uuid);
-                byName.remove(existing.getRecord().getName().toLowerCase());
-            }
-            return null;
-        }
-        return existing.getRecord();
+    /**
+     * Sets how players which the service reports as not existing are cached.
+     * This replaces (and empties) the current negative cache.
+     *
+     * @param cacheTime   the cache time, in seconds, or zero to disable negative caching. Cannot be negative
+     * @param maximumSize the maximum number of unknown names and unique IDs to remember. Must be positive
+     *                    and non-zero if negative caching is enabled
+     */
+    public void setNegativeCaching(long cacheTime, int maximumSize) {
+        if (cacheTime < 0 || (cacheTime > 0 && maximumSize <= 0)) throw new IllegalArgumentException();
+
+        this.negativeCache = cacheTime == 0 ? null : new NegativeCache(cacheTime * 1000, maximumSize);
     }
 
-    private PlayerRecord checkRecord(String name) {
-        CachedRecord existing = byName.get(name.toLowerCase());
-        if (existing == null || existing.isExpired()) {
-            if (existing != null) {
-                byUuid.remove(existing.getRecord().getUuid());
-                byName.remove(name.toLowerCase());
+    /**
+     * Sets up refreshing of players ahead of their expiration. A player read
+     * within the refresh window of its expiration (plus a random jitter, so that
+     * players cached together do not all refresh together) is looked up again in
+     * the background. Callers keep getting the cached player in the meantime.
+     * This only applies to players cached after this call.
+     *
+     * @param refreshWindow    the time before expiration players are refreshed, in seconds, or zero to
+     *                         disable refreshing. Cannot be negative
+     * @param jitter           the maximum random time added to the refresh window, in seconds. Cannot be negative
+     * @param maximumRefreshes the maximum number of refreshes in progress at once. Must be positive and
+     *                         non-zero if refreshing is enabled
+     */
+    public void setRefreshAhead(long refreshWindow, long jitter, int maximumRefreshes) {
+        if (refreshWindow < 0 || jitter < 0 || (refreshWindow > 0 && maximumRefreshes <= 0))
+            throw new IllegalArgumentException();
+
+        this.maximumRefreshes = maximumRefreshes;
+        cache.setRefreshAhead(refreshWindow * 1000, jitter * 1000, refreshWindow == 0 ? null : new RefreshListener() {
+            @Override
+            public boolean onRefreshDue(PlayerRecord record) {
+                return refresh(record);
             }
-            return null;
+        });
+    }
+
+    /**
+     * Gets the number of background refreshes currently in progress
+     *
+     * @return the number of refreshes in progress
+     */
+    public int getRefreshesInProgress() {
+        return refreshing.get();
+    }
+
+    private boolean refresh(PlayerRecord record) {
+        if (refreshing.incrementAndGet() > maximumRefreshes) {
+            refreshing.decrementAndGet();
+            return false; // Asked again on a later read
+        }
+
+        CompletableFuture<PlayerRecord> refresh = null;
+        try {
+            refresh = uuidLoader.reload(record.getUuid());
+        } finally {
+            if (refresh == null) refreshing.decrementAndGet();
+            else refresh.whenComplete((r, e) -> refreshing.decrementAndGet());
         }
-        return existing.getRecord();
+        return true;
     }
 
-    private void cache(PlayerRecord record) {
-        cache(record, record.getExpirationTime() <= 0 ? cacheTimeMax : record.getExpirationTime());
+    private boolean isKnownUnknown(UUID uuid) {
+        NegativeCache negative = negativeCache;
+        return negative != null && negative.contains(uuid);
+    }
+
+    private boolean isKnownUnknown(String playerName) {
+        NegativeCache negative = negativeCache;
+        return negative != null && negative.contains(playerName);
     }
 
-    private void cache(PlayerRecord record, long time) {
-        CachedRecord cachedRecord = new CachedRecord(record, time);
-        byName.put(record.getName(), cachedRecord);
-        byUuid.put(record.getUuid(), cachedRecord);
+    /**
+     * Sets the sweeper which removes expired players from the cache in the
+     * background. Without one, expired players are only removed when they are
+     * next looked up, or evicted. One sweeper may be shared by many caches.
+     *
+     * @param sweeper the sweeper to use, or null to stop sweeping
+     */
+    public synchronized void setExpirySweeper(ExpirySweeper sweeper) {
+        if (this.sweeper != null) this.sweeper.unregister(cache);
+        if (sweeper != null) sweeper.register(cache);
+        this.sweeper = sweeper;
+    }
+
+    /**
+     * Gets the number of expired players removed from the cache by its sweeper
+     *
+     * @return the number of expired players removed so far
+     */
+    public long getExpiredCount() {
+        return cache.getExpiredCount();
+    }
+
+    /**
+     * Gets the number of players currently cached. This may include expired
+     * players which have not been removed yet.
+     *
+     * @return the number of cached players
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Gets the number of players evicted from the cache to keep it within its
+     * maximum size
+     *
+     * @return the number of evictions so far
+     */
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    private void cache(PlayerRecord record) {
+        if (record.getUuid() == null || record.getName() == null) return;
+
+        NegativeCache negative = negativeCache;
+        if (negative != null) {
+            negative.remove(record.getUuid());
+            negative.remove(record.getName());
+        }
+
+        long expires = record.getExpirationTime();
+        if (expires <= 0 && record.getTimeLeft() > 0) expires = System.currentTimeMillis() + record.getTimeLeft() * 1000;
+        if (expires <= 0) expires = System.currentTimeMillis() + cacheTimeMax;
+        cache.put(record, expires);
     }
 
     @Override
     public PlayerRecord doLookup(UUID uuid) {
-        List<PlayerRecord> results = doBulkLookup(uuid);
-        return results == null || results.isEmpty() ? null : results.get(0);
+        return uuidLoader.lookup(new UUID[] {uuid})[0];
     }
 
     @Override
     public PlayerRecord doLookup(String playerName) {
-        List<PlayerRecord> results = doBulkLookup(playerName);
-        return results == null || results.isEmpty() ? null : results.get(0);
+        return nameLoader.lookup(new String[] {playerName})[0];
     }
 
     @Override
@@ -159,46 +409,57 @@ public class CachingServiceProvider implements ServiceProvider {
 
     @Override
     public List<PlayerRecord> doBulkLookup(UUID... uuids) {
-        if (uuids == null) throw new IllegalArgumentException();
-        List<PlayerRecord> records = new ArrayList<>();
-
-        for (UUID uuid : uuids) {
-            if (uuid == null) throw new IllegalArgumentException();
-            PlayerRecord existing = checkRecord(uuid);
-            if (existing != null) records.add(existing);
-            else {
-                PlayerRecord record = serviceProvider.doLookup(uuid);
-                if (record != null) {
-                    records.add(record);
-                    cache(record);
-                }
-            }
-        }
-
-        return records;
+        return known(uuidLoader.lookup(uuids));
     }
 
     @Override
     public List<PlayerRecord> doBulkLookup(String... playerNames) {
-        if (playerNames == null) throw new IllegalArgumentException();
-        List<PlayerRecord> records = new ArrayList<>();
-
-        for (String playerName : playerNames) {
-            if (playerName == null) throw new IllegalArgumentException();
-            PlayerRecord existing = checkRecord(playerName);
-            if (existing != null) records.add(existing);
-            else {
-                PlayerRecord record = serviceProvider.doLookup(playerName);
-                if (record != null) {
-                    records.add(record);
-                    cache(record);
-                }
-            }
-        }
+        return known(nameLoader.lookup(playerNames));
+    }
+
+    @Override
+    public CompletableFuture<PlayerRecord> doLookupAsync(UUID uuid) {
+        return uuidLoader.lookupAsync(new UUID[] {uuid}).thenApply(found -> found[0]);
+    }
+
+    @Override
+    public CompletableFuture<PlayerRecord> doLookupAsync(String playerName) {
+        return nameLoader.lookupAsync(new String[] {playerName}).thenApply(found -> found[0]);
+    }
+
+    @Override
+    public CompletableFuture<String[]> getNameHistoryAsync(UUID uuid) {
+        AsyncServiceProvider async = asyncService();
+        return async == null ? super.getNameHistoryAsync(uuid) : async.getNameHistoryAsync(uuid);
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> doBulkLookupAsync(UUID... uuids) {
+        return uuidLoader.lookupAsync(uuids).thenApply(this::known);
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> doBulkLookupAsync(String... playerNames) {
+        return nameLoader.lookupAsync(playerNames).thenApply(this::known);
+    }
+
+    private AsyncServiceProvider asyncService() {
+        return serviceProvider instanceof AsyncServiceProvider ? (AsyncServiceProvider) serviceProvider : null;
+    }
 
+    private List<PlayerRecord> known(PlayerRecord[] found) {
+        List<PlayerRecord> records = new ArrayList<>(found.length);
+        for (PlayerRecord record : found) {
+            if (record != null && !UnknownPlayerRecord.isUnknown(record)) records.add(record);
+        }
         return records;
     }
 
+    @Override
+    public int getBulkRequestCount(int players, boolean byUuid) {
+        return serviceProvider.getBulkRequestCount(players, byUuid);
+    }
+
     @Override
     public PlayerRecord getRandomSample() {
         return getRandomSample(1).get(0);
@@ -207,34 +468,236 @@ public class CachingServiceProvider implements ServiceProvider {
     @Override
     public List<PlayerRecord> getRandomSample(int amount) {
         if (amount <= 0) throw new IllegalArgumentException();
-        List<PlayerRecord> records = new ArrayList<>();
+        List<PlayerRecord> records = cache.sample(amount, new Random());
 
-        Random random = new Random();
-        while (records.size() < amount && !byUuid.isEmpty() && records.size() < byUuid.size()) {
-            Set<UUID> keys = byUuid.keySet();
-            UUID randKey = keys.toArray(new UUID[keys.size()])[random.nextInt(keys.size())];
-            PlayerRecord randRecord = checkRecord(randKey);
-            if (randRecord != null && !contains(records, randRecord)) records.add(randRecord);
-        }
         if (records.size() != amount) {
             List<PlayerRecord> pulled = serviceProvider.getRandomSample(amount - records.size());
-            records.addAll(pulled);
+            if (pulled != null) {
+                records.addAll(pulled);
 
-            for (PlayerRecord record : pulled) cache(record);
+                for (PlayerRecord record : pulled) cache(record);
+            }
         }
 
         return records;
     }
 
-    private boolean contains(List<PlayerRecord> records, PlayerRecord record) {
-        for (PlayerRecord record1 : records) {
-            if (record1.getUuid().equals(record.getUuid())) return true;
-        }
-        return false;
+    @Override
+    public CompletableFuture<List<PlayerRecord>> getRandomSampleAsync(int amount) {
+        if (amount <= 0) throw new IllegalArgumentException();
+        final List<PlayerRecord> records = cache.sample(amount, new Random());
+        if (records.size() == amount) return CompletableFuture.completedFuture(records);
+
+        AsyncServiceProvider async = asyncService();
+        final int remaining = amount - records.size();
+        CompletableFuture<List<PlayerRecord>> pulled = async != null ? async.getRandomSampleAsync(remaining)
+                : CompletableFuture.supplyAsync(() -> serviceProvider.getRandomSample(remaining), getExecutor());
+        return pulled.thenApply(list -> {
+            if (list != null) {
+                records.addAll(list);
+
+                for (PlayerRecord record : list) cache(record);
+            }
+            return records;
+        });
     }
 
     @Override
     public String getServiceName() {
         return serviceProvider.getServiceName();
     }
+
+    /**
+     * Looks up a set of values through the cache, forwarding the misses this
+     * caller is responsible for to the service in as few bulk calls as the
+     * service allows. Misses already being loaded by another caller are waited
+     * on instead.
+     * <p>
+     * Results line up with the values looked up: null for a connection problem,
+     * or an {@link UnknownPlayerRecord} for a player known not to exist.
+     *
+     * @param <T> the type of value looked up
+     * @param <K> the type of key the cache and flights use for a value
+     */
+    private abstract class BulkLoader<T, K> {
+
+        private final SingleFlight<K, PlayerRecord> flights = new SingleFlight<>();
+
+        abstract K toKey(T value);
+
+        abstract K keyOf(PlayerRecord record);
+
+        abstract PlayerRecord fromCache(T value);
+
+        abstract void cacheUnknown(T value);
+
+        abstract PlayerRecord fetch(T value);
+
+        abstract List<PlayerRecord> fetch(List<T> values);
+
+        abstract CompletableFuture<PlayerRecord> fetchAsync(AsyncServiceProvider service, T value);
+
+        abstract CompletableFuture<List<PlayerRecord>> fetchAsync(AsyncServiceProvider service, List<T> values);
+
+        PlayerRecord[] lookup(T[] values) {
+            PlayerRecord[] found = new PlayerRecord[values == null ? 0 : values.length];
+            Map<K, SingleFlight.Flight<PlayerRecord>> joined = new HashMap<>();
+            Map<K, T> leading = new LinkedHashMap<>();
+            claim(values, found, joined, leading);
+
+            // Our own flights have to finish before we wait on anyone else's
+            if (!leading.isEmpty()) {
+                List<List<T>> batches = batches(leading, joined);
+                for (int i = 0; i < batches.size(); i++) {
+                    try {
+                        complete(batches.get(i), joined, fetchBatch(batches.get(i)));
+                    } catch (RuntimeException e) {
+                        for (List<T> open : batches.subList(i, batches.size())) fail(open, joined, e);
+                        throw e;
+                    }
+                }
+            }
+
+            for (int i = 0; i < values.length; i++) {
+                if (found[i] == null) found[i] = joined.get(toKey(values[i])).await();
+            }
+            return found;
+        }
+
+        CompletableFuture<PlayerRecord[]> lookupAsync(final T[] values) {
+            final PlayerRecord[] found = new PlayerRecord[values == null ? 0 : values.length];
+            final Map<K, SingleFlight.Flight<PlayerRecord>> joined = new HashMap<>();
+            Map<K, T> leading = new LinkedHashMap<>();
+            claim(values, found, joined, leading);
+            if (joined.isEmpty()) return CompletableFuture.completedFuture(found);
+
+            if (!leading.isEmpty()) loadAsync(batches(leading, joined), joined);
+
+            List<CompletableFuture<PlayerRecord>> waits = new ArrayList<>(joined.size());
+            for (SingleFlight.Flight<PlayerRecord> flight : joined.values()) waits.add(flight.getFuture());
+            return CompletableFuture.allOf(waits.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+                for (int i = 0; i < values.length; i++) {
+                    if (found[i] == null) found[i] = joined.get(toKey(values[i])).getFuture().join();
+                }
+                return found;
+            });
+        }
+
+        /**
+         * Loads a value from the service in the background, even if it is cached
+         *
+         * @return the flight's future, or null if the value is already being loaded
+         */
+        CompletableFuture<PlayerRecord> reload(T value) {
+            K key = toKey(value);
+            SingleFlight.Flight<PlayerRecord> flight = flights.join(key);
+            if (!flight.isLeader()) return null;
+
+            loadAsync(Collections.singletonList(Collections.singletonList(value)), Collections.singletonMap(key, flight));
+            return flight.getFuture();
+        }
+
+        private void loadAsync(List<List<T>> batches, final Map<K, SingleFlight.Flight<PlayerRecord>> joined) {
+            AsyncServiceProvider async = asyncService();
+            for (final List<T> batch : batches) {
+                CompletableFuture<List<PlayerRecord>> fetched;
+                try {
+                    fetched = async != null ? fetchBatch(async, batch)
+                            : CompletableFuture.supplyAsync(() -> fetchBatch(batch), getExecutor());
+                } catch (RuntimeException e) {
+                    fetched = new CompletableFuture<>();
+                    fetched.completeExceptionally(e);
+                }
+                fetched.whenComplete((records, failure) -> {
+                    Throwable cause = failure;
+                    if (cause == null) {
+                        try {
+                            complete(batch, joined, records);
+                            return;
+                        } catch (RuntimeException e) {
+                            cause = e;
+                        }
+                    }
+                    if (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+                    fail(batch, joined, cause);
+                });
+            }
+        }
+
+        private void claim(T[] values, PlayerRecord[] found, Map<K, SingleFlight.Flight<PlayerRecord>> joined, Map<K, T> leading) {
+            if (values == null) throw new IllegalArgumentException();
+            for (T value : values) if (value == null) throw new IllegalArgumentException();
+
+            for (int i = 0; i < values.length; i++) {
+                found[i] = fromCache(values[i]);
+                if (found[i] != null) continue;
+
+                K key = toKey(values[i]);
+                if (joined.containsKey(key)) continue;
+
+                SingleFlight.Flight<PlayerRecord> flight = flights.join(key);
+                joined.put(key, flight);
+                if (flight.isLeader()) leading.put(key, values[i]);
+            }
+        }
+
+        private List<List<T>> batches(Map<K, T> leading, Map<K, SingleFlight.Flight<PlayerRecord>> joined) {
+            List<T> pending = new ArrayList<>();
+            for (Map.Entry<K, T> entry : leading.entrySet()) {
+                PlayerRecord cached = fromCache(entry.getValue()); // A flight may have finished since we missed
+                if (cached == null) pending.add(entry.getValue());
+                else flights.complete(entry.getKey(), joined.get(entry.getKey()), cached);
+            }
+
+            int batchSize = serviceProvider.getMaxBulkLookupSize();
+            if (batchSize <= 0) batchSize = Math.max(1, pending.size());
+
+            List<List<T>> batches = new ArrayList<>();
+            for (int start = 0; start < pending.size(); start += batchSize) {
+                batches.add(pending.subList(start, Math.min(pending.size(), start + batchSize)));
+            }
+            return batches;
+        }
+
+        // Single lookups may return richer records than bulk lookups
+        private List<PlayerRecord> fetchBatch(List<T> batch) {
+            return batch.size() > 1 ? fetch(batch) : single(fetch(batch.get(0)));
+        }
+
+        private CompletableFuture<List<PlayerRecord>> fetchBatch(AsyncServiceProvider service, List<T> batch) {
+            if (batch.size() > 1) return fetchAsync(service, batch);
+            return fetchAsync(service, batch.get(0)).thenApply(this::single);
+        }
+
+        private List<PlayerRecord> single(PlayerRecord record) {
+            return record == null ? Collections.<PlayerRecord>emptyList() : Collections.singletonList(record);
+        }
+
+        private void complete(List<T> batch, Map<K, SingleFlight.Flight<PlayerRecord>> joined, List<PlayerRecord> fetched) {
+            Map<K, PlayerRecord> results = new HashMap<>();
+            if (fetched != null) {
+                for (PlayerRecord record : fetched) {
+                    if (record == null) continue;
+                    cache(record);
+
+                    K key = keyOf(record);
+                    if (key != null) results.put(key, record);
+                }
+            }
+
+            for (T value : batch) {
+                K key = toKey(value);
+                PlayerRecord record = results.get(key);
+                if (UnknownPlayerRecord.isUnknown(record)) cacheUnknown(value);
+                flights.complete(key, joined.get(key), record);
+            }
+        }
+
+        private void fail(List<T> batch, Map<K, SingleFlight.Flight<PlayerRecord>> joined, Throwable failure) {
+            for (T value : batch) {
+                K key = toKey(value);
+                flights.fail(key, joined.get(key), failure);
+            }
+        }
+    }
 }
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid;
+
+import com.turt2live.uuid.utils.CircuitBreaker;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Represents a service provider which stops calling a service while it is down.
+ * Calls the service answers with null (a connection problem) or answers slowly
+ * are counted by a {@link CircuitBreaker}, and once it opens every call fails
+ * fast without touching the network until the breaker's probes find the service
+ * working again.
+ * <p>
+ * If a fallback service is supplied, calls which fail fast, or which the service
+ * fails to answer, are sent to the fallback instead of returning null.
+ * Exceptions thrown by the service, such as
+ * {@link com.turt2live.uuid.utils.HTTPUtils.RateLimitedException}, are passed on
+ * and not counted as failures.
+ *
+ * @author turt2live
+ */
+public class CircuitBreakingServiceProvider extends AbstractAsyncServiceProvider {
+
+    private final ServiceProvider serviceProvider;
+    private final ServiceProvider fallback;
+    private final CircuitBreaker breaker;
+
+    /**
+     * Creates a new provider which fails fast with null while the service is down
+     *
+     * @param serviceProvider the service to use, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public CircuitBreakingServiceProvider(ServiceProvider serviceProvider) {
+        this(serviceProvider, null);
+    }
+
+    /**
+     * Creates a new provider which uses a fallback service while the service is down
+     *
+     * @param serviceProvider the service to use, cannot be null
+     * @param fallback        the service to use while the service is down, or null to return null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for a null service
+     */
+    public CircuitBreakingServiceProvider(ServiceProvider serviceProvider, ServiceProvider fallback) {
+        if (serviceProvider == null) throw new IllegalArgumentException();
+
+        this.serviceProvider = serviceProvider;
+        this.fallback = fallback;
+        this.breaker = new CircuitBreaker(serviceProvider.getServiceName());
+    }
+
+    /**
+     * Gets the breaker guarding the service, to configure it or observe its state
+     *
+     * @return the circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    @Override
+    public PlayerRecord doLookup(final UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        return call(service -> service.doLookup(uuid));
+    }
+
+    @Override
+    public PlayerRecord doLookup(final String playerName) {
+        if (playerName == null) throw new IllegalArgumentException();
+        return call(service -> service.doLookup(playerName));
+    }
+
+    @Override
+    public String[] getNameHistory(final UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        return call(service -> service.getNameHistory(uuid));
+    }
+
+    @Override
+    public List<PlayerRecord> doBulkLookup(final UUID... uuids) {
+        checkValues(uuids);
+        return call(service -> service.doBulkLookup(uuids));
+    }
+
+    @Override
+    public List<PlayerRecord> doBulkLookup(final String... playerNames) {
+        checkValues(playerNames);
+        return call(service -> service.doBulkLookup(playerNames));
+    }
+
+    @Override
+    public int getMaxBulkLookupSize() {
+        int size = serviceProvider.getMaxBulkLookupSize();
+        if (fallback == null) return size;
+
+        int other = fallback.getMaxBulkLookupSize();
+        if (size <= 0) return other;
+        return other <= 0 ? size : Math.min(size, other); // A bulk lookup may end up at either
+    }
+
+    @Override
+    public int getBulkRequestCount(int players, boolean byUuid) {
+        return serviceProvider.getBulkRequestCount(players, byUuid);
+    }
+
+    @Override
+    public PlayerRecord getRandomSample() {
+        return call(ServiceProvider::getRandomSample);
+    }
+
+    @Override
+    public List<PlayerRecord> getRandomSample(final int amount) {
+        if (amount <= 0) throw new IllegalArgumentException();
+        return call(service -> service.getRandomSample(amount));
+    }
+
+    @Override
+    public String getServiceName() {
+        return serviceProvider.getServiceName();
+    }
+
+    private <T> T call(Function<ServiceProvider, T> lookup) {
+        long permit = breaker.tryAcquire();
+        if (permit == CircuitBreaker.REJECTED) return fallback == null ? null : lookup.apply(fallback);
+
+        long start = System.nanoTime();
+        T value;
+        try {
+            value = lookup.apply(serviceProvider);
+        } catch (RuntimeException | Error e) {
+            breaker.release(permit);
+            throw e;
+        }
+
+        if (value != null) {
+            breaker.onSuccess(permit, System.nanoTime() - start);
+            return value;
+        }
+        breaker.onFailure(permit, System.nanoTime() - start);
+        return fallback == null ? null : lookup.apply(fallback);
+    }
+
+    private static void checkValues(Object[] values) {
+        if (values == null) throw new IllegalArgumentException();
+        for (Object value : values) if (value == null) throw new IllegalArgumentException();
+    }
+}
@@ -0,0 +1,361 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Represents a service provider which combines several services, such as the
+ * turt2live and Mojang services, routing each call to whichever is currently
+ * the best choice.
+ * <p>
+ * For every service an exponentially weighted moving average (EWMA) of its
+ * lookup latency and of its error rate is kept. A service is healthy while its
+ * error rate is below one half; errors are forgotten over time (half of it every
+ * 30 seconds), so a service which recovered is tried again. Single lookups go to
+ * the healthy service with the lowest latency, services not tried yet first.
+ * Bulk lookups go to the healthy service needing the fewest requests for them,
+ * as estimated by {@link ServiceProvider#getBulkRequestCount(int, boolean)}.
+ * Unhealthy services are only used once every healthy one has been tried.
+ * <p>
+ * A call which fails, by returning null or throwing an exception, falls over to
+ * the next service. So does a player one service does not know about: an
+ * {@link UnknownPlayerRecord} is only returned once every service was asked, and
+ * players missing from a bulk lookup are looked up in the next service. This can
+ * be turned off with {@link #setMissFallover(boolean)}.
+ *
+ * @author turt2live
+ */
+public class CompositeServiceProvider extends AbstractAsyncServiceProvider {
+
+    /**
+     * The default weight of each new sample in the moving averages
+     */
+    public static final double DEFAULT_SMOOTHING = 0.2;
+
+    /**
+     * The error rate at and above which a service is considered unhealthy
+     */
+    public static final double UNHEALTHY_ERROR_RATE = 0.5;
+
+    private static final long ERROR_HALF_LIFE = TimeUnit.SECONDS.toNanos(30);
+
+    private final Backend[] backends;
+    private volatile double smoothing = DEFAULT_SMOOTHING;
+    private volatile boolean missFallover = true;
+
+    /**
+     * Creates a new composite provider
+     *
+     * @param services the services to combine, in order of preference while nothing is known
+     *                 about them. Cannot be null, empty or contain null.
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null or empty arguments
+     */
+    public CompositeServiceProvider(ServiceProvider... services) {
+        if (services == null || services.length == 0) throw new IllegalArgumentException();
+
+        this.backends = new Backend[services.length];
+        for (int i = 0; i < services.length; i++) {
+            if (services[i] == null) throw new IllegalArgumentException();
+            backends[i] = new Backend(services[i], i);
+        }
+    }
+
+    /**
+     * Sets the weight of each new sample in the latency and error rate moving averages
+     *
+     * @param smoothing the weight, above zero and at most one. Higher values follow changes faster.
+     *
+     * @throws java.lang.IllegalArgumentException thrown for values outside the range
+     */
+    public void setSmoothing(double smoothing) {
+        if (!(smoothing > 0 && smoothing <= 1)) throw new IllegalArgumentException();
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Sets whether players a service does not know about are looked up in the next service
+     *
+     * @param missFallover true to ask the next service, false to accept the first answer
+     */
+    public void setMissFallover(boolean missFallover) {
+        this.missFallover = missFallover;
+    }
+
+    /**
+     * Gets the services in the order a single lookup would currently try them
+     *
+     * @return the services, best first
+     */
+    public List<ServiceProvider> getRouting() {
+        List<ServiceProvider> services = new ArrayList<>();
+        for (Backend backend : route(-1, false)) services.add(backend.service);
+        return services;
+    }
+
+    /**
+     * Gets the average lookup latency of one of the combined services
+     *
+     * @param service the service, must be one of the combined services
+     * @param unit    the unit to return the latency in, cannot be null
+     *
+     * @return the average latency, or -1 if the service has not been timed yet
+     *
+     * @throws java.lang.IllegalArgumentException thrown if the service is not combined by this provider
+     */
+    public long getLatency(ServiceProvider service, TimeUnit unit) {
+        if (unit == null) throw new IllegalArgumentException();
+
+        double latency = backend(service).latency();
+        return latency < 0 ? -1 : unit.convert((long) latency, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the average error rate of one of the combined services
+     *
+     * @param service the service, must be one of the combined services
+     *
+     * @return the error rate, between 0 and 1
+     *
+     * @throws java.lang.IllegalArgumentException thrown if the service is not combined by this provider
+     */
+    public double getErrorRate(ServiceProvider service) {
+        return backend(service).errorRate(System.nanoTime());
+    }
+
+    private Backend backend(ServiceProvider service) {
+        for (Backend backend : backends) if (backend.service == service) return backend;
+        throw new IllegalArgumentException("Not a combined service: " + service);
+    }
+
+    @Override
+    public PlayerRecord doLookup(final UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        return call(service -> service.doLookup(uuid), true, true);
+    }
+
+    @Override
+    public PlayerRecord doLookup(final String playerName) {
+        if (playerName == null) throw new IllegalArgumentException();
+        return call(service -> service.doLookup(playerName), true, true);
+    }
+
+    @Override
+    public String[] getNameHistory(final UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        return call(service -> service.getNameHistory(uuid), false, false); // Unknown players have no history either
+    }
+
+    @Override
+    public List<PlayerRecord> doBulkLookup(UUID... uuids) {
+        checkValues(uuids);
+        return bulk(uuids, true);
+    }
+
+    @Override
+    public List<PlayerRecord> doBulkLookup(String... playerNames) {
+        checkValues(playerNames);
+        return bulk(playerNames, false);
+    }
+
+    @Override
+    public int getBulkRequestCount(int players, boolean byUuid) {
+        return route(players, byUuid).get(0).service.getBulkRequestCount(players, byUuid);
+    }
+
+    @Override
+    public PlayerRecord getRandomSample() {
+        return call(ServiceProvider::getRandomSample, false, false);
+    }
+
+    @Override
+    public List<PlayerRecord> getRandomSample(final int amount) {
+        if (amount <= 0) throw new IllegalArgumentException();
+        return call(service -> service.getRandomSample(amount), false, false);
+    }
+
+    @Override
+    public String getServiceName() {
+        StringBuilder name = new StringBuilder("Composite [");
+        for (int i = 0; i < backends.length; i++) {
+            if (i > 0) name.append(", ");
+            name.append(backends[i].service.getServiceName());
+        }
+        return name.append(']').toString();
+    }
+
+    /**
+     * Orders the services for a call, healthy ones first
+     *
+     * @param players the number of players in a bulk lookup, or -1 for a single lookup
+     * @param byUuid  true if a bulk lookup is of unique IDs
+     */
+    private List<Backend> route(final int players, final boolean byUuid) {
+        final long now = System.nanoTime();
+        final double[] cost = new double[backends.length];
+        final boolean[] healthy = new boolean[backends.length];
+        List<Backend> order = new ArrayList<>(Arrays.asList(backends));
+        for (Backend backend : backends) {
+            healthy[backend.position] = backend.errorRate(now) < UNHEALTHY_ERROR_RATE;
+            cost[backend.position] = players < 0
+                    ? Math.max(0, backend.latency()) // Services not timed yet are tried first
+                    : backend.service.getBulkRequestCount(players, byUuid);
+        }
+        Collections.sort(order, (a, b) -> {
+            if (healthy[a.position] != healthy[b.position]) return healthy[a.position] ? -1 : 1;
+            int compare = Double.compare(cost[a.position], cost[b.position]);
+            return compare != 0 ? compare : Integer.compare(a.position, b.position);
+        });
+        return order;
+    }
+
+    /**
+     * Calls each service in turn until one answers
+     *
+     * @param tracked true to record the outcome in the service's averages
+     * @param player  true if the answer is a player record, which may be unknown
+     */
+    private <T> T call(Function<ServiceProvider, T> lookup, boolean tracked, boolean player) {
+        T unknown = null;
+        RuntimeException failure = null;
+        for (Backend backend : route(-1, false)) {
+            long start = System.nanoTime();
+            T value;
+            try {
+                value = lookup.apply(backend.service);
+            } catch (RuntimeException e) {
+                if (tracked) backend.record(true, -1, smoothing);
+                failure = e;
+                continue;
+            }
+            if (tracked) backend.record(value == null, System.nanoTime() - start, smoothing);
+            if (value == null) continue;
+
+            if (!player || !UnknownPlayerRecord.isUnknown((PlayerRecord) value) || !missFallover) return value;
+            unknown = value;
+        }
+        if (unknown != null) return unknown;
+        if (failure != null) throw failure;
+        return null;
+    }
+
+    private List<PlayerRecord> bulk(Object[] values, boolean byUuid) {
+        Map<Object, Object> remaining = new LinkedHashMap<>();
+        for (Object value : values) remaining.put(key(value), value);
+
+        List<PlayerRecord> records = new ArrayList<>();
+        boolean answered = false;
+        RuntimeException failure = null;
+        for (Backend backend : route(remaining.size(), byUuid)) {
+            if (remaining.isEmpty()) break;
+
+            List<PlayerRecord> found;
+            try {
+                found = bulk(backend.service, remaining.values(), byUuid);
+            } catch (RuntimeException e) {
+                backend.record(true, -1, smoothing);
+                failure = e;
+                continue;
+            }
+            backend.record(found == null, -1, smoothing);
+            if (found == null) continue;
+
+            answered = true;
+            for (PlayerRecord record : found) {
+                if (record == null) continue;
+                remaining.remove(key(byUuid ? record.getUuid() : record.getName()));
+                records.add(record);
+            }
+            if (!missFallover) break;
+        }
+        if (answered) return records;
+        if (failure != null) throw failure;
+        return null;
+    }
+
+    /**
+     * Looks up values in a single service, split to fit its maximum bulk size
+     */
+    private static List<PlayerRecord> bulk(ServiceProvider service, Collection<Object> values, boolean byUuid) {
+        int size = service.getMaxBulkLookupSize();
+        List<Object> all = new ArrayList<>(values);
+        if (size <= 0) size = Math.max(1, all.size());
+
+        List<PlayerRecord> records = null;
+        for (int start = 0; start < all.size(); start += size) {
+            List<Object> batch = all.subList(start, Math.min(all.size(), start + size));
+            List<PlayerRecord> found = byUuid
+                    ? service.doBulkLookup(batch.toArray(new UUID[batch.size()]))
+                    : service.doBulkLookup(batch.toArray(new String[batch.size()]));
+            if (found == null) continue;
+            if (records == null) records = new ArrayList<>();
+            records.addAll(found);
+        }
+        return records;
+    }
+
+    private static Object key(Object value) {
+        return value instanceof String ? ((String) value).toLowerCase() : value;
+    }
+
+    private static void checkValues(Object[] values) {
+        if (values == null) throw new IllegalArgumentException();
+        for (Object value : values) if (value == null) throw new IllegalArgumentException();
+    }
+
+    /**
+     * The moving averages of a single service
+     */
+    private static final class Backend {
+
+        private final ServiceProvider service;
+        private final int position;
+        private double latency = -1; // Nanoseconds
+        private double errors;
+        private long updated = System.nanoTime();
+
+        private Backend(ServiceProvider service, int position) {
+            this.service = service;
+            this.position = position;
+        }
+
+        /**
+         * Records the outcome of a call
+         *
+         * @param nanos the latency of a successful single lookup, or -1 to leave the latency alone
+         */
+        private synchronized void record(boolean failed, long nanos, double smoothing) {
+            long now = System.nanoTime();
+            errors = errorRate(now) * (1 - smoothing) + (failed ? smoothing : 0);
+            updated = now;
+            if (!failed && nanos >= 0) latency = latency < 0 ? nanos : latency * (1 - smoothing) + nanos * smoothing;
+        }
+
+        private synchronized double errorRate(long now) {
+            return errors * Math.pow(0.5, (now - updated) / (double) ERROR_HALF_LIFE);
+        }
+
+        private synchronized double latency() {
+            return latency;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid;
+
+import com.turt2live.uuid.utils.LatencyTracker;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Represents a service provider which bounds how long each lookup may take and,
+ * optionally, hedges slow lookups against an alternate service.
+ * <p>
+ * Every call is given a deadline (default 10 seconds). A call which has not been
+ * answered by then returns null, the same as any other connection problem. The
+ * lookup itself keeps running in the background until the service's transport
+ * gives up on it, so transports should still have timeouts of their own.
+ * <p>
+ * If an alternate service is supplied, a single player lookup or name history
+ * request which takes longer than the primary service usually does (its 95th
+ * percentile latency by default) is sent to the alternate service as well, and
+ * whichever answers first is returned. Until enough lookups have been timed, no
+ * lookup is hedged on latency alone. Any call the primary service fails to
+ * answer is sent to the alternate service straight away, including bulk lookups
+ * and random samples, which are never hedged as they are too expensive to
+ * duplicate. Attempts share a bounded pool of threads; an attempt which cannot be
+ * started because too many are already in flight counts as unanswered.
+ *
+ * @author turt2live
+ */
+public class HedgedServiceProvider extends AbstractAsyncServiceProvider {
+
+    /**
+     * The default deadline of each call, in milliseconds
+     */
+    public static final long DEFAULT_DEADLINE = 10000;
+
+    /**
+     * The default percentile of the primary service's latency after which a lookup is hedged
+     */
+    public static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+
+    /**
+     * The default minimum time, in milliseconds, before a lookup is hedged
+     */
+    public static final long DEFAULT_MINIMUM_HEDGE_DELAY = 50;
+
+    private static final int MAX_ATTEMPTS = 64;
+    private static final int MAX_QUEUED_ATTEMPTS = 256;
+    private static final ThreadPoolExecutor ATTEMPTS;
+
+    static {
+        final AtomicInteger count = new AtomicInteger();
+        ATTEMPTS = new ThreadPoolExecutor(MAX_ATTEMPTS, MAX_ATTEMPTS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(MAX_QUEUED_ATTEMPTS), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "UUID-Library Hedge #" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        ATTEMPTS.allowCoreThreadTimeOut(true);
+    }
+
+    private final ServiceProvider primary;
+    private final ServiceProvider alternate;
+    private final LatencyTracker latency = new LatencyTracker();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private volatile long deadline = TimeUnit.MILLISECONDS.toNanos(DEFAULT_DEADLINE);
+    private volatile double hedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+    private volatile long minimumHedgeDelay = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MINIMUM_HEDGE_DELAY);
+
+    /**
+     * Creates a new provider which only applies deadlines to the supplied service
+     *
+     * @param primary the service to use, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public HedgedServiceProvider(ServiceProvider primary) {
+        this(primary, null);
+    }
+
+    /**
+     * Creates a new provider which hedges the supplied service against an alternate service
+     *
+     * @param primary   the service to use, cannot be null
+     * @param alternate the service to use when the primary service is slow or fails, or null
+     *                  to only apply deadlines
+     *
+     * @throws java.lang.IllegalArgumentException thrown for a null primary service
+     */
+    public HedgedServiceProvider(ServiceProvider primary, ServiceProvider alternate) {
+        if (primary == null) throw new IllegalArgumentException();
+
+        this.primary = primary;
+        this.alternate = alternate;
+    }
+
+    /**
+     * Sets how long each call may take before null is returned
+     *
+     * @param time the deadline, must be positive
+     * @param unit the unit of the deadline, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive times or a null unit
+     */
+    public void setDeadline(long time, TimeUnit unit) {
+        if (time <= 0 || unit == null) throw new IllegalArgumentException();
+        this.deadline = unit.toNanos(time);
+    }
+
+    /**
+     * Sets when lookups are hedged against the alternate service
+     *
+     * @param percentile   the percentile of the primary service's recent latency after which a lookup
+     *                     is hedged, between 0 and 1, or zero to disable hedging on latency
+     * @param minimumDelay the minimum time before a lookup is hedged. Cannot be negative
+     * @param unit         the unit of the minimum delay, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    public void setHedging(double percentile, long minimumDelay, TimeUnit unit) {
+        if (!(percentile >= 0 && percentile <= 1) || minimumDelay < 0 || unit == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.hedgePercentile = percentile;
+        this.minimumHedgeDelay = unit.toNanos(minimumDelay);
+    }
+
+    /**
+     * Gets the time after which a single lookup is currently hedged
+     *
+     * @param unit the unit to return the delay in, cannot be null
+     *
+     * @return the hedge delay, or -1 if lookups are not currently hedged on latency
+     */
+    public long getHedgeDelay(TimeUnit unit) {
+        if (unit == null) throw new IllegalArgumentException();
+
+        long delay = hedgeDelay();
+        return delay < 0 ? -1 : unit.convert(delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the number of calls which were also sent to the alternate service,
+     * either because the primary service was slow or because it failed
+     *
+     * @return the number of hedged calls
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * Gets the number of calls which returned null because they ran out of time
+     *
+     * @return the number of calls which missed their deadline
+     */
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    @Override
+    public PlayerRecord doLookup(final UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        return call(service -> service.doLookup(uuid), true);
+    }
+
+    @Override
+    public PlayerRecord doLookup(final String playerName) {
+        if (playerName == null) throw new IllegalArgumentException();
+        return call(service -> service.doLookup(playerName), true);
+    }
+
+    @Override
+    public String[] getNameHistory(final UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        return call(service -> service.getNameHistory(uuid), true);
+    }
+
+    @Override
+    public List<PlayerRecord> doBulkLookup(final UUID... uuids) {
+        checkValues(uuids);
+        return call(service -> service.doBulkLookup(uuids), false);
+    }
+
+    @Override
+    public List<PlayerRecord> doBulkLookup(final String... playerNames) {
+        checkValues(playerNames);
+        return call(service -> service.doBulkLookup(playerNames), false);
+    }
+
+    @Override
+    public int getMaxBulkLookupSize() {
+        int size = primary.getMaxBulkLookupSize();
+        if (alternate == null) return size;
+
+        int other = alternate.getMaxBulkLookupSize();
+        if (size <= 0) return other;
+        return other <= 0 ? size : Math.min(size, other); // A failed over lookup must fit both
+    }
+
+    @Override
+    public int getBulkRequestCount(int players, boolean byUuid) {
+        return primary.getBulkRequestCount(players, byUuid);
+    }
+
+    @Override
+    public PlayerRecord getRandomSample() {
+        return call(ServiceProvider::getRandomSample, false);
+    }
+
+    @Override
+    public List<PlayerRecord> getRandomSample(final int amount) {
+        if (amount <= 0) throw new IllegalArgumentException();
+        return call(service -> service.getRandomSample(amount), false);
+    }
+
+    @Override
+    public String getServiceName() {
+        return primary.getServiceName();
+    }
+
+    private long hedgeDelay() {
+        double percentile = hedgePercentile;
+        if (alternate == null || percentile <= 0) return -1;
+
+        long estimate = latency.getPercentile(percentile);
+        return estimate < 0 ? -1 : Math.max(estimate, minimumHedgeDelay);
+    }
+
+    private <T> T call(Function<ServiceProvider, T> lookup, boolean hedged) {
+        long end = System.nanoTime() + deadline;
+        Call<T> call = new Call<>(lookup, hedged);
+        call.launch(primary, true);
+        try {
+            long delay = hedged ? hedgeDelay() : -1;
+            if (delay >= 0 && delay < end - System.nanoTime()) {
+                try {
+                    return call.result.get(delay, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    call.hedge();
+                }
+            }
+            return call.result.get(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            call.timeFirst(deadline); // The first attempt may never return, count it as the whole deadline
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void checkValues(Object[] values) {
+        if (values == null) throw new IllegalArgumentException();
+        for (Object value : values) if (value == null) throw new IllegalArgumentException();
+    }
+
+    /**
+     * A single call, answered by the first attempt which returns something
+     */
+    private final class Call<T> {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicBoolean hedged = new AtomicBoolean();
+        private final AtomicBoolean firstTimed = new AtomicBoolean();
+        private final Function<ServiceProvider, T> lookup;
+        private final boolean timed;
+
+        private Call(Function<ServiceProvider, T> lookup, boolean timed) {
+            this.lookup = lookup;
+            this.timed = timed;
+        }
+
+        private void launch(final ServiceProvider service, final boolean first) {
+            running.incrementAndGet();
+            final long start = System.nanoTime();
+            try {
+                ATTEMPTS.execute(() -> {
+                    T value = null;
+                    Throwable failure = null;
+                    try {
+                        value = lookup.apply(service);
+                    } catch (Throwable t) {
+                        failure = t;
+                    }
+
+                    if (first) timeFirst(System.nanoTime() - start);
+                    finish(value, failure, first);
+                });
+            } catch (RejectedExecutionException e) {
+                finish(null, null, first); // Too many attempts in flight, treat this one as unanswered
+            }
+        }
+
+        private void timeFirst(long elapsed) {
+            if (timed && firstTimed.compareAndSet(false, true)) latency.record(Math.min(elapsed, deadline));
+        }
+
+        private void finish(T value, Throwable failure, boolean first) {
+            if (value != null) {
+                result.complete(value);
+                return;
+            }
+
+            if (first) hedge(); // Fail over before giving up on this call
+            if (running.decrementAndGet() == 0) {
+                if (failure != null) result.completeExceptionally(failure);
+                else result.complete(null);
+            }
+        }
+
+        private void hedge() {
+            if (alternate == null || result.isDone() || !hedged.compareAndSet(false, true)) return;
+
+            hedges.incrementAndGet();
+            launch(alternate, false);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid;
+
+import com.turt2live.uuid.utils.NamePool;
+
+import java.util.UUID;
+
+/**
+ * Represents a player record which cannot change once created, and which
+ * stores as little as possible: the rarely read offline unique ID is kept as
+ * its two halves instead of as a {@link UUID} object, and names are shared with
+ * every other record through {@link NamePool#shared()}. The unique ID itself is
+ * kept as is, as caches read it on every hit. The records the services return
+ * are all of this type.
+ *
+ * @author turt2live
+ */
+public class ImmutablePlayerRecord implements PlayerRecord {
+
+    private final UUID uuid;
+    private final long offlineMost;
+    private final long offlineLeast;
+    private final String name;
+    private final long expirationTime;
+    private final long timeLeft;
+    private final boolean hasOffline;
+    private final boolean cached;
+
+    /**
+     * Creates a new record which never expires and has no offline unique ID
+     *
+     * @param uuid the uuid, cannot be null
+     * @param name the name, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public ImmutablePlayerRecord(UUID uuid, String name) {
+        this(uuid, name, null, true, -1, -1);
+    }
+
+    /**
+     * Creates a new record
+     *
+     * @param uuid           the uuid, cannot be null
+     * @param name           the name, cannot be null
+     * @param offlineUuid    the offline uuid, or null if there is none
+     * @param cached         true if this record was cached, false otherwise
+     * @param expirationTime the time this record expires on as a UNIX millisecond timestamp, or -1 if it does not expire
+     * @param timeLeft       the time until this record expires, in seconds, or -1 if it does not expire
+     *
+     * @throws java.lang.IllegalArgumentException thrown for a null uuid or name
+     */
+    public ImmutablePlayerRecord(UUID uuid, String name, UUID offlineUuid, boolean cached, long expirationTime, long timeLeft) {
+        if (uuid == null || name == null) throw new IllegalArgumentException();
+
+        this.uuid = uuid;
+        this.hasOffline = offlineUuid != null;
+        this.offlineMost = hasOffline ? offlineUuid.getMostSignificantBits() : 0;
+        this.offlineLeast = hasOffline ? offlineUuid.getLeastSignificantBits() : 0;
+        this.name = NamePool.shared().intern(name);
+        this.cached = cached;
+        this.expirationTime = expirationTime;
+        this.timeLeft = timeLeft;
+    }
+
+    @Override
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    @Override
+    public UUID getOfflineUuid() {
+        return hasOffline ? new UUID(offlineMost, offlineLeast) : null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isCached() {
+        return cached;
+    }
+
+    @Override
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    @Override
+    public long getTimeLeft() {
+        return timeLeft;
+    }
+}
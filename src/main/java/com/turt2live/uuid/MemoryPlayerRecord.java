@@ -26,10 +26,7 @@ import java.util.UUID;
  *
  * @author turt2live
  */
-public class MemoryPlayerRecord implements PlayerRecord {
-
-    private UUID uuid;
-    private String name;
+public class MemoryPlayerRecord extends ImmutablePlayerRecord {
 
     /**
      * Creates a new memory record
@@ -38,38 +35,6 @@ public class MemoryPlayerRecord implements PlayerRecord {
      * @param name the name, cannot be null
      */
     public MemoryPlayerRecord(UUID uuid, String name) {
-        if (uuid == null || name == null) throw new IllegalArgumentException();
-        this.uuid = uuid;
-        this.name = name;
-    }
-
-    @Override
-    public UUID getUuid() {
-        return uuid;
-    }
-
-    @Override
-    public UUID getOfflineUuid() {
-        return null;
-    }
-
-    @Override
-    public String getName() {
-        return name;
-    }
-
-    @Override
-    public boolean isCached() {
-        return true;
-    }
-
-    @Override
-    public long getExpirationTime() {
-        return -1;
-    }
-
-    @Override
-    public long getTimeLeft() {
-        return -1;
+        super(uuid, name);
     }
 }
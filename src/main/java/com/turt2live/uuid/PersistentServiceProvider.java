@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid;
+
+import com.turt2live.uuid.cache.DiskRecordStore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Represents a service provider that keeps its results on disk, so that they
+ * survive restarts. Lookups are answered from the disk where possible and
+ * otherwise forwarded to the underlying service, whose results are written to
+ * disk before they are returned. Records expire at the service's expiration
+ * time if it provides one, otherwise after the maximum cache time (default is
+ * 1 day).
+ * <p>
+ * This is meant to sit behind a {@link CachingServiceProvider}, which keeps the
+ * frequently used players in memory:
+ * <pre>
+ * new CachingServiceProvider(new PersistentServiceProvider(new ApiV2Service(), file));
+ * </pre>
+ * Problems reading or writing the file are treated as cache misses, so they
+ * never fail a lookup the service could answer. Players the service reports as
+ * not existing are not written to disk.
+ *
+ * @author turt2live
+ */
+public class PersistentServiceProvider extends AbstractAsyncServiceProvider implements Closeable {
+
+    private final ServiceProvider serviceProvider;
+    private final DiskRecordStore store;
+    private final long cacheTimeMax;
+
+    /**
+     * Creates a new persistent service provider which keeps records for up to
+     * a day, or until the service's expiration time
+     *
+     * @param other the other service provider to use, cannot be null
+     * @param file  the file to keep records in, cannot be null
+     *
+     * @throws IOException thrown if the file could not be opened
+     */
+    public PersistentServiceProvider(ServiceProvider other, File file) throws IOException {
+        this(other, file, 24 * 60 * 60); // 1 day
+    }
+
+    /**
+     * Creates a new persistent service provider
+     *
+     * @param other            the other service provider to use, cannot be null
+     * @param file             the file to keep records in, cannot be null
+     * @param maximumCacheTime the maximum cache time, in seconds, for records the service gives no
+     *                         expiration time for. Cannot be negative or zero.
+     *
+     * @throws IOException thrown if the file could not be opened
+     */
+    public PersistentServiceProvider(ServiceProvider other, File file, long maximumCacheTime) throws IOException {
+        if (other == null || file == null || maximumCacheTime <= 0) throw new IllegalArgumentException();
+
+        this.serviceProvider = other;
+        this.cacheTimeMax = maximumCacheTime * 1000;
+        this.store = new DiskRecordStore(file);
+    }
+
+    /**
+     * Gets the number of records kept on disk. This may include expired records.
+     *
+     * @return the number of records on disk
+     */
+    public int getStoredCount() {
+        return store.size();
+    }
+
+    private PlayerRecord stored(UUID uuid) {
+        try {
+            return store.get(uuid);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private PlayerRecord stored(String playerName) {
+        try {
+            return store.get(playerName);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private PlayerRecord store(PlayerRecord record) {
+        if (record == null || UnknownPlayerRecord.isUnknown(record)) return record;
+
+        long expires = record.getExpirationTime();
+        if (expires <= 0 && record.getTimeLeft() > 0) expires = System.currentTimeMillis() + record.getTimeLeft() * 1000;
+        if (expires <= 0) expires = System.currentTimeMillis() + cacheTimeMax;
+        try {
+            store.put(record, expires);
+        } catch (IOException | IllegalArgumentException e) {
+            // Still handed back, it only won't be remembered across restarts
+        }
+        return record;
+    }
+
+    @Override
+    public PlayerRecord doLookup(UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+
+        PlayerRecord record = stored(uuid);
+        return record != null ? record : store(serviceProvider.doLookup(uuid));
+    }
+
+    @Override
+    public PlayerRecord doLookup(String playerName) {
+        if (playerName == null) throw new IllegalArgumentException();
+
+        PlayerRecord record = stored(playerName);
+        return record != null ? record : store(serviceProvider.doLookup(playerName));
+    }
+
+    @Override
+    public String[] getNameHistory(UUID uuid) {
+        return serviceProvider.getNameHistory(uuid);
+    }
+
+    @Override
+    public List<PlayerRecord> doBulkLookup(UUID... uuids) {
+        if (uuids == null) throw new IllegalArgumentException();
+
+        List<PlayerRecord> records = new ArrayList<>();
+        List<UUID> misses = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            if (uuid == null) throw new IllegalArgumentException();
+            PlayerRecord record = stored(uuid);
+            if (record != null) records.add(record);
+            else misses.add(uuid);
+        }
+        if (misses.isEmpty()) return records;
+
+        List<PlayerRecord> fetched = serviceProvider.doBulkLookup(misses.toArray(new UUID[misses.size()]));
+        return merge(records, fetched);
+    }
+
+    @Override
+    public List<PlayerRecord> doBulkLookup(String... playerNames) {
+        if (playerNames == null) throw new IllegalArgumentException();
+
+        List<PlayerRecord> records = new ArrayList<>();
+        List<String> misses = new ArrayList<>();
+        for (String playerName : playerNames) {
+            if (playerName == null) throw new IllegalArgumentException();
+            PlayerRecord record = stored(playerName);
+            if (record != null) records.add(record);
+            else misses.add(playerName);
+        }
+        if (misses.isEmpty()) return records;
+
+        List<PlayerRecord> fetched = serviceProvider.doBulkLookup(misses.toArray(new String[misses.size()]));
+        return merge(records, fetched);
+    }
+
+    private List<PlayerRecord> merge(List<PlayerRecord> records, List<PlayerRecord> fetched) {
+        if (fetched == null) return records.isEmpty() ? null : records;
+
+        for (PlayerRecord record : fetched) {
+            if (record != null) records.add(store(record));
+        }
+        return records;
+    }
+
+    @Override
+    public int getMaxBulkLookupSize() {
+        return serviceProvider.getMaxBulkLookupSize();
+    }
+
+    @Override
+    public int getBulkRequestCount(int players, boolean byUuid) {
+        return serviceProvider.getBulkRequestCount(players, byUuid);
+    }
+
+    @Override
+    public PlayerRecord getRandomSample() {
+        return serviceProvider.getRandomSample();
+    }
+
+    @Override
+    public List<PlayerRecord> getRandomSample(int amount) {
+        return serviceProvider.getRandomSample(amount);
+    }
+
+    @Override
+    public String getServiceName() {
+        return serviceProvider.getServiceName();
+    }
+
+    /**
+     * Writes all records to disk and closes the file. Lookups made after this
+     * go straight to the service.
+     *
+     * @throws IOException thrown if the file could not be closed cleanly
+     */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+}
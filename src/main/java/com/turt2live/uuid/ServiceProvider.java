@@ -32,7 +32,8 @@ public interface ServiceProvider {
      *
      * @param uuid the UUID to lookup, cannot be null
      *
-     * @return the player record returned, or null if there is a connection problem
+     * @return the player record returned, or null if there is a connection problem. If the
+     * service reports that the player does not exist, an {@link UnknownPlayerRecord} is returned.
      *
      * @throws java.lang.IllegalArgumentException thrown for null arguments
      */
@@ -43,7 +44,8 @@ public interface ServiceProvider {
      *
      * @param playerName the player name to lookup, cannot be null
      *
-     * @return the player record returned, or null if there is a connection problem
+     * @return the player record returned, or null if there is a connection problem. If the
+     * service reports that the player does not exist, an {@link UnknownPlayerRecord} is returned.
      *
      * @throws java.lang.IllegalArgumentException thrown for null arguments
      */
@@ -86,6 +88,33 @@ public interface ServiceProvider {
      */
     public List<PlayerRecord> doBulkLookup(String... playerNames);
 
+    /**
+     * Gets the maximum number of elements this service accepts in a single bulk
+     * lookup. Larger lookups may throw an exception or be rejected by the service.
+     * By default there is no limit.
+     *
+     * @return the maximum bulk lookup size, or -1 if there is no limit
+     */
+    public default int getMaxBulkLookupSize() {
+        return -1;
+    }
+
+    /**
+     * Estimates the number of requests this service makes for a bulk lookup, so
+     * that the cheapest service can be picked for it. By default this assumes one
+     * request per {@link #getMaxBulkLookupSize()} players.
+     *
+     * @param players the number of players being looked up, cannot be negative
+     * @param byUuid  true for a lookup of unique IDs, false for a lookup of names
+     *
+     * @return the estimated number of requests
+     */
+    public default int getBulkRequestCount(int players, boolean byUuid) {
+        int size = getMaxBulkLookupSize();
+        if (players <= 0) return 0;
+        return size <= 0 ? 1 : (players + size - 1) / size;
+    }
+
     /**
      * Gets a single, possibly expired, player record from the service
      *
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid;
+
+import java.util.UUID;
+
+/**
+ * Represents a player which the service reported as not existing. Only the
+ * value which was looked up is known, the other is null. All other values are
+ * their documented defaults.
+ * <p>
+ * This allows callers to tell a player which does not exist apart from a
+ * connection problem, for which lookups return null.
+ *
+ * @author turt2live
+ */
+public class UnknownPlayerRecord implements PlayerRecord {
+
+    private UUID uuid;
+    private String name;
+
+    /**
+     * Creates a new record for a unique ID which does not belong to any player
+     *
+     * @param uuid the uuid looked up, cannot be null
+     */
+    public UnknownPlayerRecord(UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        this.uuid = uuid;
+    }
+
+    /**
+     * Creates a new record for a player name which does not belong to any player
+     *
+     * @param name the name looked up, cannot be null
+     */
+    public UnknownPlayerRecord(String name) {
+        if (name == null) throw new IllegalArgumentException();
+        this.name = name;
+    }
+
+    /**
+     * Determines if a record describes a player which does not exist, that is, if
+     * either its unique ID or name is unknown
+     *
+     * @param record the record to check, may be null
+     *
+     * @return true if the record is non-null and describes an unknown player, false otherwise
+     */
+    public static boolean isUnknown(PlayerRecord record) {
+        return record != null && (record.getUuid() == null || record.getName() == null);
+    }
+
+    @Override
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    @Override
+    public UUID getOfflineUuid() {
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isCached() {
+        return false;
+    }
+
+    @Override
+    public long getExpirationTime() {
+        return -1;
+    }
+
+    @Override
+    public long getTimeLeft() {
+        return -1;
+    }
+}
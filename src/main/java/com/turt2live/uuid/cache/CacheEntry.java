@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.PlayerRecord;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Represents a single entry in a {@link RecordCache}. The same entry instance
+ * is shared by both indexes so that removals can be made conditional on the
+ * entry still being current. Only the refresh flag and the entry's place in the
+ * cache's {@link TimerWheel} change after creation.
+ *
+ * @author turt2live
+ */
+class CacheEntry {
+
+    private static final AtomicIntegerFieldUpdater<CacheEntry> REFRESHING =
+            AtomicIntegerFieldUpdater.newUpdater(CacheEntry.class, "refreshing");
+
+    private final PlayerRecord record;
+    private final String nameKey;
+    private final long expires;
+    private final long refreshAt;
+    private volatile int refreshing;
+
+    // Guarded by the owning cache's wheel lock, null while not scheduled
+    CacheEntry previousInWheel;
+    CacheEntry nextInWheel;
+
+    CacheEntry(PlayerRecord record, String nameKey, long expires) {
+        this(record, nameKey, expires, Long.MAX_VALUE);
+    }
+
+    CacheEntry(PlayerRecord record, String nameKey, long expires, long refreshAt) {
+        this.record = record;
+        this.nameKey = nameKey;
+        this.expires = expires;
+        this.refreshAt = refreshAt;
+    }
+
+    public PlayerRecord getRecord() {
+        return record;
+    }
+
+    public String getNameKey() {
+        return nameKey;
+    }
+
+    public long getExpires() {
+        return expires;
+    }
+
+    public boolean isExpired(long now) {
+        return expires <= now;
+    }
+
+    public boolean isRefreshDue(long now) {
+        return refreshAt <= now && refreshing == 0;
+    }
+
+    public boolean claimRefresh() {
+        return REFRESHING.compareAndSet(this, 0, 1);
+    }
+
+    public void releaseRefresh() {
+        refreshing = 0;
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.utils.OfflineUuids;
+
+import java.util.UUID;
+
+/**
+ * Represents a view of a single entry of a {@link CompactRecordCache}. Views
+ * are created on each read and copy the entry's values, so they stay valid after
+ * the entry changes. The offline unique ID is derived from the name on first use.
+ *
+ * @author turt2live
+ */
+class CompactPlayerRecord implements PlayerRecord {
+
+    private final UUID uuid;
+    private final String name;
+    private final boolean offline;
+    private final boolean cached;
+    private final long expirationTime;
+    private final long timeLeft;
+
+    final long expires;
+    final long refreshAt;
+
+    private UUID offlineUuid; // Computed at most a few times if raced, which is harmless
+
+    CompactPlayerRecord(UUID uuid, String name, int flags, long expirationTime, long timeLeft, long expires, long refreshAt) {
+        this.uuid = uuid;
+        this.name = name;
+        this.offline = (flags & CompactRecordCache.FLAG_OFFLINE) != 0;
+        this.cached = (flags & CompactRecordCache.FLAG_CACHED) != 0;
+        this.expirationTime = expirationTime;
+        this.timeLeft = timeLeft;
+        this.expires = expires;
+        this.refreshAt = refreshAt;
+    }
+
+    @Override
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    @Override
+    public UUID getOfflineUuid() {
+        if (!offline) return null;
+
+        UUID result = offlineUuid;
+        if (result == null) offlineUuid = result = OfflineUuids.of(name);
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isCached() {
+        return cached;
+    }
+
+    @Override
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    @Override
+    public long getTimeLeft() {
+        return timeLeft;
+    }
+}
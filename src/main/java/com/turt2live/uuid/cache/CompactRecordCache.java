@@ -0,0 +1,499 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.utils.OfflineUuids;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Represents a memory-optimized, unbounded, {@link RecordStore}. Instead of
+ * holding on to the stored records, their values are packed into two parallel
+ * arrays: one of longs (the two halves of the unique ID, expirations and flags)
+ * and one of player names. Two open-addressing tables of ints index the entries
+ * by unique ID and by name. Records returned are views created on each read.
+ * <p>
+ * With 500,000 players this measured about 135 bytes per player including the
+ * name, against about 310 for a {@link RecordCache}, which keeps each record,
+ * unique ID, entry and map node alive. See {@code RecordStoreFootprint} in the
+ * tests. Eviction policies are not supported, so this store is unbounded.
+ * <p>
+ * Reads are optimistic and only take a read lock if they raced with a write,
+ * while writes take a single write lock. The offline unique ID of a record is
+ * only kept if it is the one derived from the player's name, as Mojang's is.
+ * <p>
+ * Expired records are found by {@link #expire(long, int)} by walking the packed
+ * entries from where the previous call stopped, looking at a bounded number of
+ * entries per call.
+ *
+ * @author turt2live
+ */
+public class CompactRecordCache implements RecordStore {
+
+    static final int FLAG_OFFLINE = 1;
+    static final int FLAG_CACHED = 2;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int SCANS_PER_REMOVAL = 16; // Entries looked at per record expire() may remove
+
+    // Layout of an entry in the long array
+    private static final int STRIDE = 6;
+    private static final int MSB = 0;
+    private static final int LSB = 1;
+    private static final int EXPIRES = 2;
+    private static final int REFRESH_AT = 3;
+    private static final int EXPIRATION_TIME = 4;
+    private static final int TIME_LEFT_AND_FLAGS = 5; // Time left is shifted over the low 8 bits of flags
+
+    private final StampedLock lock = new StampedLock();
+    private final int initialCapacity;
+
+    // Entries are packed into [0, count). The indexes hold an entry plus one, or 0 for an empty slot
+    private long[] data;
+    private String[] names;
+    private int count;
+    private int[] uuidIndex;
+    private int[] nameIndex;
+    private int expiryCursor;
+    private long expiredCount;
+    private volatile ExpirySweeper sweeper;
+
+    private volatile RefreshListener refreshListener;
+    private volatile long refreshWindow;
+    private volatile long refreshJitter;
+
+    /**
+     * Creates a new, empty, compact record cache
+     */
+    public CompactRecordCache() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a new, empty, compact record cache with room for the supplied
+     * number of records before it has to grow
+     *
+     * @param expectedSize the expected number of records. Must be positive and non-zero
+     */
+    public CompactRecordCache(int expectedSize) {
+        if (expectedSize <= 0) throw new IllegalArgumentException();
+
+        this.initialCapacity = Math.max(INITIAL_CAPACITY, expectedSize);
+        reset();
+    }
+
+    @Override
+    public PlayerRecord get(UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+
+        long stamp = lock.tryOptimisticRead();
+        CompactPlayerRecord record = read(findUuid(uuidIndex, data, msb, lsb), uuid);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                record = read(findUuid(uuidIndex, data, msb, lsb), uuid);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return check(record);
+    }
+
+    @Override
+    public PlayerRecord get(String name) {
+        if (name == null) throw new IllegalArgumentException();
+
+        long stamp = lock.tryOptimisticRead();
+        CompactPlayerRecord record = read(findName(nameIndex, names, name), null);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                record = read(findName(nameIndex, names, name), null);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return check(record);
+    }
+
+    @Override
+    public void put(PlayerRecord record, long expires) {
+        if (record == null || record.getUuid() == null || record.getName() == null)
+            throw new IllegalArgumentException();
+
+        long msb = record.getUuid().getMostSignificantBits();
+        long lsb = record.getUuid().getLeastSignificantBits();
+        String name = record.getName();
+        UUID offline = record.getOfflineUuid();
+        int flags = (record.isCached() ? FLAG_CACHED : 0)
+                | (offline != null && offline.equals(OfflineUuids.of(name)) ? FLAG_OFFLINE : 0);
+        long refreshAt = refreshListener == null ? Long.MAX_VALUE : RecordCache.refreshAt(expires, refreshWindow, refreshJitter);
+
+        long stamp = lock.writeLock();
+        try {
+            // A name belongs to one player at a time, so whoever had it before is out of date
+            int owner = findName(nameIndex, names, name);
+            if (owner >= 0 && (data[owner * STRIDE + MSB] != msb || data[owner * STRIDE + LSB] != lsb)) removeAt(owner);
+
+            int entry = findUuid(uuidIndex, data, msb, lsb);
+            if (entry < 0) {
+                if (count == names.length) grow();
+                entry = count++;
+                data[entry * STRIDE + MSB] = msb;
+                data[entry * STRIDE + LSB] = lsb;
+                names[entry] = name;
+                link(uuidIndex, entry, uuidHash(msb, lsb));
+                link(nameIndex, entry, nameHash(name));
+                if (count * 2 > uuidIndex.length) rehash(uuidIndex.length * 2);
+            } else if (!NameIndex.equalsIgnoreCase(names[entry], name)) {
+                unlink(nameIndex, true, entry);
+                names[entry] = name;
+                link(nameIndex, entry, nameHash(name));
+            } else names[entry] = name;
+
+            int base = entry * STRIDE;
+            data[base + EXPIRES] = expires;
+            data[base + REFRESH_AT] = refreshAt;
+            data[base + EXPIRATION_TIME] = record.getExpirationTime();
+            data[base + TIME_LEFT_AND_FLAGS] = (record.getTimeLeft() << 8) | flags;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+
+        long stamp = lock.writeLock();
+        try {
+            int entry = findUuid(uuidIndex, data, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (entry < 0) return false;
+
+            removeAt(entry);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            reset();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int getMaximumSize() {
+        return -1;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return 0;
+    }
+
+    @Override
+    public List<PlayerRecord> sample(int amount, Random random) {
+        if (amount < 0 || random == null) throw new IllegalArgumentException();
+
+        long now = System.currentTimeMillis();
+        long stamp = lock.readLock();
+        try {
+            // Reservoir sampling over the packed entries
+            List<PlayerRecord> sample = new ArrayList<>(Math.min(amount, count));
+            int seen = 0;
+            for (int entry = 0; entry < count; entry++) {
+                if (data[entry * STRIDE + EXPIRES] <= now) continue;
+
+                seen++;
+                if (sample.size() < amount) sample.add(read(entry, null));
+                else {
+                    int slot = random.nextInt(seen);
+                    if (slot < amount) sample.set(slot, read(entry, null));
+                }
+            }
+            return sample;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void setRefreshAhead(long window, long jitter, RefreshListener listener) {
+        if (window < 0 || jitter < 0) throw new IllegalArgumentException();
+
+        this.refreshWindow = window;
+        this.refreshJitter = jitter;
+        this.refreshListener = listener;
+    }
+
+    @Override
+    public int expire(long now, int maximum) {
+        if (maximum <= 0) throw new IllegalArgumentException();
+
+        long stamp = lock.writeLock();
+        try {
+            int removed = 0;
+            long budget = (long) maximum * SCANS_PER_REMOVAL;
+            for (long scanned = 0; scanned < budget && removed < maximum && count > 0; scanned++) {
+                if (expiryCursor >= count) expiryCursor = 0;
+
+                // Removal moves the last entry into the cursor's place, so look at the same place again
+                if (data[expiryCursor * STRIDE + EXPIRES] <= now) {
+                    removeAt(expiryCursor);
+                    removed++;
+                } else expiryCursor++;
+            }
+            expiredCount += removed;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long getExpiredCount() {
+        long stamp = lock.readLock();
+        try {
+            return expiredCount;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void setExpirySweeper(ExpirySweeper sweeper) {
+        this.sweeper = sweeper;
+    }
+
+    private long now() {
+        ExpirySweeper current = sweeper;
+        return current == null ? System.currentTimeMillis() : current.currentTime();
+    }
+
+    private CompactPlayerRecord check(CompactPlayerRecord record) {
+        if (record == null) return null;
+
+        long now = now();
+        if (record.expires <= now) {
+            long stamp = lock.writeLock();
+            try {
+                int entry = findCurrent(record, record.expires);
+                if (entry >= 0) removeAt(entry);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            return null;
+        }
+        if (record.refreshAt <= now) requestRefresh(record);
+        return record;
+    }
+
+    private void requestRefresh(CompactPlayerRecord record) {
+        RefreshListener listener = refreshListener;
+        if (listener == null || !swapRefreshAt(record, record.refreshAt, Long.MAX_VALUE)) return;
+
+        boolean started = false;
+        try {
+            started = listener.onRefreshDue(record);
+        } finally {
+            if (!started) swapRefreshAt(record, Long.MAX_VALUE, record.refreshAt);
+        }
+    }
+
+    private boolean swapRefreshAt(CompactPlayerRecord record, long expected, long refreshAt) {
+        long stamp = lock.writeLock();
+        try {
+            int entry = findCurrent(record, record.expires);
+            if (entry < 0 || data[entry * STRIDE + REFRESH_AT] != expected) return false;
+
+            data[entry * STRIDE + REFRESH_AT] = refreshAt;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Finds the entry a view was read from, if it has not been replaced since. Must hold the lock
+    private int findCurrent(CompactPlayerRecord record, long expires) {
+        UUID uuid = record.getUuid();
+        int entry = findUuid(uuidIndex, data, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        return entry >= 0 && data[entry * STRIDE + EXPIRES] == expires ? entry : -1;
+    }
+
+    // May run without the lock, so anything out of bounds is treated as a miss to be retried
+    private CompactPlayerRecord read(int entry, UUID uuid) {
+        if (entry < 0) return null;
+
+        long[] data = this.data;
+        String[] names = this.names;
+        int base = entry * STRIDE;
+        if (base + STRIDE > data.length || entry >= names.length || names[entry] == null) return null;
+
+        if (uuid == null) uuid = new UUID(data[base + MSB], data[base + LSB]);
+        long packed = data[base + TIME_LEFT_AND_FLAGS];
+        return new CompactPlayerRecord(uuid, names[entry], (int) (packed & 0xFF), data[base + EXPIRATION_TIME],
+                packed >> 8, data[base + EXPIRES], data[base + REFRESH_AT]);
+    }
+
+    private static int findUuid(int[] index, long[] data, long msb, long lsb) {
+        int mask = index.length - 1;
+        int slot = uuidHash(msb, lsb) & mask;
+        for (int probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask) {
+            int ref = index[slot];
+            if (ref == 0) return -1;
+
+            int base = (ref - 1) * STRIDE;
+            if (base + STRIDE > data.length) return -1;
+            if (data[base + MSB] == msb && data[base + LSB] == lsb) return ref - 1;
+        }
+        return -1;
+    }
+
+    private static int findName(int[] index, String[] names, String name) {
+        int mask = index.length - 1;
+        int slot = nameHash(name) & mask;
+        for (int probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask) {
+            int ref = index[slot];
+            if (ref == 0) return -1;
+            if (ref > names.length) return -1;
+
+            String candidate = names[ref - 1];
+            if (candidate != null && NameIndex.equalsIgnoreCase(candidate, name)) return ref - 1;
+        }
+        return -1;
+    }
+
+    private void removeAt(int entry) {
+        unlink(uuidIndex, false, entry);
+        unlink(nameIndex, true, entry);
+
+        // Fill the hole with the last entry to keep the entries packed
+        int last = --count;
+        if (entry != last) {
+            repoint(uuidIndex, last, entry, hashOf(false, last));
+            repoint(nameIndex, last, entry, hashOf(true, last));
+            System.arraycopy(data, last * STRIDE, data, entry * STRIDE, STRIDE);
+            names[entry] = names[last];
+        }
+        names[last] = null;
+    }
+
+    private static void link(int[] index, int entry, int hash) {
+        int mask = index.length - 1;
+        int slot = hash & mask;
+        while (index[slot] != 0) slot = (slot + 1) & mask;
+        index[slot] = entry + 1;
+    }
+
+    private void unlink(int[] index, boolean byName, int entry) {
+        int slot = slotOf(index, entry, hashOf(byName, entry));
+        if (slot < 0) return;
+
+        // Backward shift deletion, so that probes never need tombstones
+        int mask = index.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; index[i] != 0; i = (i + 1) & mask) {
+            int ref = index[i];
+            int home = hashOf(byName, ref - 1) & mask;
+            boolean reachable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (reachable) {
+                index[hole] = ref;
+                hole = i;
+            }
+        }
+        index[hole] = 0;
+    }
+
+    private static void repoint(int[] index, int from, int to, int hash) {
+        int slot = slotOf(index, from, hash);
+        if (slot >= 0) index[slot] = to + 1;
+    }
+
+    private static int slotOf(int[] index, int entry, int hash) {
+        int mask = index.length - 1;
+        int slot = hash & mask;
+        for (int probes = 0; probes <= mask && index[slot] != 0; probes++, slot = (slot + 1) & mask) {
+            if (index[slot] == entry + 1) return slot;
+        }
+        return -1;
+    }
+
+    private void grow() {
+        int capacity = names.length + (names.length >> 1);
+        data = Arrays.copyOf(data, capacity * STRIDE);
+        names = Arrays.copyOf(names, capacity);
+    }
+
+    private void rehash(int size) {
+        int[] uuids = new int[size];
+        int[] byName = new int[size];
+        for (int entry = 0; entry < count; entry++) {
+            link(uuids, entry, hashOf(false, entry));
+            link(byName, entry, hashOf(true, entry));
+        }
+        uuidIndex = uuids;
+        nameIndex = byName;
+    }
+
+    private void reset() {
+        int tableSize = Integer.highestOneBit(initialCapacity - 1) << 2; // At most half full
+        data = new long[initialCapacity * STRIDE];
+        names = new String[initialCapacity];
+        uuidIndex = new int[tableSize];
+        nameIndex = new int[tableSize];
+        count = 0;
+    }
+
+    private int hashOf(boolean byName, int entry) {
+        if (byName) return nameHash(names[entry]);
+        return uuidHash(data[entry * STRIDE + MSB], data[entry * STRIDE + LSB]);
+    }
+
+    private static int uuidHash(long msb, long lsb) {
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32);
+    }
+
+    private static int nameHash(String name) {
+        return NameIndex.hash(name);
+    }
+}
@@ -0,0 +1,463 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.utils.OfflineUuids;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Represents a store of player records kept in an append-only log file on disk,
+ * so that they survive restarts. Only the location of each record is kept in
+ * memory; a read is a single positional read of the record, which is normally
+ * served from the operating system's page cache.
+ * <p>
+ * Every record in the log carries a checksum. When the file is opened it is
+ * replayed from the start, and anything after the first incomplete or damaged
+ * record (such as a write cut short by a crash) is cut off. Records are
+ * expired using the expiration stored with them, also across restarts. Once
+ * more than half of the file is taken up by replaced, removed or expired
+ * records, the live records are copied to a new file which atomically replaces
+ * the old one.
+ * <p>
+ * Writes are not forced to the disk until {@link #close()}, so the most recent
+ * writes may be lost to a power failure, but the file is never left unreadable.
+ * The file is locked while open, so it cannot be shared between processes.
+ *
+ * @author turt2live
+ */
+public class DiskRecordStore implements Closeable {
+
+    private static final long MAGIC = 0x5555494452454331L; // "UUIDREC1"
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_NAME_LENGTH = 256;
+    private static final long MIN_COMPACT_SIZE = 1024 * 1024;
+
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_REMOVE = 2;
+
+    // Length prefix, type, unique ID, then (for puts) three longs and the name length
+    private static final int REMOVE_SIZE = 4 + 1 + 16 + 4;
+    private static final int PUT_SIZE = 4 + 1 + 16 + 24 + 2 + 4; // Plus the name
+
+    /**
+     * Represents where a live record is in the log
+     */
+    private static class Slot {
+        final long offset;
+        final int length;
+        final long expires;
+        final String nameKey;
+
+        Slot(long offset, int length, long expires, String nameKey) {
+            this.offset = offset;
+            this.length = length;
+            this.expires = expires;
+            this.nameKey = nameKey;
+        }
+    }
+
+    private final File file;
+    private final ConcurrentMap<UUID, Slot> byUuid = new ConcurrentHashMap<>();
+    private final NameIndex<UUID> byName = new NameIndex<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock(); // Writers append, readers read positionally
+
+    private FileChannel channel;
+    private FileLock fileLock;
+    private long end;
+    private long garbage; // Bytes taken by records which are no longer live
+
+    /**
+     * Opens, or creates, a record log. Records which are damaged or were only
+     * partially written are cut off the end of the file.
+     *
+     * @param file the file to keep records in, cannot be null
+     *
+     * @throws IOException thrown if the file cannot be opened, is locked by another process or is not a record log
+     */
+    public DiskRecordStore(File file) throws IOException {
+        if (file == null) throw new IllegalArgumentException();
+
+        this.file = file;
+        Files.deleteIfExists(compactionFile().toPath()); // Left behind by an interrupted compaction
+        open();
+    }
+
+    /**
+     * Gets a record by unique ID
+     *
+     * @param uuid the unique ID to look for, cannot be null
+     *
+     * @return the stored record, or null if not stored or expired
+     *
+     * @throws IOException thrown if the record could not be read
+     */
+    public PlayerRecord get(UUID uuid) throws IOException {
+        if (uuid == null) throw new IllegalArgumentException();
+
+        return read(uuid, byUuid.get(uuid));
+    }
+
+    /**
+     * Gets a record by player name, ignoring case
+     *
+     * @param name the player name to look for, cannot be null
+     *
+     * @return the stored record, or null if not stored or expired
+     *
+     * @throws IOException thrown if the record could not be read
+     */
+    public PlayerRecord get(String name) throws IOException {
+        if (name == null) throw new IllegalArgumentException();
+
+        UUID uuid = byName.get(name);
+        return uuid == null ? null : read(uuid, byUuid.get(uuid));
+    }
+
+    /**
+     * Appends a record to the log, replacing any record with the same unique ID
+     * or player name
+     *
+     * @param record  the record to store, cannot be null and must have a unique ID and name
+     * @param expires the UNIX timestamp, in milliseconds, the record expires on
+     *
+     * @throws IOException thrown if the record could not be written
+     */
+    public void put(PlayerRecord record, long expires) throws IOException {
+        if (record == null || record.getUuid() == null || record.getName() == null)
+            throw new IllegalArgumentException();
+
+        byte[] name = record.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_LENGTH) throw new IllegalArgumentException("Name too long");
+
+        UUID offline = record.getOfflineUuid();
+        int flags = (record.isCached() ? CompactRecordCache.FLAG_CACHED : 0)
+                | (offline != null && offline.equals(OfflineUuids.of(record.getName())) ? CompactRecordCache.FLAG_OFFLINE : 0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(PUT_SIZE + name.length);
+        buffer.putInt(buffer.capacity() - 4);
+        buffer.put(TYPE_PUT);
+        buffer.putLong(record.getUuid().getMostSignificantBits());
+        buffer.putLong(record.getUuid().getLeastSignificantBits());
+        buffer.putLong(expires);
+        buffer.putLong(record.getExpirationTime());
+        buffer.putLong((record.getTimeLeft() << 8) | flags);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+
+        lock.writeLock().lock();
+        try {
+            long offset = append(buffer);
+            String nameKey = record.getName();
+            apply(record.getUuid(), new Slot(offset, buffer.capacity(), expires, nameKey));
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the record for the supplied unique ID
+     *
+     * @param uuid the unique ID to remove, cannot be null
+     *
+     * @return true if a record was removed, false otherwise
+     *
+     * @throws IOException thrown if the removal could not be written
+     */
+    public boolean remove(UUID uuid) throws IOException {
+        if (uuid == null) throw new IllegalArgumentException();
+
+        lock.writeLock().lock();
+        try {
+            if (!byUuid.containsKey(uuid)) return false;
+
+            ByteBuffer buffer = ByteBuffer.allocate(REMOVE_SIZE);
+            buffer.putInt(REMOVE_SIZE - 4);
+            buffer.put(TYPE_REMOVE);
+            buffer.putLong(uuid.getMostSignificantBits());
+            buffer.putLong(uuid.getLeastSignificantBits());
+            append(buffer);
+            garbage += REMOVE_SIZE;
+            apply(uuid, null);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of records stored. This may include expired records.
+     *
+     * @return the number of records stored
+     */
+    public int size() {
+        return byUuid.size();
+    }
+
+    /**
+     * Gets the size of the log file, including records which are no longer live
+     *
+     * @return the file size, in bytes
+     */
+    public long getFileSize() {
+        lock.readLock().lock();
+        try {
+            return end;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log with only the live, unexpired, records
+     *
+     * @throws IOException thrown if the log could not be rewritten. The current log is kept in that case.
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            rewrite();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces all writes to the disk and closes the file
+     *
+     * @throws IOException thrown if the file could not be closed cleanly
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!channel.isOpen()) return;
+            channel.force(true);
+            fileLock.release();
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private PlayerRecord read(UUID uuid, Slot slot) throws IOException {
+        if (slot == null) return null;
+        if (slot.expires <= System.currentTimeMillis()) {
+            byUuid.remove(uuid, slot);
+            byName.remove(slot.nameKey, uuid);
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(slot.length);
+        lock.readLock().lock();
+        try {
+            if (byUuid.get(uuid) != slot) return null; // Compacted or replaced since
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, slot.offset + buffer.position()) < 0) throw new EOFException();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        buffer.flip();
+        buffer.getInt();
+        if (!checksumMatches(buffer)) throw new IOException("Damaged record at " + slot.offset);
+        buffer.position(4);
+        return decode(buffer, uuid);
+    }
+
+    private static PlayerRecord decode(ByteBuffer buffer, UUID uuid) {
+        buffer.get(); // Type
+        long msb = buffer.getLong();
+        long lsb = buffer.getLong();
+        long expires = buffer.getLong();
+        long expirationTime = buffer.getLong();
+        long packed = buffer.getLong();
+        byte[] name = new byte[buffer.getShort()];
+        buffer.get(name);
+
+        if (uuid == null) uuid = new UUID(msb, lsb);
+        return new CompactPlayerRecord(uuid, new String(name, StandardCharsets.UTF_8), (int) (packed & 0xFF),
+                expirationTime, packed >> 8, expires, Long.MAX_VALUE);
+    }
+
+    // Checks the checksum at the end of the buffer against everything from its position
+    private static boolean checksumMatches(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        int start = buffer.position();
+        crc.update(buffer.array(), start, buffer.limit() - start - 4);
+        return (int) crc.getValue() == buffer.getInt(buffer.limit() - 4);
+    }
+
+    // Must hold the write lock. The buffer must be filled up to its last four bytes
+    private long append(ByteBuffer buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 4, buffer.capacity() - 8);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        long offset = end;
+        while (buffer.hasRemaining()) channel.write(buffer, offset + buffer.position());
+        end += buffer.capacity();
+        return offset;
+    }
+
+    // Points the indexes at a new slot for the unique ID, or removes it for a null slot
+    private void apply(UUID uuid, Slot slot) {
+        Slot previous = slot == null ? byUuid.remove(uuid) : byUuid.put(uuid, slot);
+        if (previous != null) {
+            garbage += previous.length;
+            byName.remove(previous.nameKey, uuid);
+        }
+        if (slot == null) return;
+
+        // A name belongs to one player at a time, so whoever had it before is out of date
+        UUID owner = byName.put(slot.nameKey, uuid);
+        if (owner != null && !owner.equals(uuid)) {
+            Slot stale = byUuid.remove(owner);
+            if (stale != null) garbage += stale.length;
+        }
+    }
+
+    private void compactIfNeeded() throws IOException {
+        if (end >= MIN_COMPACT_SIZE && garbage > end / 2) rewrite();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            fileLock = channel.tryLock();
+            if (fileLock == null) throw new IOException(file + " is in use by another process");
+            recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void recover() throws IOException {
+        byUuid.clear();
+        byName.clear();
+        garbage = 0;
+
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            // New, or the header itself was cut short
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(MAGIC);
+            header.flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            end = HEADER_SIZE;
+            return;
+        }
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+        if (in.readLong() != MAGIC) throw new IOException(file + " is not a record log");
+
+        long now = System.currentTimeMillis();
+        long offset = HEADER_SIZE;
+        byte[] body = new byte[PUT_SIZE + MAX_NAME_LENGTH];
+        while (offset + 4 <= size) {
+            int length = in.readInt();
+            if (length < REMOVE_SIZE - 4 || length > body.length - 4 || offset + 4 + length > size) break;
+
+            in.readFully(body, 4, length);
+            ByteBuffer buffer = ByteBuffer.wrap(body, 0, length + 4);
+            buffer.position(4);
+            if (!checksumMatches(buffer)) break;
+
+            byte type = buffer.get(4);
+            UUID uuid = new UUID(buffer.getLong(5), buffer.getLong(13));
+            if (type == TYPE_PUT && length + 4 >= PUT_SIZE) {
+                long expires = buffer.getLong(21);
+                byte[] name = new byte[buffer.getShort(45)];
+                if (PUT_SIZE + name.length != length + 4) break;
+                System.arraycopy(body, 47, name, 0, name.length);
+                String nameKey = new String(name, StandardCharsets.UTF_8);
+
+                if (expires > now) apply(uuid, new Slot(offset, length + 4, expires, nameKey));
+                else {
+                    apply(uuid, null);
+                    garbage += length + 4;
+                }
+            } else if (type == TYPE_REMOVE && length + 4 == REMOVE_SIZE) {
+                apply(uuid, null);
+                garbage += REMOVE_SIZE;
+            } else break;
+
+            offset += 4 + length;
+        }
+
+        // Anything after the last good record was cut short or damaged
+        if (offset < size) channel.truncate(offset);
+        end = offset;
+    }
+
+    private void rewrite() throws IOException {
+        File target = compactionFile();
+        long now = System.currentTimeMillis();
+        try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(MAGIC);
+            header.flip();
+            out.write(header);
+
+            for (Map.Entry<UUID, Slot> entry : byUuid.entrySet()) {
+                Slot slot = entry.getValue();
+                if (slot.expires <= now) continue;
+
+                ByteBuffer buffer = ByteBuffer.allocate(slot.length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, slot.offset + buffer.position()) < 0) throw new EOFException();
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) out.write(buffer);
+            }
+            out.force(true);
+        }
+
+        fileLock.release();
+        channel.close();
+        try {
+            Files.move(target.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            open(); // The old log if the move failed
+        }
+    }
+
+    private File compactionFile() {
+        return new File(file.getPath() + ".compact");
+    }
+}
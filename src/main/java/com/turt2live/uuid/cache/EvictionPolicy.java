@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import java.util.UUID;
+
+/**
+ * Represents a policy which decides which players are kept in a bounded
+ * {@link RecordCache}. Players are tracked by unique ID only; lookups by name
+ * are reported against the unique ID of the record found, so both indexes are
+ * subject to the same policy.
+ * <p>
+ * The cache only calls a policy while holding its eviction lock, so
+ * implementations do not need to be thread safe. Implementations must accept
+ * unique IDs they are not tracking (these are ignored), as accesses are
+ * recorded lazily and may arrive after a player has been removed.
+ *
+ * @author turt2live
+ */
+public interface EvictionPolicy {
+
+    /**
+     * Gets the maximum number of players this policy keeps
+     *
+     * @return the maximum size, always positive
+     */
+    public int getMaximumSize();
+
+    /**
+     * Records that a player was read from the cache
+     *
+     * @param uuid the unique ID read, never null
+     */
+    public void onAccess(UUID uuid);
+
+    /**
+     * Records that a player was added to, or replaced in, the cache. Replacing a
+     * player which is already tracked is treated as an access.
+     *
+     * @param uuid the unique ID added, never null
+     *
+     * @return the unique ID of a player to evict (which may be the one just added),
+     * or null if nothing needs to be evicted
+     */
+    public UUID onInsert(UUID uuid);
+
+    /**
+     * Records that a player was removed from the cache for reasons other than
+     * eviction, such as expiry.
+     *
+     * @param uuid the unique ID removed, never null
+     */
+    public void onRemove(UUID uuid);
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a background thread which periodically removes expired records
+ * from record stores. Each tick removes at most a fixed number of records from
+ * each store, so a burst of expirations is spread over several ticks rather
+ * than stalling the stores.
+ * <p>
+ * The sweeper also acts as a coarse clock for the stores it sweeps: the time
+ * is read once per tick, and reads check for expiry against that time instead
+ * of reading the system clock themselves.
+ * <p>
+ * Stores are only weakly referenced, so a store which is no longer used does
+ * not need to be removed from the sweeper.
+ *
+ * @author turt2live
+ */
+public class ExpirySweeper implements Closeable {
+
+    private final List<WeakReference<RecordStore>> stores = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor;
+    private final int maximumPerTick;
+    private final AtomicLong removedCount = new AtomicLong();
+    private final AtomicLong tickCount = new AtomicLong();
+    private volatile long time = System.currentTimeMillis();
+
+    /**
+     * Creates a new sweeper which ticks once a second and removes up to 10000
+     * records from each store per tick
+     */
+    public ExpirySweeper() {
+        this(1000, 10000);
+    }
+
+    /**
+     * Creates a new sweeper
+     *
+     * @param tickPeriod     the time between ticks, in milliseconds. Must be positive and non-zero
+     * @param maximumPerTick the maximum number of records removed from each store per tick. Must be positive
+     *                       and non-zero
+     */
+    public ExpirySweeper(long tickPeriod, int maximumPerTick) {
+        if (tickPeriod <= 0 || maximumPerTick <= 0) throw new IllegalArgumentException();
+
+        this.maximumPerTick = maximumPerTick;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "UUID-Library Expiry Sweeper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, tickPeriod, tickPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts sweeping a store
+     *
+     * @param store the store to sweep, cannot be null
+     */
+    public void register(RecordStore store) {
+        if (store == null) throw new IllegalArgumentException();
+
+        stores.add(new WeakReference<>(store));
+        store.setExpirySweeper(this);
+    }
+
+    /**
+     * Stops sweeping a store
+     *
+     * @param store the store to stop sweeping, cannot be null
+     */
+    public void unregister(RecordStore store) {
+        if (store == null) throw new IllegalArgumentException();
+
+        for (WeakReference<RecordStore> reference : stores) {
+            if (reference.get() == store) stores.remove(reference);
+        }
+        store.setExpirySweeper(null);
+    }
+
+    /**
+     * Gets the time as of the last tick
+     *
+     * @return the UNIX timestamp, in milliseconds, of the last tick
+     */
+    public long currentTime() {
+        return time;
+    }
+
+    /**
+     * Gets the number of expired records this sweeper has removed
+     *
+     * @return the number of records removed so far
+     */
+    public long getRemovedCount() {
+        return removedCount.get();
+    }
+
+    /**
+     * Gets the number of ticks this sweeper has run
+     *
+     * @return the number of ticks so far
+     */
+    public long getTickCount() {
+        return tickCount.get();
+    }
+
+    /**
+     * Stops the sweeper. The stores it swept go back to reading the system clock.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (WeakReference<RecordStore> reference : stores) {
+            RecordStore store = reference.get();
+            if (store != null) store.setExpirySweeper(null);
+        }
+        stores.clear();
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        time = now;
+        for (WeakReference<RecordStore> reference : stores) {
+            RecordStore store = reference.get();
+            if (store == null) {
+                stores.remove(reference);
+                continue;
+            }
+
+            try {
+                removedCount.addAndGet(store.expire(now, maximumPerTick));
+            } catch (RuntimeException e) {
+                // A failing store must not stop the others from being swept
+            }
+        }
+        tickCount.incrementAndGet();
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import java.util.UUID;
+
+/**
+ * A count-min sketch of 4-bit counters estimating how often each player has been
+ * seen recently. All counters are halved once enough samples were taken, so old
+ * popularity fades away. This class is not thread safe.
+ *
+ * @author turt2live
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table; // 16 counters per long
+    private final int tableMask;
+    private final int sampleSize;
+    private int samples = 0;
+
+    FrequencySketch(int maximumSize) {
+        int length = Integer.highestOneBit(Math.max(16, Math.min(maximumSize, 1 << 24)) - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = (int) Math.min(10L * maximumSize, Integer.MAX_VALUE);
+    }
+
+    int frequency(UUID uuid) {
+        long hash = spread(uuid);
+        int frequency = 15;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long slot = slot(hash, i);
+            frequency = Math.min(frequency, (int) ((table[index(slot)] >>> offset(slot)) & 15));
+        }
+        return frequency;
+    }
+
+    void increment(UUID uuid) {
+        long hash = spread(uuid);
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long slot = slot(hash, i);
+            int index = index(slot);
+            int offset = offset(slot);
+            if (((table[index] >>> offset) & 15) != 15) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+
+        if (added && ++samples >= sampleSize) reset();
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & RESET_MASK;
+        samples /= 2;
+    }
+
+    private static long spread(UUID uuid) {
+        long hash = uuid.getMostSignificantBits() * 31 + uuid.getLeastSignificantBits();
+        return hash ^ (hash >>> 29);
+    }
+
+    private static long slot(long hash, int row) {
+        long slot = (hash + SEEDS[row]) * SEEDS[row];
+        return slot + (slot >>> 32);
+    }
+
+    private int index(long slot) {
+        return (int) slot & tableMask;
+    }
+
+    private static int offset(long slot) {
+        return (int) ((slot >>> 48) & 15) << 2;
+    }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.UUID;
+
+/**
+ * Represents a plain least-recently-used eviction policy. This is mostly useful
+ * as a baseline; {@link TinyLfuPolicy} is recommended for real workloads.
+ *
+ * @author turt2live
+ */
+public class LruPolicy implements EvictionPolicy {
+
+    private final int maximumSize;
+    private final LinkedHashSet<UUID> order = new LinkedHashSet<>(); // Least recent first
+
+    /**
+     * Creates a new LRU policy
+     *
+     * @param maximumSize the maximum number of players to keep, must be positive
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    public LruPolicy(int maximumSize) {
+        if (maximumSize <= 0) throw new IllegalArgumentException();
+        this.maximumSize = maximumSize;
+    }
+
+    @Override
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public void onAccess(UUID uuid) {
+        if (order.remove(uuid)) order.add(uuid);
+    }
+
+    @Override
+    public UUID onInsert(UUID uuid) {
+        order.remove(uuid);
+        order.add(uuid);
+        if (order.size() <= maximumSize) return null;
+
+        Iterator<UUID> iterator = order.iterator();
+        UUID victim = iterator.next();
+        iterator.remove();
+        return victim;
+    }
+
+    @Override
+    public void onRemove(UUID uuid) {
+        order.remove(uuid);
+    }
+}
@@ -0,0 +1,361 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Maps player names to values, ignoring case, without creating lower case
+ * copies of the names. Names are hashed and compared in place, folding case as
+ * they go, so a lookup allocates nothing.
+ * <p>
+ * Minecraft names only use letters, digits and underscores, so those fold to a
+ * dense table of 37 codes through a single array read; only other characters
+ * fall back to {@link Character#toLowerCase(char)}. Case is folded per
+ * character, so names like "Notch" and "notch" are the same key and names
+ * written in other alphabets still work.
+ * <p>
+ * Nothing locks. Reads see either the state before or after any write, and
+ * writes only contend when they land in the same slot, as each replaces its
+ * slot's chain with a compare-and-set. When the table grows, the slots are
+ * moved one at a time by every writer that runs into the move, and lookups
+ * follow moved slots into the new table.
+ *
+ * @param <V> the type of value mapped to
+ *
+ * @author turt2live
+ */
+public class NameIndex<V> {
+
+    private static final int MINIMUM_CAPACITY = 16; // Power of two
+    private static final int ALPHABET_SIZE = 37;
+    private static final int[] CODES = new int[128];
+
+    static {
+        for (int c = 0; c < CODES.length; c++) CODES[c] = ALPHABET_SIZE + c; // Past the alphabet, no case
+        for (int i = 0; i < 10; i++) CODES['0' + i] = i;
+        for (int i = 0; i < 26; i++) {
+            CODES['a' + i] = 10 + i;
+            CODES['A' + i] = 10 + i;
+        }
+        CODES['_'] = 36;
+    }
+
+    private static class Node<V> {
+        final String name;
+        final int hash;
+        final V value;
+        final Node<V> next;
+
+        Node(String name, int hash, V value, Node<V> next) {
+            this.name = name;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Left in a slot of a growing table once the slot's chain is in the new table
+     */
+    private static final class Forward<V> extends Node<V> {
+        final AtomicReferenceArray<Node<V>> table;
+
+        Forward(AtomicReferenceArray<Node<V>> table) {
+            super(null, 0, null, null);
+            this.table = table;
+        }
+    }
+
+    private static final class Resize<V> {
+        final AtomicReferenceArray<Node<V>> from;
+        final AtomicReferenceArray<Node<V>> to;
+        final Forward<V> forward;
+        final AtomicInteger claimed = new AtomicInteger();
+        final AtomicInteger moved = new AtomicInteger();
+
+        Resize(AtomicReferenceArray<Node<V>> from) {
+            this.from = from;
+            this.to = new AtomicReferenceArray<>(from.length() * 2);
+            this.forward = new Forward<>(to);
+        }
+    }
+
+    // Chains are never changed once published, writers replace them instead
+    private volatile AtomicReferenceArray<Node<V>> table = new AtomicReferenceArray<>(MINIMUM_CAPACITY);
+    private final AtomicReference<Resize<V>> resizing = new AtomicReference<>();
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Gets the value mapped to a name, ignoring case
+     *
+     * @param name the name to look for, cannot be null
+     *
+     * @return the value, or null if the name is not mapped
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public V get(CharSequence name) {
+        if (name == null) throw new IllegalArgumentException();
+
+        int hash = hash(name);
+        AtomicReferenceArray<Node<V>> table = this.table;
+        Node<V> head;
+        while ((head = table.get(hash & (table.length() - 1))) instanceof Forward) {
+            table = ((Forward<V>) head).table;
+        }
+
+        Node<V> node = find(head, hash, name);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Maps a name to a value, replacing the value mapped to the name in any case
+     *
+     * @param name  the name, cannot be null
+     * @param value the value, cannot be null
+     *
+     * @return the value previously mapped to the name, or null if there was none
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public V put(String name, V value) {
+        if (name == null || value == null) throw new IllegalArgumentException();
+
+        int hash = hash(name);
+        AtomicReferenceArray<Node<V>> table = this.table;
+        while (true) {
+            int slot = hash & (table.length() - 1);
+            Node<V> head = table.get(slot);
+            if (head instanceof Forward) {
+                table = help((Forward<V>) head);
+                continue;
+            }
+
+            Node<V> previous = find(head, hash, name);
+            Node<V> chain = new Node<>(name, hash, value, previous == null ? head : without(head, previous));
+            if (!table.compareAndSet(slot, head, chain)) continue;
+            if (previous != null) return previous.value;
+
+            size.increment();
+            if (head != null) checkSize(); // Only worth summing the count once slots start to be shared
+            return null;
+        }
+    }
+
+    /**
+     * Removes a name's mapping, but only if it is still mapped to the supplied value
+     *
+     * @param name  the name, cannot be null
+     * @param value the value expected to be mapped to the name, cannot be null
+     *
+     * @return true if the mapping was removed, false otherwise
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public boolean remove(CharSequence name, V value) {
+        if (name == null || value == null) throw new IllegalArgumentException();
+
+        int hash = hash(name);
+        AtomicReferenceArray<Node<V>> table = this.table;
+        while (true) {
+            int slot = hash & (table.length() - 1);
+            Node<V> head = table.get(slot);
+            if (head instanceof Forward) {
+                table = help((Forward<V>) head);
+                continue;
+            }
+
+            Node<V> node = find(head, hash, name);
+            if (node == null || !value.equals(node.value)) return false;
+            if (!table.compareAndSet(slot, head, without(head, node))) continue;
+
+            size.decrement();
+            return true;
+        }
+    }
+
+    /**
+     * Removes every mapping. Names mapped while the index is being cleared may
+     * be kept.
+     */
+    public void clear() {
+        AtomicReferenceArray<Node<V>> table = this.table;
+        for (int i = 0; i < table.length(); i++) clear(table, i);
+    }
+
+    /**
+     * Gets the number of names mapped
+     *
+     * @return the number of names mapped
+     */
+    public int size() {
+        return size.intValue();
+    }
+
+    /**
+     * Hashes a name, ignoring case, the same way the index does
+     *
+     * @param name the name to hash, cannot be null
+     *
+     * @return the hash, the same for every name equal to this one ignoring case
+     */
+    public static int hash(CharSequence name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            hash = hash * ALPHABET_SIZE + (c < 128 ? CODES[c] : fold(c));
+        }
+
+        // Spread the bits, as only the low bits pick a slot
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        return hash ^ (hash >>> 13);
+    }
+
+    /**
+     * Compares two names, ignoring case, the same way the index does
+     *
+     * @param first  the first name, cannot be null
+     * @param second the second name, cannot be null
+     *
+     * @return true if the names are equal ignoring case, false otherwise
+     */
+    public static boolean equalsIgnoreCase(CharSequence first, CharSequence second) {
+        if (first instanceof String && second instanceof String && first.equals(second)) return true; // Usually same case
+
+        int length = first.length();
+        if (length != second.length()) return false;
+        for (int i = 0; i < length; i++) {
+            char a = first.charAt(i), b = second.charAt(i);
+            if (a != b && fold(a) != fold(b)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Folds a character's case: letters, digits and underscores to their
+     * alphabet code, anything else to a code past the alphabet
+     */
+    private static int fold(char c) {
+        if (c >= 128) {
+            c = Character.toLowerCase(c);
+            if (c >= 128) return c + 128;
+        }
+        return CODES[c];
+    }
+
+    private static <V> Node<V> find(Node<V> head, int hash, CharSequence name) {
+        for (Node<V> node = head; node != null; node = node.next) {
+            if (node.hash == hash && equalsIgnoreCase(node.name, name)) return node;
+        }
+        return null;
+    }
+
+    /**
+     * Copies a chain without one of its nodes, sharing the part after it
+     */
+    private static <V> Node<V> without(Node<V> head, Node<V> removed) {
+        if (head == removed) return removed.next;
+        return new Node<>(head.name, head.hash, head.value, without(head.next, removed));
+    }
+
+    private void clear(AtomicReferenceArray<Node<V>> table, int slot) {
+        while (true) {
+            Node<V> head = table.get(slot);
+            if (head == null) return;
+            if (head instanceof Forward) {
+                // The chain was split between this slot and the one a table length on
+                AtomicReferenceArray<Node<V>> next = help((Forward<V>) head);
+                clear(next, slot);
+                clear(next, slot + table.length());
+                return;
+            }
+
+            if (table.compareAndSet(slot, head, null)) {
+                int removed = 0;
+                for (Node<V> node = head; node != null; node = node.next) removed++;
+                size.add(-removed);
+                return;
+            }
+        }
+    }
+
+    private void checkSize() {
+        AtomicReferenceArray<Node<V>> table = this.table;
+        if (size.sum() <= table.length() - (table.length() >>> 2)) return;
+
+        Resize<V> resize = resizing.get();
+        if (resize == null) {
+            resize = new Resize<>(table);
+            if (!resizing.compareAndSet(null, resize)) {
+                resize = resizing.get(); // Someone else started growing it
+                if (resize == null) return;
+            } else if (this.table != table) {
+                resizing.set(null); // A move finished after the table was read, the size is checked again later
+                return;
+            }
+        }
+        move(resize);
+    }
+
+    /**
+     * Helps the move a forwarding node belongs to, if it is still running
+     *
+     * @return the table the forwarding node points to
+     */
+    private AtomicReferenceArray<Node<V>> help(Forward<V> forward) {
+        Resize<V> resize = resizing.get();
+        if (resize != null && resize.forward == forward) move(resize);
+        return forward.table;
+    }
+
+    /**
+     * Moves slots of a growing table until none are left to claim. Only the
+     * claimer of a slot writes the two slots it splits into, and only until it
+     * forwards the old slot, so writers never see them half built.
+     */
+    private void move(Resize<V> resize) {
+        if (resize.from != table) return; // Stale, only the thread which started it can drop it
+
+        int length = resize.from.length();
+        int slot;
+        while ((slot = resize.claimed.getAndIncrement()) < length) {
+            while (true) {
+                Node<V> head = resize.from.get(slot);
+                Node<V> low = null, high = null;
+                for (Node<V> node = head; node != null; node = node.next) {
+                    if ((node.hash & length) == 0) low = new Node<>(node.name, node.hash, node.value, low);
+                    else high = new Node<>(node.name, node.hash, node.value, high);
+                }
+                resize.to.set(slot, low);
+                resize.to.set(slot + length, high);
+                if (resize.from.compareAndSet(slot, head, resize.forward)) break;
+            }
+
+            if (resize.moved.incrementAndGet() == length) {
+                table = resize.to;
+                resizing.set(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Represents a thread safe, bounded, cache of unique IDs and player names which
+ * are known not to belong to any player. Entries expire after a fixed, usually
+ * short, time. When full, expired entries are swept first and arbitrary entries
+ * are dropped after that until a quarter of the space is free again.
+ *
+ * @author turt2live
+ */
+public class NegativeCache {
+
+    private final ConcurrentMap<Object, Long> expiries = new ConcurrentHashMap<>(); // UUID or lower case name
+    private final long cacheTime;
+    private final int maximumSize;
+
+    /**
+     * Creates a new negative cache
+     *
+     * @param cacheTime   the time entries are kept for, in milliseconds. Must be positive and non-zero
+     * @param maximumSize the maximum number of entries kept. Must be positive and non-zero
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    public NegativeCache(long cacheTime, int maximumSize) {
+        if (cacheTime <= 0 || maximumSize <= 0) throw new IllegalArgumentException();
+
+        this.cacheTime = cacheTime;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Determines if a unique ID is known not to belong to any player
+     *
+     * @param uuid the unique ID to check, cannot be null
+     *
+     * @return true if the unique ID is known to be unused, false otherwise
+     */
+    public boolean contains(UUID uuid) {
+        return containsKey(uuid);
+    }
+
+    /**
+     * Determines if a player name, ignoring case, is known not to belong to any player
+     *
+     * @param name the name to check, cannot be null
+     *
+     * @return true if the name is known to be unused, false otherwise
+     */
+    public boolean contains(String name) {
+        return containsKey(name.toLowerCase());
+    }
+
+    /**
+     * Records that a unique ID does not belong to any player
+     *
+     * @param uuid the unique ID, cannot be null
+     */
+    public void add(UUID uuid) {
+        addKey(uuid);
+    }
+
+    /**
+     * Records that a player name does not belong to any player
+     *
+     * @param name the name, cannot be null
+     */
+    public void add(String name) {
+        addKey(name.toLowerCase());
+    }
+
+    /**
+     * Forgets a unique ID, such as when a record is found for it after all
+     *
+     * @param uuid the unique ID, cannot be null
+     */
+    public void remove(UUID uuid) {
+        expiries.remove(uuid);
+    }
+
+    /**
+     * Forgets a player name, such as when a record is found for it after all
+     *
+     * @param name the name, cannot be null
+     */
+    public void remove(String name) {
+        expiries.remove(name.toLowerCase());
+    }
+
+    /**
+     * Gets the number of entries currently held, including expired entries which
+     * have not been removed yet
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return expiries.size();
+    }
+
+    private boolean containsKey(Object key) {
+        Long expires = expiries.get(key);
+        if (expires == null) return false;
+        if (expires > System.currentTimeMillis()) return true;
+
+        expiries.remove(key, expires);
+        return false;
+    }
+
+    private void addKey(Object key) {
+        expiries.put(key, System.currentTimeMillis() + cacheTime);
+        if (expiries.size() > maximumSize) trim();
+    }
+
+    private void trim() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Object, Long>> iterator = expiries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue() <= now) iterator.remove();
+        }
+
+        // Leave some headroom so that the sweep is amortized over many additions
+        int target = maximumSize - maximumSize / 4;
+        iterator = expiries.entrySet().iterator();
+        while (expiries.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,474 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.PlayerRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Represents a thread safe, in-memory store of player records which are indexed
+ * by both unique ID and (case insensitive) player name. Reads never lock, while
+ * writes are striped by unique ID so that unrelated players can be stored at the
+ * same time.
+ * <p>
+ * The two indexes are always updated together: a record is visible by unique ID
+ * before it is visible by name, and is hidden by name before it is removed by
+ * unique ID. A reader can therefore never find a record by name which cannot also
+ * be found through its unique ID.
+ * <p>
+ * A cache may be bounded by an {@link EvictionPolicy}. Reads are then recorded
+ * in a small lossy buffer which is replayed against the policy in batches, so
+ * they still do not lock. Writes to a bounded cache additionally take a single
+ * eviction lock while the policy is updated.
+ * <p>
+ * Records may be refreshed ahead of their expiration. A read of a record inside
+ * the refresh window notifies a {@link RefreshListener} once, and keeps returning
+ * the current record until the listener stores a newer one.
+ * <p>
+ * While an {@link ExpirySweeper} is set, every entry is also scheduled on a
+ * {@link TimerWheel}, so that expired records which are never read again are
+ * removed without walking the whole cache. The wheel is built from the cache's
+ * entries when it is first needed, and writes only take its lock while it
+ * exists, so a cache without a sweeper keeps writes striped.
+ *
+ * @author turt2live
+ */
+public class RecordCache implements RecordStore {
+
+    private static final int LOCK_STRIPES = 64; // Must be a power of two
+    private static final int READ_BUFFER_SIZE = 128;
+
+    private final ConcurrentMap<UUID, CacheEntry> byUuid = new ConcurrentHashMap<>();
+    private final NameIndex<CacheEntry> byName = new NameIndex<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final EvictionPolicy policy;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicReferenceArray<UUID> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicInteger readBufferCount = new AtomicInteger();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private volatile TimerWheel wheel; // Only while expired records are swept, guarded by the wheel lock
+    private final AtomicLong expiredCount = new AtomicLong();
+    private volatile ExpirySweeper sweeper;
+
+    private volatile RefreshListener refreshListener;
+    private volatile long refreshWindow;
+    private volatile long refreshJitter;
+
+    /**
+     * Creates a new, empty, unbounded record cache
+     */
+    public RecordCache() {
+        this(null);
+    }
+
+    /**
+     * Creates a new, empty, record cache which is bounded by the supplied policy
+     *
+     * @param policy the eviction policy to use, or null for an unbounded cache
+     */
+    public RecordCache(EvictionPolicy policy) {
+        this.policy = policy;
+        for (int i = 0; i < locks.length; i++) locks[i] = new Object();
+    }
+
+    /**
+     * Gets a record from the cache by unique ID. Expired records are removed
+     * from the cache and not returned.
+     *
+     * @param uuid the unique ID to look for, cannot be null
+     *
+     * @return the cached record, or null if not cached
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    @Override
+    public PlayerRecord get(UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+
+        return unwrap(byUuid.get(uuid), true);
+    }
+
+    /**
+     * Gets a record from the cache by player name, ignoring case. Expired records
+     * are removed from the cache and not returned.
+     *
+     * @param name the player name to look for, cannot be null
+     *
+     * @return the cached record, or null if not cached
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    @Override
+    public PlayerRecord get(String name) {
+        if (name == null) throw new IllegalArgumentException();
+
+        return unwrap(byName.get(name), true);
+    }
+
+    /**
+     * Stores a record in the cache, replacing any record with the same unique ID
+     * or player name.
+     *
+     * @param record  the record to store, cannot be null and must have a unique ID and name
+     * @param expires the UNIX timestamp, in milliseconds, the record expires on
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    @Override
+    public void put(PlayerRecord record, long expires) {
+        if (record == null || record.getUuid() == null || record.getName() == null)
+            throw new IllegalArgumentException();
+
+        UUID uuid = record.getUuid();
+        CacheEntry entry = new CacheEntry(record, record.getName(), expires, refreshAt(expires));
+        CacheEntry victim = null;
+
+        synchronized (lockFor(uuid)) {
+            CacheEntry previous = byUuid.put(uuid, entry);
+            if (previous != null && !NameIndex.equalsIgnoreCase(previous.getNameKey(), entry.getNameKey())) {
+                byName.remove(previous.getNameKey(), previous);
+            }
+            byName.put(entry.getNameKey(), entry);
+
+            if (wheel != null) reschedule(previous, entry);
+
+            if (policy != null) {
+                evictionLock.lock();
+                try {
+                    drainReadBuffer();
+                    UUID evicted = policy.onInsert(uuid);
+
+                    // Resolved under the eviction lock so that a newer entry put
+                    // after this point is never mistaken for the victim
+                    if (evicted != null) victim = byUuid.get(evicted);
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+        }
+
+        if (victim != null && removeEntry(victim, false)) evictionCount.incrementAndGet();
+    }
+
+    /**
+     * Sets up refreshing of records ahead of their expiration. A record is never
+     * due before half of its remaining time has passed, so a service which hands
+     * back the same expiration is not asked again on every read.
+     *
+     * @param window   the time before expiration records become due, in milliseconds. Cannot be negative
+     * @param jitter   the maximum random time added to the window, in milliseconds. Cannot be negative
+     * @param listener the listener to notify, or null to disable refreshing
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    @Override
+    public void setRefreshAhead(long window, long jitter, RefreshListener listener) {
+        if (window < 0 || jitter < 0) throw new IllegalArgumentException();
+
+        this.refreshWindow = window;
+        this.refreshJitter = jitter;
+        this.refreshListener = listener;
+    }
+
+    /**
+     * Removes the record for the supplied unique ID from the cache
+     *
+     * @param uuid the unique ID to remove, cannot be null
+     *
+     * @return true if a record was removed, false otherwise
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    @Override
+    public boolean remove(UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+
+        CacheEntry existing = byUuid.get(uuid);
+        return existing != null && removeEntry(existing, true);
+    }
+
+    /**
+     * Removes all records from the cache
+     */
+    @Override
+    public void clear() {
+        for (CacheEntry entry : byUuid.values()) removeEntry(entry, true);
+    }
+
+    /**
+     * Gets the number of records in the cache. This may include expired records
+     * which have not been removed yet.
+     *
+     * @return the number of records stored
+     */
+    @Override
+    public int size() {
+        return byUuid.size();
+    }
+
+    /**
+     * Gets the maximum number of records this cache holds
+     *
+     * @return the maximum size, or -1 if unbounded
+     */
+    @Override
+    public int getMaximumSize() {
+        return policy == null ? -1 : policy.getMaximumSize();
+    }
+
+    /**
+     * Gets the number of records which were evicted to keep this cache within
+     * its maximum size
+     *
+     * @return the number of evictions so far
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Gets a random sample of unexpired records from the cache. This walks the
+     * cache once, so the returned list may be smaller than requested.
+     *
+     * @param amount the maximum number of records to return, cannot be negative
+     * @param random the random number source to use, cannot be null
+     *
+     * @return the sampled records, never null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    @Override
+    public List<PlayerRecord> sample(int amount, Random random) {
+        if (amount < 0 || random == null) throw new IllegalArgumentException();
+
+        // Reservoir sampling over a single pass of the index
+        List<PlayerRecord> sample = new ArrayList<>(Math.min(amount, byUuid.size()));
+        int seen = 0;
+        for (CacheEntry entry : byUuid.values()) {
+            PlayerRecord record = unwrap(entry, false);
+            if (record == null) continue;
+
+            seen++;
+            if (sample.size() < amount) sample.add(record);
+            else {
+                int slot = random.nextInt(seen);
+                if (slot < amount) sample.set(slot, record);
+            }
+        }
+
+        return sample;
+    }
+
+    private PlayerRecord unwrap(CacheEntry entry, boolean refresh) {
+        if (entry == null) return null;
+        long now = now();
+        if (entry.isExpired(now)) {
+            removeEntry(entry, true);
+            return null;
+        }
+        if (policy != null) recordRead(entry.getRecord().getUuid());
+        if (refresh && entry.isRefreshDue(now)) requestRefresh(entry);
+        return entry.getRecord();
+    }
+
+    @Override
+    public int expire(long now, int maximum) {
+        if (maximum <= 0) throw new IllegalArgumentException();
+
+        List<CacheEntry> expired = new ArrayList<>();
+        buildWheel();
+        wheelLock.lock();
+        try {
+            if (wheel != null) wheel.advance(now, maximum, expired);
+        } finally {
+            wheelLock.unlock();
+        }
+
+        // Removed outside of the wheel lock, which is always taken after a stripe lock
+        int removed = 0;
+        for (CacheEntry entry : expired) {
+            if (removeEntry(entry, true)) removed++;
+        }
+        expiredCount.addAndGet(removed);
+        return removed;
+    }
+
+    @Override
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    @Override
+    public void setExpirySweeper(ExpirySweeper sweeper) {
+        this.sweeper = sweeper;
+        if (sweeper != null) {
+            buildWheel();
+            return;
+        }
+
+        wheelLock.lock();
+        try {
+            if (wheel != null) wheel.clear();
+            wheel = null;
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    /**
+     * Creates the timer wheel if there is none and schedules every entry on it.
+     * Writes from then on schedule their own entries, so each entry is only
+     * scheduled here under its stripe lock, if it is still current and was
+     * not scheduled by its write.
+     */
+    private void buildWheel() {
+        if (wheel != null) return;
+
+        wheelLock.lock();
+        try {
+            if (wheel != null) return;
+            wheel = new TimerWheel(System.currentTimeMillis());
+        } finally {
+            wheelLock.unlock();
+        }
+
+        for (CacheEntry entry : byUuid.values()) {
+            UUID uuid = entry.getRecord().getUuid();
+            synchronized (lockFor(uuid)) {
+                if (byUuid.get(uuid) != entry) continue;
+
+                wheelLock.lock();
+                try {
+                    if (wheel != null && entry.nextInWheel == null) wheel.schedule(entry);
+                } finally {
+                    wheelLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes an entry off the timer wheel and puts its replacement on it. Must
+     * hold the stripe lock of the entries.
+     */
+    private void reschedule(CacheEntry previous, CacheEntry entry) {
+        wheelLock.lock();
+        try {
+            TimerWheel wheel = this.wheel;
+            if (wheel == null) return; // Sweeper was removed
+            if (previous != null) wheel.deschedule(previous);
+            if (entry != null) wheel.schedule(entry);
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    private long now() {
+        ExpirySweeper current = sweeper;
+        return current == null ? System.currentTimeMillis() : current.currentTime();
+    }
+
+    private void requestRefresh(CacheEntry entry) {
+        RefreshListener listener = refreshListener;
+        if (listener == null || !entry.claimRefresh()) return;
+
+        boolean started = false;
+        try {
+            started = listener.onRefreshDue(entry.getRecord());
+        } finally {
+            if (!started) entry.releaseRefresh();
+        }
+    }
+
+    private long refreshAt(long expires) {
+        return refreshListener == null ? Long.MAX_VALUE : refreshAt(expires, refreshWindow, refreshJitter);
+    }
+
+    /**
+     * Picks the time a record becomes due for refresh, never before half of
+     * its remaining time has passed
+     */
+    static long refreshAt(long expires, long window, long jitter) {
+        long now = System.currentTimeMillis();
+        long due = expires - window - (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter) : 0);
+        return Math.max(due, now + (expires - now) / 2);
+    }
+
+    private boolean removeEntry(CacheEntry entry, boolean notifyPolicy) {
+        UUID uuid = entry.getRecord().getUuid();
+        synchronized (lockFor(uuid)) {
+            // Name first so that the name index never points at a missing unique ID
+            byName.remove(entry.getNameKey(), entry);
+            boolean removed = byUuid.remove(uuid, entry);
+            if (removed && wheel != null) reschedule(entry, null);
+
+            if (removed && notifyPolicy && policy != null) {
+                evictionLock.lock();
+                try {
+                    policy.onRemove(uuid);
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+            return removed;
+        }
+    }
+
+    private void recordRead(UUID uuid) {
+        int index = readBufferCount.getAndIncrement();
+        if (index < READ_BUFFER_SIZE) readBuffer.lazySet(index, uuid);
+
+        // Reads are allowed to be lost if the buffer is full and busy
+        if (index >= READ_BUFFER_SIZE / 2 && evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        int count = Math.min(readBufferCount.get(), READ_BUFFER_SIZE);
+        for (int i = 0; i < count; i++) {
+            UUID uuid = readBuffer.getAndSet(i, null);
+            if (uuid != null) policy.onAccess(uuid);
+        }
+        readBufferCount.set(0);
+    }
+
+    private Object lockFor(UUID uuid) {
+        int hash = uuid.hashCode();
+        hash ^= (hash >>> 16);
+        return locks[hash & (LOCK_STRIPES - 1)];
+    }
+}
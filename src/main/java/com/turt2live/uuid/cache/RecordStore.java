@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.PlayerRecord;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Represents a thread safe, in-memory store of player records which are indexed
+ * by both unique ID and (case insensitive) player name, as used by
+ * {@link com.turt2live.uuid.CachingServiceProvider}.
+ *
+ * @author turt2live
+ */
+public interface RecordStore {
+
+    /**
+     * Gets a record from the store by unique ID. Expired records are removed
+     * from the store and not returned.
+     *
+     * @param uuid the unique ID to look for, cannot be null
+     *
+     * @return the stored record, or null if not stored
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public PlayerRecord get(UUID uuid);
+
+    /**
+     * Gets a record from the store by player name, ignoring case. Expired records
+     * are removed from the store and not returned.
+     *
+     * @param name the player name to look for, cannot be null
+     *
+     * @return the stored record, or null if not stored
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public PlayerRecord get(String name);
+
+    /**
+     * Stores a record, replacing any record with the same unique ID or player name
+     *
+     * @param record  the record to store, cannot be null and must have a unique ID and name
+     * @param expires the UNIX timestamp, in milliseconds, the record expires on
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public void put(PlayerRecord record, long expires);
+
+    /**
+     * Removes the record for the supplied unique ID from the store
+     *
+     * @param uuid the unique ID to remove, cannot be null
+     *
+     * @return true if a record was removed, false otherwise
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public boolean remove(UUID uuid);
+
+    /**
+     * Removes all records from the store
+     */
+    public void clear();
+
+    /**
+     * Gets the number of records in the store. This may include expired records
+     * which have not been removed yet.
+     *
+     * @return the number of records stored
+     */
+    public int size();
+
+    /**
+     * Gets the maximum number of records this store holds
+     *
+     * @return the maximum size, or -1 if unbounded
+     */
+    public int getMaximumSize();
+
+    /**
+     * Gets the number of records which were evicted to keep this store within
+     * its maximum size
+     *
+     * @return the number of evictions so far
+     */
+    public long getEvictionCount();
+
+    /**
+     * Gets a random sample of unexpired records from the store. The returned
+     * list may be smaller than requested.
+     *
+     * @param amount the maximum number of records to return, cannot be negative
+     * @param random the random number source to use, cannot be null
+     *
+     * @return the sampled records, never null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    public List<PlayerRecord> sample(int amount, Random random);
+
+    /**
+     * Sets up refreshing of records ahead of their expiration. Records stored
+     * after this call become due for refresh a random time, between the window
+     * and the window plus the jitter, before they expire. A read of a due record
+     * notifies the listener once, and keeps returning the current record until
+     * the listener stores a newer one.
+     *
+     * @param window   the time before expiration records become due, in milliseconds. Cannot be negative
+     * @param jitter   the maximum random time added to the window, in milliseconds. Cannot be negative
+     * @param listener the listener to notify, or null to disable refreshing
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    public void setRefreshAhead(long window, long jitter, RefreshListener listener);
+
+    /**
+     * Removes records which expired by the supplied time, up to the supplied
+     * maximum. Without this, records which are never read again are only
+     * removed when evicted. Usually called by an {@link ExpirySweeper}.
+     *
+     * @param now     the current time, as a UNIX timestamp in milliseconds
+     * @param maximum the maximum number of records to remove. Must be positive and non-zero
+     *
+     * @return the number of records removed
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    public int expire(long now, int maximum);
+
+    /**
+     * Gets the number of records removed by {@link #expire(long, int)}
+     *
+     * @return the number of expired records removed so far
+     */
+    public long getExpiredCount();
+
+    /**
+     * Sets the sweeper which removes expired records from this store. While a
+     * sweeper is set, reads check for expiry against the sweeper's clock, which
+     * only moves once per tick, instead of reading the system clock. Records may
+     * therefore be returned for up to one tick after they expire.
+     *
+     * @param sweeper the sweeper, or null for none
+     */
+    public void setExpirySweeper(ExpirySweeper sweeper);
+}
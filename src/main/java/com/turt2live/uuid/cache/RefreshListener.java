@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.PlayerRecord;
+
+/**
+ * Represents a listener which is told when a cached record is close enough to
+ * expiring that it should be loaded again. See
+ * {@link RecordStore#setRefreshAhead(long, long, RefreshListener)}.
+ *
+ * @author turt2live
+ */
+public interface RefreshListener {
+
+    /**
+     * Called when a record read from the cache is due to be refreshed. This is
+     * called on the reading thread and so must not block. A newer record should
+     * be stored through {@link RecordStore#put(PlayerRecord, long)} once loaded.
+     *
+     * @param record the cached record, never null
+     *
+     * @return true if the refresh was started or is not needed, false if it
+     * should be requested again on a later read
+     */
+    public boolean onRefreshDue(PlayerRecord record);
+}
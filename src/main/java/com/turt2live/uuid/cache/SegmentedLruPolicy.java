@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.UUID;
+
+/**
+ * Represents a segmented LRU eviction policy. New players enter a probation
+ * segment and are promoted to a protected segment when read again, so a burst
+ * of one-off lookups (such as a bot flood) can only push out other one-off
+ * lookups.
+ *
+ * @author turt2live
+ */
+public class SegmentedLruPolicy implements EvictionPolicy {
+
+    private final int maximumSize;
+    private final int protectedSize;
+    private final LinkedHashSet<UUID> probation = new LinkedHashSet<>(); // Least recent first
+    private final LinkedHashSet<UUID> protectedSegment = new LinkedHashSet<>(); // Least recent first
+
+    /**
+     * Creates a new segmented LRU policy which uses 80% of the space for the
+     * protected segment
+     *
+     * @param maximumSize the maximum number of players to keep, must be positive
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    public SegmentedLruPolicy(int maximumSize) {
+        this(maximumSize, 0.8);
+    }
+
+    /**
+     * Creates a new segmented LRU policy
+     *
+     * @param maximumSize    the maximum number of players to keep, must be positive
+     * @param protectedRatio the share of the space used by the protected segment, from 0 to 1
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    public SegmentedLruPolicy(int maximumSize, double protectedRatio) {
+        if (maximumSize <= 0 || protectedRatio < 0 || protectedRatio > 1) throw new IllegalArgumentException();
+
+        this.maximumSize = maximumSize;
+        this.protectedSize = (int) (maximumSize * protectedRatio);
+    }
+
+    @Override
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public void onAccess(UUID uuid) {
+        if (probation.remove(uuid)) promote(uuid);
+        else if (protectedSegment.remove(uuid)) protectedSegment.add(uuid);
+    }
+
+    @Override
+    public UUID onInsert(UUID uuid) {
+        if (contains(uuid)) {
+            onAccess(uuid);
+            return null;
+        }
+
+        add(uuid);
+        return size() > maximumSize ? evict() : null;
+    }
+
+    @Override
+    public void onRemove(UUID uuid) {
+        if (!probation.remove(uuid)) protectedSegment.remove(uuid);
+    }
+
+    boolean contains(UUID uuid) {
+        return probation.contains(uuid) || protectedSegment.contains(uuid);
+    }
+
+    int size() {
+        return probation.size() + protectedSegment.size();
+    }
+
+    void add(UUID uuid) {
+        probation.add(uuid);
+    }
+
+    UUID victim() {
+        if (!probation.isEmpty()) return probation.iterator().next();
+        if (!protectedSegment.isEmpty()) return protectedSegment.iterator().next();
+        return null;
+    }
+
+    UUID evict() {
+        UUID victim = victim();
+        if (victim != null) onRemove(victim);
+        return victim;
+    }
+
+    private void promote(UUID uuid) {
+        protectedSegment.add(uuid);
+        if (protectedSegment.size() > protectedSize) {
+            Iterator<UUID> iterator = protectedSegment.iterator();
+            UUID demoted = iterator.next();
+            iterator.remove();
+            probation.add(demoted);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collapses concurrent loads of the same key into a single load. The first
+ * caller to {@link #join(Object)} a key becomes the leader of that flight and
+ * must finish it; every caller joining while it is in progress shares its result.
+ * <p>
+ * A leader which blocks must always finish the flights it leads before waiting
+ * on any other flight, otherwise two callers could end up waiting on each other.
+ * Callers which only chain on {@link Flight#getFuture()} are not restricted.
+ *
+ * @param <K> the type of key being loaded
+ * @param <V> the type of value being loaded
+ *
+ * @author turt2live
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * Represents a caller's view of a single in-progress load
+     *
+     * @param <V> the type of value being loaded
+     */
+    public static class Flight<V> {
+
+        private final CompletableFuture<V> future;
+        private final boolean leader;
+
+        private Flight(CompletableFuture<V> future, boolean leader) {
+            this.future = future;
+            this.leader = leader;
+        }
+
+        /**
+         * Gets whether or not the caller which joined this flight is responsible
+         * for loading the value and finishing the flight
+         *
+         * @return true if the caller is the leader, false otherwise
+         */
+        public boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * Gets the future which is completed when this flight finishes
+         *
+         * @return the flight's future
+         */
+        public CompletableFuture<V> getFuture() {
+            return future;
+        }
+
+        /**
+         * Waits for the flight to finish and returns the loaded value. If the
+         * leader failed, the same exception is thrown to every waiter.
+         *
+         * @return the loaded value, may be null
+         */
+        public V await() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                throw e;
+            }
+        }
+    }
+
+    private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Joins the flight for the supplied key, starting a new one if none is in
+     * progress. If the returned flight's {@link Flight#isLeader()} is true, the
+     * caller must later call {@link #complete(Object, Flight, Object)} or
+     * {@link #fail(Object, Flight, Throwable)}.
+     *
+     * @param key the key to load, cannot be null
+     *
+     * @return the flight for the key
+     */
+    public Flight<V> join(K key) {
+        if (key == null) throw new IllegalArgumentException();
+
+        CompletableFuture<V> existing = calls.get(key);
+        if (existing != null) return new Flight<>(existing, false);
+
+        CompletableFuture<V> created = new CompletableFuture<>();
+        existing = calls.putIfAbsent(key, created);
+        if (existing != null) return new Flight<>(existing, false);
+        return new Flight<>(created, true);
+    }
+
+    /**
+     * Finishes a flight led by the caller, handing the value to every waiter.
+     * Finishing a flight which already finished has no effect.
+     *
+     * @param key    the key the flight was started for
+     * @param flight the flight to finish, must have been led by the caller
+     * @param value  the loaded value, may be null
+     */
+    public void complete(K key, Flight<V> flight, V value) {
+        if (!flight.leader) throw new IllegalStateException("Only the leader may complete a flight");
+
+        calls.remove(key, flight.future);
+        flight.future.complete(value);
+    }
+
+    /**
+     * Finishes a flight led by the caller, handing the exception to every waiter.
+     * Finishing a flight which already finished has no effect.
+     *
+     * @param key     the key the flight was started for
+     * @param flight  the flight to finish, must have been led by the caller
+     * @param failure the exception to hand to waiters, cannot be null
+     */
+    public void fail(K key, Flight<V> flight, Throwable failure) {
+        if (!flight.leader) throw new IllegalStateException("Only the leader may fail a flight");
+
+        calls.remove(key, flight.future);
+        flight.future.completeExceptionally(failure);
+    }
+
+    /**
+     * Gets the number of flights currently in progress
+     *
+     * @return the number of in-progress flights
+     */
+    public int size() {
+        return calls.size();
+    }
+}
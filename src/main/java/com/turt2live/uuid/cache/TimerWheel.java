@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import java.util.List;
+
+/**
+ * Represents a hierarchical timer wheel which finds the cache entries that have
+ * expired in amortized constant time. Entries are kept in buckets of
+ * increasingly coarse time spans (about a second, a minute, an hour, a day and
+ * anything beyond), and are moved down to finer buckets as their time comes
+ * closer, until they expire from the finest one.
+ * <p>
+ * Buckets are circular, doubly linked, lists threaded through the entries
+ * themselves, so scheduling and descheduling never allocate. This class is not
+ * thread safe.
+ *
+ * @author turt2live
+ */
+class TimerWheel {
+
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final int[] SHIFTS = {10, 16, 22, 27, 29}; // Milliseconds per bucket, as a power of two
+
+    private final CacheEntry[][] wheel = new CacheEntry[BUCKETS.length][];
+    private long time;
+    private int size;
+
+    TimerWheel(long now) {
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new CacheEntry[BUCKETS[i]];
+            for (int j = 0; j < wheel[i].length; j++) {
+                CacheEntry sentinel = new CacheEntry(null, null, 0);
+                sentinel.previousInWheel = sentinel;
+                sentinel.nextInWheel = sentinel;
+                wheel[i][j] = sentinel;
+            }
+        }
+        this.time = now;
+    }
+
+    /**
+     * Gets the number of entries scheduled
+     *
+     * @return the number of scheduled entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Schedules an entry to expire at its expiration time
+     *
+     * @param entry the entry to schedule, must not already be scheduled
+     */
+    void schedule(CacheEntry entry) {
+        link(bucketFor(entry.getExpires()), entry);
+        size++;
+    }
+
+    /**
+     * Removes an entry from the wheel, if it is scheduled
+     *
+     * @param entry the entry to deschedule
+     */
+    void deschedule(CacheEntry entry) {
+        if (entry.nextInWheel == null) return;
+
+        unlink(entry);
+        size--;
+    }
+
+    /**
+     * Takes every entry out of the wheel, so they can be scheduled on another one
+     */
+    void clear() {
+        for (CacheEntry[] level : wheel) {
+            for (CacheEntry sentinel : level) {
+                CacheEntry node = sentinel.nextInWheel;
+                while (node != sentinel) {
+                    CacheEntry next = node.nextInWheel;
+                    node.previousInWheel = null;
+                    node.nextInWheel = null;
+                    node = next;
+                }
+                sentinel.previousInWheel = sentinel;
+                sentinel.nextInWheel = sentinel;
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * Advances the wheel to the supplied time, taking out up to the supplied
+     * number of expired entries. If more entries have expired, the wheel stops
+     * short and the rest are taken out by following calls.
+     *
+     * @param now     the current time, as a UNIX timestamp in milliseconds
+     * @param maximum the maximum number of expired entries to take out
+     * @param expired the list to add the expired entries to
+     */
+    void advance(long now, int maximum, List<CacheEntry> expired) {
+        long previous = time;
+        time = now;
+        for (int level = 0; level < SHIFTS.length; level++) {
+            long previousTicks = previous >>> SHIFTS[level];
+            long currentTicks = now >>> SHIFTS[level];
+            if (currentTicks - previousTicks <= 0) break;
+
+            int mask = BUCKETS[level] - 1;
+            int steps = (int) Math.min(currentTicks - previousTicks + 1, BUCKETS[level]);
+            for (int step = 0; step < steps; step++) {
+                if (!expire(wheel[level][(int) ((previousTicks + step) & mask)], now, maximum, expired)) {
+                    time = previous; // Out of budget, so go over the same buckets on the next call
+                    return;
+                }
+            }
+        }
+    }
+
+    // Takes the expired entries out of a bucket and moves the others closer to their time
+    private boolean expire(CacheEntry sentinel, long now, int maximum, List<CacheEntry> expired) {
+        CacheEntry node = sentinel.nextInWheel;
+        CacheEntry tail = sentinel.previousInWheel;
+        sentinel.previousInWheel = sentinel;
+        sentinel.nextInWheel = sentinel;
+
+        while (node != sentinel) {
+            if (expired.size() >= maximum && node.isExpired(now)) {
+                // Put the rest back as they were
+                node.previousInWheel = sentinel.previousInWheel;
+                sentinel.previousInWheel.nextInWheel = node;
+                tail.nextInWheel = sentinel;
+                sentinel.previousInWheel = tail;
+                return false;
+            }
+
+            CacheEntry next = node.nextInWheel;
+            node.previousInWheel = null;
+            node.nextInWheel = null;
+            if (node.isExpired(now)) {
+                expired.add(node);
+                size--;
+            } else link(bucketFor(node.getExpires()), node);
+            node = next;
+        }
+        return true;
+    }
+
+    private CacheEntry bucketFor(long expires) {
+        long at = Math.max(expires, time);
+        long duration = at - time;
+        for (int level = 0; level < SHIFTS.length - 1; level++) {
+            if (duration < 1L << SHIFTS[level + 1]) {
+                return wheel[level][(int) ((at >>> SHIFTS[level]) & (BUCKETS[level] - 1))];
+            }
+        }
+        return wheel[SHIFTS.length - 1][0];
+    }
+
+    private static void link(CacheEntry sentinel, CacheEntry entry) {
+        entry.previousInWheel = sentinel.previousInWheel;
+        entry.nextInWheel = sentinel;
+        sentinel.previousInWheel.nextInWheel = entry;
+        sentinel.previousInWheel = entry;
+    }
+
+    private static void unlink(CacheEntry entry) {
+        entry.previousInWheel.nextInWheel = entry.nextInWheel;
+        entry.nextInWheel.previousInWheel = entry.previousInWheel;
+        entry.previousInWheel = null;
+        entry.nextInWheel = null;
+    }
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.UUID;
+
+/**
+ * Represents a W-TinyLFU eviction policy. New players enter a small LRU window;
+ * when they fall out of it they are only admitted to the main (segmented LRU)
+ * region if they have been seen more often than the player they would replace.
+ * This keeps popular players cached through floods of one-off lookups.
+ *
+ * @author turt2live
+ */
+public class TinyLfuPolicy implements EvictionPolicy {
+
+    private final int maximumSize;
+    private final int windowSize;
+    private final LinkedHashSet<UUID> window = new LinkedHashSet<>(); // Least recent first
+    private final SegmentedLruPolicy main;
+    private final FrequencySketch sketch;
+
+    /**
+     * Creates a new W-TinyLFU policy which uses 1% of the space for the window
+     *
+     * @param maximumSize the maximum number of players to keep, must be positive
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    public TinyLfuPolicy(int maximumSize) {
+        if (maximumSize <= 0) throw new IllegalArgumentException();
+
+        this.maximumSize = maximumSize;
+        this.windowSize = Math.max(1, maximumSize / 100);
+        this.main = maximumSize > windowSize ? new SegmentedLruPolicy(maximumSize - windowSize) : null;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    @Override
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public void onAccess(UUID uuid) {
+        sketch.increment(uuid);
+        if (window.remove(uuid)) window.add(uuid);
+        else if (main != null) main.onAccess(uuid);
+    }
+
+    @Override
+    public UUID onInsert(UUID uuid) {
+        if (window.contains(uuid) || (main != null && main.contains(uuid))) {
+            onAccess(uuid);
+            return null;
+        }
+
+        sketch.increment(uuid);
+        window.add(uuid);
+        if (window.size() <= windowSize) return null;
+
+        Iterator<UUID> iterator = window.iterator();
+        UUID candidate = iterator.next();
+        iterator.remove();
+
+        if (main == null) return candidate;
+        if (main.size() < main.getMaximumSize()) {
+            main.add(candidate);
+            return null;
+        }
+
+        UUID victim = main.victim();
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            main.onRemove(victim);
+            main.add(candidate);
+            return victim;
+        }
+        return candidate;
+    }
+
+    @Override
+    public void onRemove(UUID uuid) {
+        if (!window.remove(uuid) && main != null) main.onRemove(uuid);
+    }
+}
@@ -3,44 +3,23 @@ package com.turt2live.uuid.mojang;
 import java.nio.charset.Charset;
 import java.util.UUID;
 
-import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.ImmutablePlayerRecord;
+import com.turt2live.uuid.utils.OfflineUuids;
 
-public class MojangPlayerRecord implements PlayerRecord {
+public class MojangPlayerRecord extends ImmutablePlayerRecord {
     public static final Charset UTF_8 = Charset.forName("UTF-8");
     
+    private volatile UUID offlineUuid; // Racy but safe: UUIDs are immutable and always computed the same
+
+    // Mojang doesn't cache, so these never expire
     public MojangPlayerRecord(UUID id, String name) {
-        this.id = id;
-        this.name = name;
-    }
-    
-    private final UUID id;
-    private final String name;
-    
-    @Override
-    public UUID getUuid() {
-        return id;
-    }
-    
-    @Override
-    public UUID getOfflineUuid() {
-        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + getName()).getBytes(UTF_8));
+        super(id, name, null, false, 0, 0);
     }
 
     @Override
-    public String getName() {
-        return name;
-    }
-
-    public boolean isCached() {
-        return false;
-    }
-
-    //Isn't cached
-    public long getExpirationTime() { 
-        return 0;
-    }
-
-    public long getTimeLeft() {
-        return 0;
+    public UUID getOfflineUuid() {
+        UUID offline = offlineUuid;
+        if (offline == null) offlineUuid = offline = OfflineUuids.of(getName());
+        return offline;
     }
 }
\ No newline at end of file
@@ -1,88 +1,246 @@
 package com.turt2live.uuid.mojang;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
 import com.turt2live.uuid.PlayerRecord;
-import com.turt2live.uuid.ServiceProvider;
+import com.turt2live.uuid.AbstractAsyncServiceProvider;
+import com.turt2live.uuid.UnknownPlayerRecord;
+import com.turt2live.uuid.utils.FanOut;
 import com.turt2live.uuid.utils.HTTPUtils;
+import com.turt2live.uuid.utils.HttpTransport;
+import com.turt2live.uuid.utils.JsonReader;
+import com.turt2live.uuid.utils.UuidCodec;
 
 import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
 
-public class MojangServiceProvider {
+public class MojangServiceProvider extends AbstractAsyncServiceProvider {
     
     public static final String BASE_URL = "https://api.mojang.com/users/profiles/";
+    public static final int MAX_BULK_NAMES = 100;
+    public static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private static final long CHUNK_RETRY_DELAY = 250; // Milliseconds, times the attempt
+
+    private volatile HttpTransport transport;
+    private volatile int parallelism = FanOut.DEFAULT_PARALLELISM;
+
+    /**
+     * Gets the transport this service sends its requests through
+     *
+     * @return the transport in use, never null
+     */
+    public HttpTransport getTransport() {
+        HttpTransport transport = this.transport;
+        return transport == null ? HTTPUtils.getTransport() : transport;
+    }
+
+    /**
+     * Sets the transport this service sends its requests through
+     *
+     * @param transport the transport to use, or null to use {@link HTTPUtils#getTransport()}
+     */
+    public void setTransport(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Gets the number of lookups a bulk unique ID lookup makes at once
+     *
+     * @return the parallelism of bulk unique ID lookups
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of lookups a bulk unique ID lookup makes at once. The
+     * lookups still wait on the transport's rate limiter, so this bounds how many
+     * connections are used, not how fast Mojang is asked.
+     *
+     * @param parallelism the number of lookups at once, must be positive
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive values
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException();
+        this.parallelism = parallelism;
+    }
     
-    public PlayerRecord doLookup(UUID uuid) {
-        Object rawResponse = HTTPUtils.getJson("https://sessionserver.mojang.com/session/minecraft/profile/" + toString(uuid));
-        if (rawResponse == null || !(rawResponse instanceof JSONObject)) return null;
-        JSONObject response = (JSONObject) rawResponse;
-        if (!response.containsKey("name")) return null;
-        UUID id = response.containsKey("id") ? toUUID(response.get("id").toString()) : uuid;
-        String name = response.get("name").toString();
-        return new MojangPlayerRecord(id, name);
-    }
-
-    public PlayerRecord doLookup(String playerName) {
-        Object rawResponse = HTTPUtils.getJson(BASE_URL + "minecraft/" + playerName);
-        if (rawResponse == null || !(rawResponse instanceof JSONObject)) return null;
-        JSONObject response = (JSONObject) rawResponse;
-        if (!response.containsKey("id")) return null;
-        UUID id = toUUID(response.get("id").toString());
-        String name = response.containsKey("name") ? response.get("name").toString() : playerName;
-        return new MojangPlayerRecord(id, name);
+    public PlayerRecord doLookup(final UUID uuid) {
+        String url = "https://sessionserver.mojang.com/session/minecraft/profile/" + toString(uuid);
+        return HTTPUtils.getJson(getTransport(), url, reader -> {
+            Profile profile = readProfile(reader);
+            if (profile == null || profile.name == null) return null;
+            return new MojangPlayerRecord(profile.id == null ? uuid : profile.id, profile.name);
+        }, new UnknownPlayerRecord(uuid));
+    }
+
+    public PlayerRecord doLookup(final String playerName) {
+        return HTTPUtils.getJson(getTransport(), BASE_URL + "minecraft/" + playerName, reader -> {
+            Profile profile = readProfile(reader);
+            if (profile == null || profile.id == null) return null;
+            return new MojangPlayerRecord(profile.id, profile.name == null ? playerName : profile.name);
+        }, new UnknownPlayerRecord(playerName));
     }
 
     public String[] getNameHistory(UUID uuid) {
-        Object rawResponse = HTTPUtils.getJson(BASE_URL + toString(uuid) + "/names");
-        if (rawResponse == null || !(rawResponse instanceof JSONArray)) return null;
-        JSONArray response = (JSONArray) rawResponse;
-        String[] nameHistory = new String[response.size()];
-        for (int i = 0; i < response.size(); i++) {
-            Object rawRecord = response.get(i);
-            if (rawRecord == null || !(rawRecord instanceof JSONObject)) continue;
-            JSONObject record = (JSONObject) rawRecord;
-            if (!record.containsKey("name")) return null;
-            String name = record.get("name").toString();
-            nameHistory[i] = name;
-        }
-        return nameHistory;
+        return HTTPUtils.getJson(getTransport(), BASE_URL + toString(uuid) + "/names", reader -> {
+            List<String> names = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Profile record = readProfile(reader);
+                if (record == null) continue;
+                if (record.name == null) return null;
+                names.add(record.name);
+            }
+            reader.endArray();
+            return names.toArray(new String[names.size()]);
+        }, null);
     }
 
-    //Mojang needs to make this better
+    /**
+     * Looks up each unique ID on its own, as Mojang has no bulk endpoint for them,
+     * running up to {@link #getParallelism()} lookups at once. Players are returned
+     * in the order they were asked for. Players which could not be looked up,
+     * including those rejected by the rate limiter, are left out; null is only
+     * returned if none could be looked up. If every lookup threw an exception,
+     * as {@link #doLookup(UUID)} does when rate limited, the first one is
+     * rethrown instead.
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     * @throws com.turt2live.uuid.utils.HTTPUtils.RateLimitedException thrown if every lookup
+     *                                                            was rate limited
+     */
     public List<PlayerRecord> doBulkLookup(UUID... uuids) {
+        if (uuids == null) throw new IllegalArgumentException();
+        for (UUID id : uuids) if (id == null) throw new IllegalArgumentException();
+
+        List<PlayerRecord> looked = FanOut.map(Arrays.asList(uuids), parallelism, this::doLookup);
         List<PlayerRecord> records = new ArrayList<>();
-        for (UUID id : uuids) {
-            PlayerRecord record = doLookup(id);
-            if (record != null) records.add(record);
+        boolean answered = uuids.length == 0;
+        for (PlayerRecord record : looked) {
+            if (record == null) continue;
+            answered = true;
+            if (!UnknownPlayerRecord.isUnknown(record)) records.add(record);
         }
-        return records;
+        return answered ? records : null;
     }
 
+    /**
+     * Looks up any number of names, {@link #MAX_BULK_NAMES} per request. The
+     * requests are made up to {@link #getParallelism()} at once, and requests
+     * which fail are retried on their own, up to {@link #MAX_CHUNK_ATTEMPTS}
+     * times. Players whose request kept failing are left out; null is only
+     * returned if every request failed.
+     */
     public List<PlayerRecord> doBulkLookup(String... playerNames) {
-        if (playerNames.length > 100) {
-            throw new UnsupportedOperationException("Can't have more than 100 uuids in a mojang request");
+        if (playerNames == null) throw new IllegalArgumentException();
+        for (String name : playerNames) if (name == null) throw new IllegalArgumentException();
+
+        String[][] chunks = split(playerNames, MAX_BULK_NAMES);
+        List<List<PlayerRecord>> results = new ArrayList<>();
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < chunks.length; i++) {
+            results.add(null);
+            pending.add(i);
         }
+
+        RuntimeException failure = null;
+        for (int attempt = 1; !pending.isEmpty() && attempt <= MAX_CHUNK_ATTEMPTS; attempt++) {
+            if (attempt > 1 && !sleep(CHUNK_RETRY_DELAY * (attempt - 1))) break;
+
+            final RuntimeException[] failures = new RuntimeException[chunks.length];
+            List<List<PlayerRecord>> fetched = FanOut.map(pending, parallelism, index -> {
+                try {
+                    return lookupChunk(chunks[index]);
+                } catch (RuntimeException e) {
+                    failures[index] = e; // Such as being rate limited, retry it with the others
+                    return null;
+                }
+            });
+
+            List<Integer> failed = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                int index = pending.get(i);
+                if (fetched.get(i) != null) results.set(index, fetched.get(i));
+                else failed.add(index);
+                if (failures[index] != null) failure = failures[index];
+            }
+            pending = failed;
+        }
+
+        if (chunks.length > 0 && pending.size() == chunks.length) {
+            if (failure != null) throw failure;
+            return null;
+        }
+        List<PlayerRecord> players = new ArrayList<>();
+        for (List<PlayerRecord> chunk : results) if (chunk != null) players.addAll(chunk);
+        return players;
+    }
+
+    private List<PlayerRecord> lookupChunk(String[] playerNames) {
         JSONArray request = new JSONArray();
         for (String name : playerNames) {
             request.add(name);
         }
-        Object rawResponse = HTTPUtils.postJson("https://api.mojang.com/profiles/minecraft", request);
-        if (rawResponse == null || !(rawResponse instanceof JSONArray)) return null;
-        JSONArray response = (JSONArray) rawResponse;
-        List<PlayerRecord> players = new ArrayList<>();
-        for (Object rawPlayer : response) {
-            if (!(rawPlayer instanceof JSONObject)) continue;
-            JSONObject jsonPlayer = (JSONObject) rawPlayer;
-            if (!jsonPlayer.containsKey("id") || !(jsonPlayer.containsKey("name"))) continue;
-            UUID id = toUUID(jsonPlayer.get("id").toString());
-            String name = jsonPlayer.get("name").toString();
-            PlayerRecord player = new MojangPlayerRecord(id, name);
-            players.add(player);
+        return HTTPUtils.postJson(getTransport(), "https://api.mojang.com/profiles/minecraft", request.toString(), reader -> {
+            List<PlayerRecord> players = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Profile player = readProfile(reader);
+                if (player != null && player.id != null && player.name != null) players.add(new MojangPlayerRecord(player.id, player.name));
+            }
+            reader.endArray();
+            return players;
+        });
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
-        return players;
+    }
+
+    private static class Profile {
+        UUID id;
+        String name;
+    }
+
+    /**
+     * Reads the "id" and "name" of a profile object, either of which may be
+     * missing. Returns null if the value is not an object.
+     */
+    private static Profile readProfile(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        Profile profile = new Profile();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (reader.peek() == JsonReader.Token.NULL) reader.skipValue();
+            else if (key.equals("id")) profile.id = reader.nextUuid();
+            else if (key.equals("name")) profile.name = reader.nextString();
+            else reader.skipValue();
+        }
+        reader.endObject();
+        return profile;
+    }
+
+    @Override
+    public int getBulkRequestCount(int players, boolean byUuid) {
+        if (byUuid) return players; // One profile request each
+        return (players + MAX_BULK_NAMES - 1) / MAX_BULK_NAMES;
     }
 
     public PlayerRecord getRandomSample() {
@@ -97,38 +255,50 @@ public class MojangServiceProvider {
         return "Mojang Public API";
     }
     
+    /**
+     * Parses a UUID as returned by Mojang, with or without dashes
+     *
+     * @param raw the UUID to parse, cannot be null
+     *
+     * @return the parsed UUID
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null or invalid UUIDs
+     */
     public static UUID toUUID(String raw) {
-        String dashed;
-        if (raw.length() == 32) {
-            dashed = raw.substring(0, 8) + "-" + raw.substring(8, 12) + "-" + raw.substring(12, 16) + "-" + raw.substring(16, 20) + "-" + raw.substring(20, 32);
-        } else {
-            dashed = raw;
-        }
-        return UUID.fromString(raw);
+        UUID uuid = UuidCodec.parse(raw);
+        if (uuid == null) throw new IllegalArgumentException("Invalid UUID: " + raw);
+        return uuid;
     }
-    
+
+    /**
+     * Prints a UUID without dashes, as Mojang expects it
+     *
+     * @param id the UUID to print, cannot be null
+     *
+     * @return the undashed UUID
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
     public static String toString(UUID id) {
-        String result = id.toString();
-        result = result.replace("-", "");
-        return result;
+        return UuidCodec.toString(id, false);
     }
-    
-    /*
-    This is for eventual support for more than 100 names in doBulkLookup
+
+    /**
+     * Splits an array into consecutive chunks of at most the given size
+     *
+     * @param original the array to split, cannot be null
+     * @param maxSize  the maximum size of each chunk, must be positive
+     *
+     * @return the chunks, in order. Empty if the array is empty.
+     */
     public static String[][] split(String[] original, int maxSize) {
-        String[][] split = new String[][ceil(original.size / maxSize)];
-        int lastIndex = 0;
-        for (int i = 0; i < original.length; i++) {
-            int from = lastIndex;
-            int to = lastIndex + 100;
-            if (to >= original.size) to = original.size - 1;
-            split[i] = Arrays.copyOfRange(original, from, to);
+        if (original == null || maxSize <= 0) throw new IllegalArgumentException();
+
+        String[][] split = new String[(original.length + maxSize - 1) / maxSize][];
+        for (int i = 0; i < split.length; i++) {
+            int from = i * maxSize;
+            split[i] = Arrays.copyOfRange(original, from, Math.min(original.length, from + maxSize));
         }
         return split;
     }
-    
-    public static int ceil(double d) {
-        return (int) Math.ceil(d);
-    }
-    */
 }
\ No newline at end of file
@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.offline;
+
+import com.turt2live.uuid.AbstractAsyncServiceProvider;
+import com.turt2live.uuid.ImmutablePlayerRecord;
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.ServiceProvider;
+import com.turt2live.uuid.UnknownPlayerRecord;
+import com.turt2live.uuid.utils.FanOut;
+import com.turt2live.uuid.utils.OfflineUuids;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Represents a service provider for offline mode servers, which works out
+ * unique IDs locally instead of asking a web service. A player's unique ID is
+ * their offline unique ID, the version 3 UUID of {@code "OfflinePlayer:" + name},
+ * so name lookups never fail. That cannot be reversed, so unique ID lookups
+ * can only be answered for names the provider has seen, either looked up or
+ * passed to {@link #learn(String...)}; other unique IDs are reported as
+ * unknown players.
+ * <p>
+ * For hybrid networks, an online service can be supplied. Unique IDs which are
+ * not offline unique IDs are then looked up with it, and names are looked up
+ * with it first, falling back to the offline unique ID only for players the
+ * online service reports do not exist. Offline unique IDs are still answered
+ * locally and never reach the online service.
+ *
+ * @author turt2live
+ */
+public class OfflineServiceProvider extends AbstractAsyncServiceProvider {
+
+    private static final int OFFLINE_VERSION = 3;
+
+    private final ServiceProvider online;
+    private final ConcurrentMap<UUID, String> names = new ConcurrentHashMap<>();
+    private volatile int parallelism = FanOut.DEFAULT_PARALLELISM;
+
+    /**
+     * Creates a new provider which answers every lookup locally
+     */
+    public OfflineServiceProvider() {
+        this(null);
+    }
+
+    /**
+     * Creates a new provider for a hybrid network
+     *
+     * @param online the service to look up online players with, or null to answer every lookup locally
+     */
+    public OfflineServiceProvider(ServiceProvider online) {
+        this.online = online;
+    }
+
+    /**
+     * Sets the number of batches of names worked on at once by bulk lookups.
+     * Defaults to {@link FanOut#DEFAULT_PARALLELISM}.
+     *
+     * @param parallelism the number of batches worked on at once, must be positive
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive values
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException();
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Teaches the provider player names, so their offline unique IDs can be
+     * looked up, for example from a server's player data during a migration
+     *
+     * @param playerNames the player names, no element can be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null values
+     */
+    public void learn(String... playerNames) {
+        toRecords(playerNames);
+    }
+
+    /**
+     * Gets the number of offline unique IDs the provider can look up
+     *
+     * @return the number of known offline unique IDs
+     */
+    public int getKnownCount() {
+        return names.size();
+    }
+
+    /**
+     * Gets whether a unique ID is an offline unique ID, and so answered locally
+     *
+     * @param uuid the unique ID to check, cannot be null
+     *
+     * @return true if the unique ID is an offline unique ID, false otherwise
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public static boolean isOffline(UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        return uuid.version() == OFFLINE_VERSION;
+    }
+
+    @Override
+    public PlayerRecord doLookup(UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        if (online != null && !isOffline(uuid)) return learn(online.doLookup(uuid));
+
+        String name = names.get(uuid);
+        return name == null ? new UnknownPlayerRecord(uuid) : offlineRecord(uuid, name);
+    }
+
+    @Override
+    public PlayerRecord doLookup(String playerName) {
+        if (playerName == null) throw new IllegalArgumentException();
+        if (online != null) {
+            PlayerRecord record = online.doLookup(playerName);
+            if (!UnknownPlayerRecord.isUnknown(record)) return learn(record);
+        }
+
+        UUID uuid = OfflineUuids.of(playerName);
+        names.put(uuid, playerName);
+        return offlineRecord(uuid, playerName);
+    }
+
+    @Override
+    public String[] getNameHistory(UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        if (online != null && !isOffline(uuid)) return online.getNameHistory(uuid);
+
+        String name = names.get(uuid);
+        return name == null ? new String[0] : new String[]{name};
+    }
+
+    @Override
+    public List<PlayerRecord> doBulkLookup(UUID... uuids) {
+        checkValues(uuids);
+
+        List<PlayerRecord> records = new ArrayList<>();
+        List<UUID> remote = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            if (online != null && !isOffline(uuid)) {
+                remote.add(uuid);
+                continue;
+            }
+            String name = names.get(uuid);
+            if (name != null) records.add(offlineRecord(uuid, name));
+        }
+
+        if (!remote.isEmpty()) {
+            List<PlayerRecord> fetched = online.doBulkLookup(remote.toArray(new UUID[remote.size()]));
+            if (fetched == null) return null;
+            for (PlayerRecord record : fetched) records.add(learn(record));
+        }
+        return records;
+    }
+
+    /**
+     * Looks up any number of names. With an online service, names it leaves out
+     * of its bulk result are each looked up on their own, and only those it then
+     * reports do not exist get their offline unique ID; names it fails to answer
+     * are left out.
+     */
+    @Override
+    public List<PlayerRecord> doBulkLookup(String... playerNames) {
+        checkValues(playerNames);
+        if (online == null) return toRecords(playerNames);
+
+        List<PlayerRecord> fetched = online.doBulkLookup(playerNames);
+        if (fetched == null) return null;
+
+        Set<String> found = new HashSet<>();
+        List<PlayerRecord> records = new ArrayList<>(playerNames.length);
+        for (PlayerRecord record : fetched) {
+            if (UnknownPlayerRecord.isUnknown(record)) continue;
+            records.add(learn(record));
+            found.add(record.getName().toLowerCase(Locale.ROOT));
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String name : playerNames) {
+            if (!found.contains(name.toLowerCase(Locale.ROOT))) missing.add(name);
+        }
+        if (missing.isEmpty()) return records;
+
+        // A name left out of a bulk result may be in a request which failed, so
+        // only names the online service says do not exist get offline unique IDs
+        List<PlayerRecord> confirmed = FanOut.map(missing, parallelism, name -> {
+            try {
+                return online.doLookup(name);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        });
+        List<String> unknown = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i++) {
+            PlayerRecord record = confirmed.get(i);
+            if (record == null) continue; // Still missing, left out rather than made up
+            if (UnknownPlayerRecord.isUnknown(record)) unknown.add(missing.get(i));
+            else records.add(learn(record));
+        }
+        records.addAll(toRecords(unknown.toArray(new String[unknown.size()])));
+        return records;
+    }
+
+    @Override
+    public int getMaxBulkLookupSize() {
+        return online == null ? -1 : online.getMaxBulkLookupSize();
+    }
+
+    @Override
+    public int getBulkRequestCount(int players, boolean byUuid) {
+        return online == null ? 0 : online.getBulkRequestCount(players, byUuid);
+    }
+
+    @Override
+    public PlayerRecord getRandomSample() {
+        List<PlayerRecord> records = getRandomSample(1);
+        if (records != null && !records.isEmpty()) return records.get(0);
+        return null;
+    }
+
+    /**
+     * Gets a random sample of player records. Without an online service, these
+     * are picked from the offline unique IDs the provider knows, and fewer than
+     * requested are returned if it does not know enough.
+     *
+     * @param amount the amount of player records to fetch, cannot be negative or zero
+     *
+     * @return the player records, or null if there is a connection problem
+     *
+     * @throws java.lang.IllegalArgumentException thrown for values less than or equal to zero
+     */
+    @Override
+    public List<PlayerRecord> getRandomSample(int amount) {
+        if (amount <= 0) throw new IllegalArgumentException();
+        if (online != null) return online.getRandomSample(amount);
+
+        List<Map.Entry<UUID, String>> known = new ArrayList<>(names.entrySet());
+        Collections.shuffle(known, ThreadLocalRandom.current());
+        List<PlayerRecord> records = new ArrayList<>();
+        for (Map.Entry<UUID, String> entry : known.subList(0, Math.min(amount, known.size()))) {
+            records.add(offlineRecord(entry.getKey(), entry.getValue()));
+        }
+        return records;
+    }
+
+    @Override
+    public String getServiceName() {
+        return online == null ? "Offline mode" : "Offline mode + " + online.getServiceName();
+    }
+
+    @Override
+    public CompletableFuture<PlayerRecord> doLookupAsync(UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        if (online == null || isOffline(uuid)) return CompletableFuture.completedFuture(doLookup(uuid));
+        return super.doLookupAsync(uuid);
+    }
+
+    @Override
+    public CompletableFuture<PlayerRecord> doLookupAsync(String playerName) {
+        if (playerName == null) throw new IllegalArgumentException();
+        if (online == null) return CompletableFuture.completedFuture(doLookup(playerName));
+        return super.doLookupAsync(playerName);
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> doBulkLookupAsync(String... playerNames) {
+        if (online == null) return CompletableFuture.completedFuture(doBulkLookup(playerNames));
+        return super.doBulkLookupAsync(playerNames);
+    }
+
+    /**
+     * Computes the offline records of the supplied names, remembering every one
+     */
+    private List<PlayerRecord> toRecords(String[] playerNames) {
+        checkValues(playerNames);
+
+        UUID[] uuids = OfflineUuids.of(playerNames, parallelism);
+        List<PlayerRecord> records = new ArrayList<>(uuids.length);
+        for (int i = 0; i < uuids.length; i++) {
+            names.put(uuids[i], playerNames[i]);
+            records.add(offlineRecord(uuids[i], playerNames[i]));
+        }
+        return records;
+    }
+
+    /**
+     * Remembers the offline unique ID of an online player's name, so that a
+     * lookup of it from an offline server in the same network is answered
+     */
+    private PlayerRecord learn(PlayerRecord record) {
+        if (record != null && !UnknownPlayerRecord.isUnknown(record) && record.getName() != null) {
+            UUID offline = record.getOfflineUuid();
+            names.put(offline != null ? offline : OfflineUuids.of(record.getName()), record.getName());
+        }
+        return record;
+    }
+
+    private static PlayerRecord offlineRecord(UUID uuid, String name) {
+        return new ImmutablePlayerRecord(uuid, name, uuid, true, -1, -1);
+    }
+
+    private static void checkValues(Object[] values) {
+        if (values == null) throw new IllegalArgumentException();
+        for (Object value : values) if (value == null) throw new IllegalArgumentException();
+    }
+}
@@ -17,7 +17,7 @@
 
 package com.turt2live.uuid.turt2live;
 
-import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.ImmutablePlayerRecord;
 
 import java.util.UUID;
 
@@ -26,14 +26,7 @@ import java.util.UUID;
  *
  * @author turt2live
  */
-public class Turt2LivePlayerRecord implements PlayerRecord {
-
-    private UUID uuid;
-    private UUID offlineUuid;
-    private String name;
-    private long expiresOn;
-    private long expiresIn;
-    private boolean cached;
+public class Turt2LivePlayerRecord extends ImmutablePlayerRecord {
 
     /**
      * Constructor for version 1 API
@@ -60,43 +53,6 @@ public class Turt2LivePlayerRecord implements PlayerRecord {
      * @throws java.lang.IllegalArgumentException thrown for null arguments
      */
     public Turt2LivePlayerRecord(UUID uuid, String name, UUID offlineUuid, long expiresIn, long expiresOn, boolean cached) {
-        if (uuid == null || name == null) throw new IllegalArgumentException();
-
-        this.uuid = uuid;
-        this.name = name;
-        this.offlineUuid = offlineUuid;
-        this.expiresIn = expiresIn;
-        this.expiresOn = expiresOn;
-        this.cached = cached;
-    }
-
-    @Override
-    public UUID getUuid() {
-        return uuid;
-    }
-
-    @Override
-    public UUID getOfflineUuid() {
-        return offlineUuid;
-    }
-
-    @Override
-    public String getName() {
-        return name;
-    }
-
-    @Override
-    public boolean isCached() {
-        return cached;
-    }
-
-    @Override
-    public long getExpirationTime() {
-        return expiresOn;
-    }
-
-    @Override
-    public long getTimeLeft() {
-        return expiresIn;
+        super(uuid, name, offlineUuid, cached, expiresOn, expiresIn);
     }
 }
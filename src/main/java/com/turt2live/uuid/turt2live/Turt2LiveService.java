@@ -18,21 +18,93 @@
 package com.turt2live.uuid.turt2live;
 
 import com.turt2live.uuid.PlayerRecord;
-import com.turt2live.uuid.ServiceProvider;
+import com.turt2live.uuid.AbstractAsyncServiceProvider;
+import com.turt2live.uuid.utils.FanOut;
 import com.turt2live.uuid.utils.HTTPUtils;
+import com.turt2live.uuid.utils.HttpTransport;
+import com.turt2live.uuid.utils.JsonDecoder;
+import com.turt2live.uuid.utils.JsonReader;
+import com.turt2live.uuid.utils.UuidCodec;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * Represents a UUID service hosted by turt2live (Travis Ralston).
+ * <p>
+ * Bulk lookups put every player in the URL, so large lookups are split into
+ * several requests, each with at most {@link #DEFAULT_MAX_BULK_PLAYERS} players
+ * and a URL of at most {@link #DEFAULT_MAX_URL_LENGTH} characters unless other
+ * limits are set. The requests are made {@link FanOut#DEFAULT_PARALLELISM} at a
+ * time and their players merged; players from a request which failed are left out.
  *
  * @author turt2live
  */
-public abstract class Turt2LiveService implements ServiceProvider {
+public abstract class Turt2LiveService extends AbstractAsyncServiceProvider {
+
+    /**
+     * The default maximum length of a bulk lookup URL, which most proxies and servers accept
+     */
+    public static final int DEFAULT_MAX_URL_LENGTH = 2000;
+
+    /**
+     * The default maximum number of players in a single bulk lookup request
+     */
+    public static final int DEFAULT_MAX_BULK_PLAYERS = 50;
+
+    private volatile HttpTransport transport;
+    private volatile int maxUrlLength = DEFAULT_MAX_URL_LENGTH;
+    private volatile int maxBulkPlayers = DEFAULT_MAX_BULK_PLAYERS;
+    private volatile int parallelism = FanOut.DEFAULT_PARALLELISM;
+
+    /**
+     * Gets the transport this service sends its requests through
+     *
+     * @return the transport in use, never null
+     */
+    public HttpTransport getTransport() {
+        HttpTransport transport = this.transport;
+        return transport == null ? HTTPUtils.getTransport() : transport;
+    }
+
+    /**
+     * Sets the transport this service sends its requests through
+     *
+     * @param transport the transport to use, or null to use {@link HTTPUtils#getTransport()}
+     */
+    public void setTransport(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Sets how bulk lookups are split into requests
+     *
+     * @param maxUrlLength   the maximum length of each request's URL, must be positive. A single
+     *                       player which does not fit is still sent on its own.
+     * @param maxBulkPlayers the maximum number of players in each request, must be positive
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive values
+     */
+    public void setBulkChunking(int maxUrlLength, int maxBulkPlayers) {
+        if (maxUrlLength <= 0 || maxBulkPlayers <= 0) throw new IllegalArgumentException();
+
+        this.maxUrlLength = maxUrlLength;
+        this.maxBulkPlayers = maxBulkPlayers;
+    }
+
+    /**
+     * Sets the number of requests a bulk lookup makes at once
+     *
+     * @param parallelism the number of requests at once, must be positive
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive values
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException();
+        this.parallelism = parallelism;
+    }
 
     /**
      * Converts a UUID to a service-safe UUID
@@ -46,7 +118,7 @@ public abstract class Turt2LiveService implements ServiceProvider {
     public String convertUuid(UUID uuid) {
         if (uuid == null) throw new IllegalArgumentException("UUID cannot be null");
 
-        return uuid.toString();
+        return UuidCodec.toString(uuid, true);
     }
 
     /**
@@ -61,17 +133,15 @@ public abstract class Turt2LiveService implements ServiceProvider {
      */
     public UUID convertUuid(String uuid) {
         if (uuid == null) throw new IllegalArgumentException("UUID cannot be null");
-        if (uuid.length() != 32) return null;
+        if (uuid.length() != UuidCodec.UNDASHED_LENGTH) return null;
 
-        String dashed = uuid.substring(0, 8) + "-" + uuid.substring(8, 12) + "-" + uuid.substring(12, 16) + "-" + uuid.substring(16, 20) + "-" + uuid.substring(20, 32);
-
-        UUID retUuid = null;
-        try {
-            retUuid = UUID.fromString(dashed);
-        } catch (Exception ignored) {
-        }
+        return UuidCodec.parse(uuid);
+    }
 
-        return retUuid;
+    @Override
+    public int getBulkRequestCount(int players, boolean byUuid) {
+        int size = maxBulkPlayers;
+        return (players + size - 1) / size; // Ignoring the URL length, which rarely comes first
     }
 
     /**
@@ -82,13 +152,291 @@ public abstract class Turt2LiveService implements ServiceProvider {
     public abstract String getConnectionUrl();
 
     /**
-     * Parses a player record from JSON
+     * Holds the fields of a player record as they are read from a response
+     */
+    protected static class RecordFields {
+        public UUID uuid;
+        public String name;
+        public UUID offlineUuid;
+        public long expiresIn;
+        public long expiresOn;
+        public boolean cached;
+        public boolean hasOfflineUuid, hasExpiresIn, hasExpiresOn;
+
+        /**
+         * True if the service reported the player as unknown
+         */
+        public boolean unknown;
+    }
+
+    /**
+     * Creates a player record from the fields read from a response
+     *
+     * @param fields the fields read, never null and never for an unknown player
+     *
+     * @return the player record, or null if the fields are incomplete
+     */
+    protected abstract PlayerRecord createPlayerRecord(RecordFields fields);
+
+    /**
+     * Parses a player record from JSON. The services no longer call this, as
+     * they decode responses while streaming them; it is kept so subclasses
+     * which call it keep working.
      *
      * @param json the JSON
      *
      * @return the player record, or null if not parsed
      */
-    protected abstract PlayerRecord parsePlayerRecord(String json);
+    protected PlayerRecord parsePlayerRecord(String json) {
+        if (json == null) return null;
+
+        try {
+            RecordFields fields = readRecordFields(new JsonReader(json));
+            return fields == null || fields.unknown ? null : createPlayerRecord(fields);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the fields of a single player record object
+     *
+     * @param reader the reader, positioned at the record
+     *
+     * @return the fields read, or null if the value is not an object
+     *
+     * @throws java.io.IOException thrown if the response is malformed
+     */
+    protected RecordFields readRecordFields(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        RecordFields fields = new RecordFields();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            boolean isNull = reader.peek() == JsonReader.Token.NULL;
+            if (isNull) reader.nextNull();
+
+            switch (key) {
+                case "uuid":
+                    if (!isNull && (fields.uuid = reader.nextUuid()) == null) fields.unknown = true;
+                    break;
+                case "name":
+                    if (!isNull && "unknown".equals(fields.name = reader.nextString())) fields.unknown = true;
+                    break;
+                case "offline-uuid":
+                    fields.hasOfflineUuid = true;
+                    if (!isNull) fields.offlineUuid = reader.nextUuid();
+                    break;
+                case "expires-in":
+                    fields.hasExpiresIn = true;
+                    if (!isNull) fields.expiresIn = reader.nextLong();
+                    break;
+                case "expires-on":
+                    fields.hasExpiresOn = true;
+                    if (!isNull) fields.expiresOn = reader.nextLong();
+                    break;
+                case "source":
+                    if (!isNull) fields.cached = "cache".equalsIgnoreCase(reader.nextString());
+                    break;
+                default:
+                    if (!isNull) reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return fields;
+    }
+
+    /**
+     * Requests a single player record
+     *
+     * @param url     the URL to request, cannot be null
+     * @param unknown the record to return if the service reports the player as unknown
+     *
+     * @return the player record, the unknown record, or null if there is a connection problem
+     */
+    protected PlayerRecord requestRecord(String url, final PlayerRecord unknown) {
+        return doUrlRequest(url, reader -> {
+            RecordFields fields = readRecordFields(reader);
+            if (fields == null) return null;
+            return fields.unknown ? unknown : createPlayerRecord(fields);
+        });
+    }
+
+    /**
+     * Requests a player's name history, held in the response's "names" array
+     *
+     * @param url the URL to request, cannot be null
+     *
+     * @return the names, or null if there is a connection problem
+     */
+    protected String[] requestNameHistory(String url) {
+        return doUrlRequest(url, reader -> {
+            String[] names = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("names")) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                List<String> list = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) list.add(reader.nextString());
+                reader.endArray();
+                names = list.toArray(new String[list.size()]);
+            }
+            reader.endObject();
+            return names;
+        });
+    }
+
+    /**
+     * Splits a bulk lookup into URLs of the form {@code baseUrl + "a;b;c"}, each
+     * within the configured URL length and player limits
+     *
+     * @param baseUrl the URL the list of values is appended to, cannot be null
+     * @param values  the values to look up, cannot be null, empty or contain null
+     *
+     * @return the URLs to request, in the order of the values
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null or empty arguments
+     */
+    protected List<String> combine(String baseUrl, Object... values) {
+        if (baseUrl == null || values == null || values.length == 0) throw new IllegalArgumentException();
+
+        int maxLength = maxUrlLength, maxPlayers = maxBulkPlayers;
+        List<String> urls = new ArrayList<>();
+        StringBuilder builder = new StringBuilder(baseUrl);
+        int players = 0;
+        for (Object o : values) {
+            if (o == null) throw new IllegalArgumentException();
+
+            String value = o.toString();
+            if (players > 0 && (players == maxPlayers || builder.length() + 1 + value.length() > maxLength)) {
+                urls.add(builder.toString());
+                builder.setLength(baseUrl.length());
+                players = 0;
+            }
+            if (players > 0) builder.append(';');
+            builder.append(value);
+            players++;
+        }
+        urls.add(builder.toString());
+        return urls;
+    }
+
+    /**
+     * Requests a bulk lookup of any size, split by {@link #combine(String, Object...)}
+     * into requests which are made concurrently. Players from requests which
+     * failed are left out.
+     *
+     * @param baseUrl the URL the list of values is appended to, cannot be null
+     * @param values  the values to look up, cannot be null, empty or contain null
+     * @param byUuid  true if the results are keyed by UUID, false if keyed by name
+     *
+     * @return the player records, or null if every request had a connection problem
+     */
+    protected List<PlayerRecord> requestBulk(String baseUrl, Object[] values, final boolean byUuid) {
+        List<String> urls = combine(baseUrl, values);
+        if (urls.size() == 1) return requestBulk(urls.get(0), byUuid);
+
+        List<PlayerRecord> records = null;
+        for (List<PlayerRecord> chunk : FanOut.map(urls, parallelism, url -> requestBulk(url, byUuid))) {
+            if (chunk == null) continue;
+            if (records == null) records = new ArrayList<>();
+            records.addAll(chunk);
+        }
+        return records;
+    }
+
+    /**
+     * Requests a bulk lookup, held in the response's "results" object. Results are
+     * keyed by UUID with the name (or an object holding the name) as the value, or
+     * keyed by name with the UUID as the value. Unknown players are skipped.
+     *
+     * @param url    the URL to request, cannot be null
+     * @param byUuid true if the results are keyed by UUID, false if keyed by name
+     *
+     * @return the player records, or null if there is a connection problem
+     */
+    protected List<PlayerRecord> requestBulk(String url, final boolean byUuid) {
+        return doUrlRequest(url, reader -> {
+            List<PlayerRecord> records = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("results")) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                records = new ArrayList<>();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    UUID uuid;
+                    String name;
+                    if (byUuid) {
+                        uuid = reader.nextNameAsUuid();
+                        if (reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                            RecordFields fields = readRecordFields(reader);
+                            name = fields.name;
+                        } else {
+                            name = reader.nextString();
+                        }
+                    } else {
+                        name = reader.nextName();
+                        uuid = reader.nextUuid();
+                    }
+
+                    if (uuid == null || name == null || name.equals("unknown")) continue;
+                    records.add(new Turt2LivePlayerRecord(uuid, name));
+                }
+                reader.endObject();
+            }
+            reader.endObject();
+            return records;
+        });
+    }
+
+    /**
+     * Requests a random sample of player records, held either in the response's
+     * top level array or in its "results" array
+     *
+     * @param url the URL to request, cannot be null
+     *
+     * @return the player records, or null if there is a connection problem
+     */
+    protected List<PlayerRecord> requestSample(String url) {
+        return doUrlRequest(url, reader -> {
+            if (reader.peek() == JsonReader.Token.BEGIN_ARRAY) return readRecords(reader);
+
+            List<PlayerRecord> records = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("results")) records = readRecords(reader);
+                else reader.skipValue();
+            }
+            reader.endObject();
+            return records;
+        });
+    }
+
+    private List<PlayerRecord> readRecords(JsonReader reader) throws IOException {
+        List<PlayerRecord> records = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            RecordFields fields = readRecordFields(reader);
+            if (fields == null || fields.unknown) continue;
+
+            PlayerRecord record = createPlayerRecord(fields);
+            if (record != null) records.add(record);
+        }
+        reader.endArray();
+        return records;
+    }
 
     /**
      * Performs a URL request, returning the content of the URL
@@ -100,7 +448,24 @@ public abstract class Turt2LiveService implements ServiceProvider {
      * @throws java.lang.IllegalArgumentException thrown for null arguments
      */
     protected String doUrlRequest(String url) {
-        return HTTPUtils.get(url);
+        String response = HTTPUtils.get(getTransport(), url);
+        return response == null || response.isEmpty() ? null : response;
     }
 
+    /**
+     * Performs a URL request, decoding the content of the URL as it is read
+     *
+     * @param url     the URL to connect to, cannot be null
+     * @param decoder the decoder for the content, cannot be null
+     * @param <T>     the type of value decoded
+     *
+     * @return the decoded value, may be null in the event of connection failure
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    protected <T> T doUrlRequest(String url, JsonDecoder<T> decoder) {
+        if (url == null || decoder == null) throw new IllegalArgumentException();
+
+        return HTTPUtils.getJson(getTransport(), url, decoder, null);
+    }
 }
@@ -18,22 +18,20 @@
 package com.turt2live.uuid.turt2live.v1;
 
 import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.UnknownPlayerRecord;
 import com.turt2live.uuid.turt2live.Turt2LivePlayerRecord;
 import com.turt2live.uuid.turt2live.Turt2LiveService;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
-
-import java.util.ArrayList;
+import com.turt2live.uuid.utils.UuidCodec;
 import java.util.List;
 import java.util.UUID;
 
 /**
  * Represents a service for http://uuid.turt2live.com/v1
  * <p/>
- * This service has a bulk lookup limit of 50 players and will not include
- * duplicates or skipped records in returning sets. Additionally, the player
- * history will not include the player's current name.
+ * This service has a bulk lookup limit of 50 players, larger lookups are
+ * split into several requests, and will not include duplicates or skipped
+ * records in returning sets. Additionally, the player history will not
+ * include the player's current name.
  * <p/>
  * Records returned from this API service are not known to expire or to be
  * cached and instead have default values returned.
@@ -46,7 +44,7 @@ public class ApiV1Service extends Turt2LiveService {
     @Override
     public String convertUuid(UUID uuid) {
         if (uuid == null) throw new IllegalArgumentException("UUID cannot be null");
-        return uuid.toString().replace("-", "");
+        return UuidCodec.toString(uuid, false);
     }
 
     @Override
@@ -55,128 +53,36 @@ public class ApiV1Service extends Turt2LiveService {
     }
 
     @Override
-    protected PlayerRecord parsePlayerRecord(String json) {
-        if (json == null) return null;
-
-        JSONObject jsonValue = (JSONObject) JSONValue.parse(json);
-        if (jsonValue.containsKey("uuid") && jsonValue.containsKey("name")) {
-            String uuidStr = (String) jsonValue.get("uuid");
-            String name = (String) jsonValue.get("name");
-
-            if (name.equals("unknown") || uuidStr.equals("unknown")) return null;
-
-            UUID uuid = convertUuid(uuidStr);
-
-            return new Turt2LivePlayerRecord(uuid, name);
-        }
+    protected PlayerRecord createPlayerRecord(RecordFields fields) {
+        if (fields.uuid == null || fields.name == null) return null;
 
-        return null;
+        return new Turt2LivePlayerRecord(fields.uuid, fields.name);
     }
 
     @Override
     public PlayerRecord doLookup(UUID uuid) {
-        return parsePlayerRecord(doUrlRequest(getConnectionUrl() + "/name/" + convertUuid(uuid)));
+        return requestRecord(getConnectionUrl() + "/name/" + convertUuid(uuid), new UnknownPlayerRecord(uuid));
     }
 
     @Override
     public PlayerRecord doLookup(String playerName) {
         if (playerName == null) throw new IllegalArgumentException();
-        return parsePlayerRecord(doUrlRequest(getConnectionUrl() + "/uuid/" + playerName));
+        return requestRecord(getConnectionUrl() + "/uuid/" + playerName, new UnknownPlayerRecord(playerName));
     }
 
     @Override
     public String[] getNameHistory(UUID uuid) {
-        String response = doUrlRequest(getConnectionUrl() + "/history/" + convertUuid(uuid));
-        if (response != null) {
-            JSONObject json = (JSONObject) JSONValue.parse(response);
-
-            if (json.containsKey("names")) {
-                JSONArray array = (JSONArray) json.get("names");
-                String[] names = new String[array.size()];
-
-                int i = 0;
-                for (Object o : array) {
-                    names[i] = o.toString();
-                    i++;
-                }
-
-                return names;
-            }
-        }
-
-        return null;
+        return requestNameHistory(getConnectionUrl() + "/history/" + convertUuid(uuid));
     }
 
     @Override
     public List<PlayerRecord> doBulkLookup(UUID... uuids) {
-        String list = combine(uuids);
-        String response = doUrlRequest(getConnectionUrl() + "/name/list/" + list);
-
-        if (response != null) {
-            JSONObject json = (JSONObject) JSONValue.parse(response);
-
-            if (json.containsKey("results")) {
-                JSONObject object = (JSONObject) json.get("results");
-                List<PlayerRecord> records = new ArrayList<>();
-
-                for (Object key : object.keySet()) {
-                    UUID uuid = convertUuid(key.toString());
-                    String name = (String) ((JSONObject) object.get(key)).get("name");
-
-                    if (uuid == null || name.equals("unknown")) continue;
-
-                    PlayerRecord record = new Turt2LivePlayerRecord(uuid, name);
-                    records.add(record);
-                }
-
-                return records;
-            }
-        }
-
-        return null;
+        return requestBulk(getConnectionUrl() + "/name/list/", uuids, true);
     }
 
     @Override
     public List<PlayerRecord> doBulkLookup(String... playerNames) {
-        String list = combine(playerNames);
-        String response = doUrlRequest(getConnectionUrl() + "/uuid/list/" + list);
-
-        if (response != null) {
-            JSONObject json = (JSONObject) JSONValue.parse(response);
-
-            if (json.containsKey("results")) {
-                JSONObject object = (JSONObject) json.get("results");
-                List<PlayerRecord> records = new ArrayList<>();
-
-                for (Object key : object.keySet()) {
-                    String name = key.toString();
-                    UUID uuid = convertUuid((String) object.get(key));
-
-                    if (uuid == null || name.equals("unknown")) continue;
-
-                    PlayerRecord record = new Turt2LivePlayerRecord(uuid, name);
-                    records.add(record);
-                }
-
-                return records;
-            }
-        }
-
-        return null;
-    }
-
-    private String combine(Object... values) {
-        if (values == null || values.length == 0) throw new IllegalArgumentException();
-
-        StringBuilder builder = new StringBuilder();
-
-        for (Object o : values) {
-            if (o == null) throw new IllegalArgumentException();
-
-            builder.append(o.toString()).append(";");
-        }
-
-        return builder.substring(0, builder.length() - 1);
+        return requestBulk(getConnectionUrl() + "/uuid/list/", playerNames, false);
     }
 
     @Override
@@ -190,19 +96,7 @@ public class ApiV1Service extends Turt2LiveService {
     public List<PlayerRecord> getRandomSample(int amount) {
         if (amount <= 0) throw new IllegalArgumentException();
 
-        String response = doUrlRequest(getConnectionUrl() + "/random/" + amount);
-        if (response == null || response.length() <= 2) return null;
-
-        JSONArray array = (JSONArray) JSONValue.parse(response);
-        List<PlayerRecord> records = new ArrayList<>();
-
-        for (Object o : array) {
-            PlayerRecord record = parsePlayerRecord(o.toString());
-
-            if (record != null) records.add(record);
-        }
-
-        return records;
+        return requestSample(getConnectionUrl() + "/random/" + amount);
     }
 
     @Override
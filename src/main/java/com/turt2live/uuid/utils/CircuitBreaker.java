@@ -0,0 +1,422 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the health of a single upstream service so that calls to it can
+ * fail fast while it is down, instead of each one waiting on a timeout.
+ * <p>
+ * While {@link State#CLOSED}, calls are allowed and the outcome of the most recent
+ * ones is kept. Once enough of them failed, or were slow, the breaker opens. While
+ * {@link State#OPEN}, every call is rejected without any locking. After the open
+ * duration the breaker is {@link State#HALF_OPEN} and lets a few probe calls
+ * through: if they all succeed it closes again, otherwise it opens for another
+ * open duration.
+ * <p>
+ * Callers must report the outcome of every call {@link #tryAcquire()} allowed,
+ * through {@link #onSuccess(long, long)}, {@link #onFailure(long, long)} or
+ * {@link #release(long)}, passing the permit it returned. The permit tells
+ * probes apart from calls which were allowed before the breaker opened, so a
+ * call that started while closed and ends while half open is not mistaken for
+ * a probe. This class is safe for use by multiple threads at once.
+ *
+ * @author turt2live
+ */
+public class CircuitBreaker {
+
+    /**
+     * Represents the state of a circuit breaker
+     */
+    public enum State {
+        /**
+         * Calls are allowed and their outcomes recorded
+         */
+        CLOSED,
+        /**
+         * Calls are rejected
+         */
+        OPEN,
+        /**
+         * A limited number of probe calls are allowed to test the service
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Represents a listener for a breaker's state changes. Listeners are called
+     * on the thread which caused the change and should return quickly.
+     */
+    public interface Listener {
+
+        /**
+         * Called after a breaker changed state
+         *
+         * @param breaker the breaker which changed state
+         * @param from    the previous state
+         * @param to      the new state
+         */
+        public void onStateChange(CircuitBreaker breaker, State from, State to);
+    }
+
+    /**
+     * The default number of recent calls whose outcome is kept
+     */
+    public static final int DEFAULT_WINDOW = 20;
+
+    /**
+     * The default number of calls needed in the window before the breaker can open
+     */
+    public static final int DEFAULT_MINIMUM_CALLS = 10;
+
+    /**
+     * The default share of failed calls which opens the breaker
+     */
+    public static final double DEFAULT_FAILURE_RATE = 0.5;
+
+    /**
+     * The default share of slow calls which opens the breaker
+     */
+    public static final double DEFAULT_SLOW_CALL_RATE = 0.8;
+
+    /**
+     * The default time, in milliseconds, after which a call counts as slow
+     */
+    public static final long DEFAULT_SLOW_CALL_DURATION = 5000;
+
+    /**
+     * The default time, in milliseconds, the breaker stays open
+     */
+    public static final long DEFAULT_OPEN_DURATION = 30000;
+
+    /**
+     * The default number of probe calls allowed while half open
+     */
+    public static final int DEFAULT_PROBES = 3;
+
+    /**
+     * The permit {@link #tryAcquire()} returns for a call which must fail fast
+     */
+    public static final long REJECTED = -1;
+
+    private static final long CALL = 0; // Permit of calls allowed while closed, probes get their round
+    private static final byte SUCCESS = 0, FAILURE = 1, SLOW = 2; // Outcome flags
+
+    private final String name;
+    private final byte[] outcomes;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+    private double failureRate = DEFAULT_FAILURE_RATE;
+    private double slowCallRate = DEFAULT_SLOW_CALL_RATE;
+    private long slowCallDuration = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_CALL_DURATION);
+    private long openDuration = TimeUnit.MILLISECONDS.toNanos(DEFAULT_OPEN_DURATION);
+    private int probes = DEFAULT_PROBES;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openUntil;
+    private int calls, next, failures, slowCalls;
+    private int probesStarted, probesSucceeded;
+    private long round; // Counts the times the breaker went half open
+
+    /**
+     * Creates a new breaker keeping the outcome of the last {@link #DEFAULT_WINDOW} calls
+     *
+     * @param name the name of the service this breaker protects, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public CircuitBreaker(String name) {
+        this(name, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Creates a new breaker
+     *
+     * @param name   the name of the service this breaker protects, cannot be null
+     * @param window the number of recent calls whose outcome is kept, must be positive
+     *
+     * @throws java.lang.IllegalArgumentException thrown for a null name or non-positive window
+     */
+    public CircuitBreaker(String name, int window) {
+        if (name == null || window <= 0) throw new IllegalArgumentException();
+
+        this.name = name;
+        this.outcomes = new byte[window];
+    }
+
+    /**
+     * Sets when failed calls open the breaker
+     *
+     * @param failureRate  the share of failed calls in the window which opens the breaker, above
+     *                     zero and at most one
+     * @param minimumCalls the number of calls needed in the window before the breaker can open,
+     *                     must be positive and no larger than the window
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    public synchronized void setFailureThreshold(double failureRate, int minimumCalls) {
+        if (!(failureRate > 0 && failureRate <= 1) || minimumCalls <= 0 || minimumCalls > outcomes.length) {
+            throw new IllegalArgumentException();
+        }
+
+        this.failureRate = failureRate;
+        this.minimumCalls = minimumCalls;
+    }
+
+    /**
+     * Sets when slow calls open the breaker. Slow calls which succeed still count
+     * towards this, and a slow probe reopens a half open breaker.
+     *
+     * @param slowCallRate the share of slow calls in the window which opens the breaker, above
+     *                     zero and at most one
+     * @param duration     the time after which a call counts as slow, must be positive
+     * @param unit         the unit of the duration, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid arguments
+     */
+    public synchronized void setSlowCallThreshold(double slowCallRate, long duration, TimeUnit unit) {
+        if (!(slowCallRate > 0 && slowCallRate <= 1) || duration <= 0 || unit == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.slowCallRate = slowCallRate;
+        this.slowCallDuration = unit.toNanos(duration);
+    }
+
+    /**
+     * Sets how long the breaker stays open before probing the service
+     *
+     * @param time the open duration, must be positive
+     * @param unit the unit of the duration, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive times or a null unit
+     */
+    public synchronized void setOpenDuration(long time, TimeUnit unit) {
+        if (time <= 0 || unit == null) throw new IllegalArgumentException();
+        this.openDuration = unit.toNanos(time);
+    }
+
+    /**
+     * Sets the number of probe calls which must succeed to close a half open breaker
+     *
+     * @param probes the number of probe calls, must be positive
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive values
+     */
+    public synchronized void setProbes(int probes) {
+        if (probes <= 0) throw new IllegalArgumentException();
+        this.probes = probes;
+    }
+
+    /**
+     * Adds a listener for this breaker's state changes
+     *
+     * @param listener the listener to add, cannot be null
+     */
+    public void addListener(Listener listener) {
+        if (listener == null) throw new IllegalArgumentException();
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener previously added
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Asks to make a call to the service
+     *
+     * @return the permit to report the call's outcome with, or {@link #REJECTED} if
+     * it must fail fast
+     */
+    public long tryAcquire() {
+        State current = state;
+        if (current == State.CLOSED) return CALL;
+        if (current == State.OPEN && System.nanoTime() - openUntil < 0) {
+            rejected.incrementAndGet();
+            return REJECTED;
+        }
+
+        State from;
+        long permit;
+        synchronized (this) {
+            from = state;
+            if (from == State.CLOSED) return CALL;
+            if (from == State.OPEN) {
+                if (System.nanoTime() - openUntil < 0) {
+                    rejected.incrementAndGet();
+                    return REJECTED;
+                }
+                state = State.HALF_OPEN;
+                round++;
+                probesStarted = 0;
+                probesSucceeded = 0;
+            }
+            if (probesStarted >= probes) {
+                rejected.incrementAndGet();
+                return REJECTED;
+            }
+            probesStarted++;
+            permit = round;
+        }
+        if (from == State.OPEN) fire(State.OPEN, State.HALF_OPEN);
+        return permit;
+    }
+
+    /**
+     * Reports that a call allowed by {@link #tryAcquire()} succeeded
+     *
+     * @param permit the permit the call was allowed with
+     * @param nanos  the time the call took, in nanoseconds
+     */
+    public void onSuccess(long permit, long nanos) {
+        record(permit, false, nanos);
+    }
+
+    /**
+     * Reports that a call allowed by {@link #tryAcquire()} failed
+     *
+     * @param permit the permit the call was allowed with
+     * @param nanos  the time the call took, in nanoseconds
+     */
+    public void onFailure(long permit, long nanos) {
+        record(permit, true, nanos);
+    }
+
+    /**
+     * Reports that a call allowed by {@link #tryAcquire()} ended without saying
+     * anything about the service's health, such as when it was rejected locally
+     *
+     * @param permit the permit the call was allowed with
+     */
+    public synchronized void release(long permit) {
+        if (state == State.HALF_OPEN && permit == round && probesStarted > 0) probesStarted--;
+    }
+
+    private void record(long permit, boolean failed, long nanos) {
+        State from, to;
+        synchronized (this) {
+            byte outcome = (byte) ((failed ? FAILURE : SUCCESS) | (nanos >= slowCallDuration ? SLOW : SUCCESS));
+            from = state;
+            to = from;
+            if (from == State.HALF_OPEN) {
+                if (permit != round) return; // Not one of this round's probes, so it says nothing new
+                if (outcome != SUCCESS) to = open();
+                else if (++probesSucceeded >= probes) to = close();
+            } else if (from == State.CLOSED) {
+                add(outcome);
+                if (calls >= minimumCalls && (failures >= failureRate * calls || slowCalls >= slowCallRate * calls)) {
+                    to = open();
+                }
+            } // Calls which started before the breaker opened say nothing new
+        }
+        if (from != to) fire(from, to);
+    }
+
+    private void add(byte outcome) {
+        if (calls == outcomes.length) {
+            byte oldest = outcomes[next];
+            if ((oldest & FAILURE) != 0) failures--;
+            if ((oldest & SLOW) != 0) slowCalls--;
+        } else {
+            calls++;
+        }
+        outcomes[next] = outcome;
+        next = (next + 1) % outcomes.length;
+        if ((outcome & FAILURE) != 0) failures++;
+        if ((outcome & SLOW) != 0) slowCalls++;
+    }
+
+    private State open() {
+        openUntil = System.nanoTime() + openDuration;
+        state = State.OPEN;
+        return State.OPEN;
+    }
+
+    private State close() {
+        calls = next = failures = slowCalls = 0;
+        state = State.CLOSED;
+        return State.CLOSED;
+    }
+
+    private void fire(State from, State to) {
+        for (Listener listener : listeners) listener.onStateChange(this, from, to);
+    }
+
+    /**
+     * Gets the name of the service this breaker protects
+     *
+     * @return the service name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the current state of this breaker. An open breaker whose open duration
+     * has passed only becomes half open on the next call.
+     *
+     * @return the current state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the share of failed calls in the current window
+     *
+     * @return the failure rate, between 0 and 1
+     */
+    public synchronized double getFailureRate() {
+        return calls == 0 ? 0 : failures / (double) calls;
+    }
+
+    /**
+     * Gets the share of slow calls in the current window
+     *
+     * @return the slow call rate, between 0 and 1
+     */
+    public synchronized double getSlowCallRate() {
+        return calls == 0 ? 0 : slowCalls / (double) calls;
+    }
+
+    /**
+     * Gets the number of calls rejected because this breaker was open
+     *
+     * @return the number of rejected calls
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{" + name + ", " + state + "}";
+    }
+}
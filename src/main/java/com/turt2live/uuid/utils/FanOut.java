@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Runs a blocking function, such as a lookup, over many inputs at once. The
+ * calling thread does its share of the work and borrows up to
+ * {@code parallelism - 1} helper threads from a small shared pool. A helper
+ * which cannot be borrowed is simply left out, so a busy pool slows a call down
+ * but can never deadlock it, even when the caller itself is a pool thread.
+ * <p>
+ * The number of requests this can put on the wire is still bounded by the
+ * transport's per-host limit and rate limiter.
+ *
+ * @author turt2live
+ */
+public class FanOut {
+
+    /**
+     * The default number of inputs worked on at once
+     */
+    public static final int DEFAULT_PARALLELISM = UrlConnectionTransport.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+    private static final int MAX_HELPERS = 64;
+    private static final ThreadPoolExecutor HELPERS;
+
+    static {
+        final AtomicInteger count = new AtomicInteger();
+        HELPERS = new ThreadPoolExecutor(0, MAX_HELPERS, 30, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "UUID-Library Fan-out #" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private FanOut() {
+    }
+
+    /**
+     * Applies a function to every input, with at most the given number of inputs
+     * being worked on at once, and waits for all of them. An input for which the
+     * function threw an exception gets a null result, so the other results are
+     * still returned; only if the function threw for every input is the first
+     * exception rethrown.
+     *
+     * @param inputs      the inputs, cannot be null
+     * @param parallelism the maximum number of inputs worked on at once, must be positive
+     * @param function    the function to apply, cannot be null. Must be safe to call from several threads.
+     * @param <T>         the type of input
+     * @param <R>         the type of result
+     *
+     * @return the results, in the same order as the inputs
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments or a non-positive parallelism
+     */
+    public static <T, R> List<R> map(final List<T> inputs, int parallelism, final Function<? super T, ? extends R> function) {
+        if (inputs == null || function == null || parallelism <= 0) throw new IllegalArgumentException();
+
+        final int size = inputs.size();
+        final Object[] results = new Object[size];
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicReference<RuntimeException> firstFailure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < size) {
+                try {
+                    results[index] = function.apply(inputs.get(index));
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                    firstFailure.compareAndSet(null, e);
+                }
+            }
+        };
+
+        int helpers = Math.min(parallelism, size) - 1;
+        final CountDownLatch done = new CountDownLatch(Math.max(0, helpers));
+        for (int i = 0; i < helpers; i++) {
+            try {
+                HELPERS.execute(() -> {
+                    try {
+                        worker.run();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                done.countDown(); // Pool is full, the others pick up the slack
+            }
+        }
+        worker.run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await(); // By now the helpers are only finishing their last input
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        if (size > 0 && failures.get() == size) throw firstFailure.get();
+
+        @SuppressWarnings("unchecked")
+        List<R> list = (List<R>) new ArrayList<>(Arrays.asList(results));
+        return list;
+    }
+}
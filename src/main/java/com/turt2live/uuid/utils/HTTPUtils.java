@@ -1,12 +1,8 @@
 package com.turt2live.uuid.utils;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.URL;
-import java.net.URLConnection;
-import java.net.HttpURLConnection;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -17,97 +13,154 @@ public class HTTPUtils {
     public static final String JSON_TYPE = "application/json";
     public static final String TEXT_TYPE = "text/plain";
 
+    /**
+     * The content encodings the transports accept unless a request asks for others
+     */
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final Logger LOGGER = Logger.getLogger(HTTPUtils.class.getName());
+
+    private static volatile HttpTransport transport = new RateLimitedTransport(new UrlConnectionTransport());
+
+    /**
+     * Gets the transport used by requests which do not supply their own. By default
+     * this is paced by {@link RateLimiter#getShared()}.
+     *
+     * @return the default transport
+     */
+    public static HttpTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the transport used by requests which do not supply their own
+     *
+     * @param transport the new default transport, cannot be null
+     */
+    public static void setTransport(HttpTransport transport) {
+        if (transport == null) throw new IllegalArgumentException("Transport cannot be null");
+        HTTPUtils.transport = transport;
+    }
+
     public static String get(String rawUrl) {
-        BufferedReader reader = null;
+        return get(transport, rawUrl);
+    }
+
+    public static String get(HttpTransport transport, String rawUrl) {
         try {
-            URL url = new URL(rawUrl);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            
-            if (connection.getResponseCode() == 429) throw new RateLimitedException(connection.getResponseMessage());
-            
-            reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            StringBuffer result = new StringBuffer();
-            String line;
-            while ((line = reader.readLine()) != null) result.append(line);
-            return result.toString();
+            HttpResponse response = transport.execute(new HttpRequest("GET", rawUrl));
+            int responseCode = response.getStatus();
+            if (responseCode == 429) throw new RateLimitedException(response.getMessage());
+            if (responseCode == 204 || responseCode == 404) return ""; // Nothing there, as opposed to a connection problem
+            if (responseCode >= 300) return null;
+            return response.getBodyAsString();
         } catch (IOException ex) {
-            ex.printStackTrace();
-            return null;
-        } finally {
-            try {
-                if (reader != null) reader.close();
-            } catch (IOException ex) {
-                ex.printStackTrace();
-                return null;
-            }
+            return failed(rawUrl, ex);
         }
     }
 
     public static String post(String rawUrl, String body, String contentType) {
-        BufferedReader reader = null;
-        OutputStream out = null;
-        
+        return post(transport, rawUrl, body, contentType);
+    }
+
+    public static String post(HttpTransport transport, String rawUrl, String body, String contentType) {
         try {
-            URL url = new URL(rawUrl);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.setDoInput(true);
-            connection.setRequestProperty("Content-Type", contentType);
-            out = connection.getOutputStream();
-            out.write(body.getBytes());
-            if (connection.getResponseCode() == 429) throw new RateLimitedException(connection.getResponseMessage());
-            reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            StringBuffer result = new StringBuffer();
-            String line;
-            while ((line = reader.readLine()) != null) result.append(line);
-            return result.toString();
+            HttpResponse response = transport.execute(new HttpRequest("POST", rawUrl).setBody(body, contentType));
+            if (response.getStatus() == 429) throw new RateLimitedException(response.getMessage());
+            if (response.getStatus() >= 300) return null;
+            return response.getBodyAsString();
         } catch (IOException ex) {
-            ex.printStackTrace();
-            return null;
-        } finally {
-            try {
-                if (out != null) out.close();
-                if (reader != null) reader.close();
-            } catch (IOException ex) {
-                ex.printStackTrace();
-                return null;
-            }
+            return failed(rawUrl, ex);
         }
     }
     
-    private static final JSONParser PARSER = new JSONParser();
-    
     public static Object postJson(String url, JSONObject body) {
         if (body == null) return null;
-        String rawBody = body.toString();
-        String rawResponse = post(url, rawBody, JSON_TYPE);
-        if (rawResponse == null) return null;
-        try {
-            return PARSER.parse(rawResponse);
-        } catch (Exception e) {
-            return null;
-        }
+        return parseJson(post(url, body.toString(), JSON_TYPE));
     }
     
     public static Object postJson(String url, JSONArray body) {
         if (body == null) return null;
-        String rawBody = body.toString();
-        String rawResponse = post(url, rawBody, JSON_TYPE);
-        if (rawResponse == null) return null;
+        return parseJson(post(url, body.toString(), JSON_TYPE));
+    }
+    
+    /**
+     * Requests a URL and decodes the JSON response as it is read, without building
+     * a string or tree of the whole response
+     *
+     * @param transport the transport to send the request through, cannot be null
+     * @param rawUrl    the URL to request, cannot be null
+     * @param decoder   the decoder for the response, cannot be null
+     * @param missing   the value to return if the service has nothing at the URL
+     * @param <T>       the type of value decoded
+     *
+     * @return the decoded value, the missing value, or null if there is a connection
+     * problem or the response could not be decoded
+     */
+    public static <T> T getJson(HttpTransport transport, String rawUrl, JsonDecoder<T> decoder, T missing) {
         try {
-            return PARSER.parse(rawResponse);
-        } catch (Exception e) {
-            return null;
+            HttpResponse response = transport.execute(new HttpRequest("GET", rawUrl));
+            int responseCode = response.getStatus();
+            if (responseCode == 429) throw new RateLimitedException(response.getMessage());
+            if (responseCode == 204 || responseCode == 404) return missing;
+            if (responseCode >= 300) return null;
+            return decode(response, decoder);
+        } catch (IOException ex) {
+            return failed(rawUrl, ex);
         }
     }
-    
+
+    /**
+     * Posts to a URL and decodes the JSON response as it is read, without building
+     * a string or tree of the whole response
+     *
+     * @param transport the transport to send the request through, cannot be null
+     * @param rawUrl    the URL to post to, cannot be null
+     * @param body      the JSON body to post, cannot be null
+     * @param decoder   the decoder for the response, cannot be null
+     * @param <T>       the type of value decoded
+     *
+     * @return the decoded value, or null if there is a connection problem or the
+     * response could not be decoded
+     */
+    public static <T> T postJson(HttpTransport transport, String rawUrl, String body, JsonDecoder<T> decoder) {
+        try {
+            HttpResponse response = transport.execute(new HttpRequest("POST", rawUrl).setBody(body, JSON_TYPE));
+            if (response.getStatus() == 429) throw new RateLimitedException(response.getMessage());
+            if (response.getStatus() >= 300) return null;
+            return decode(response, decoder);
+        } catch (IOException ex) {
+            return failed(rawUrl, ex);
+        }
+    }
+
+    /**
+     * Logs a failed request at {@link Level#FINE}. A service which is down fails
+     * every request, so anything louder would flood the log; the callers already
+     * report the failure by returning null.
+     */
+    private static <T> T failed(String rawUrl, IOException ex) {
+        if (LOGGER.isLoggable(Level.FINE)) LOGGER.log(Level.FINE, "Request to " + rawUrl + " failed", ex);
+        return null;
+    }
+
+    private static <T> T decode(HttpResponse response, JsonDecoder<T> decoder) {
+        if (response.getRawBody().length == 0) return null;
+        try (JsonReader reader = new JsonReader(response.getBodyStream())) {
+            return decoder.decode(reader);
+        } catch (IOException e) {
+            return null; // Malformed, as opposed to a connection problem
+        }
+    }
+
     public static Object getJson(String url) {
-        String rawResponse = get(url);
+        return parseJson(get(url));
+    }
+    
+    public static Object parseJson(String rawResponse) {
         if (rawResponse == null) return null;
         try {
-            return PARSER.parse(rawResponse);
+            return new JSONParser().parse(rawResponse); // Parsers keep state, so they cannot be shared between threads
         } catch (Exception e) {
             return null;
         }
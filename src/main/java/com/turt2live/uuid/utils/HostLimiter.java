@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of requests in flight to each host
+ *
+ * @author turt2live
+ */
+class HostLimiter {
+
+    private final int maximum;
+    private final ConcurrentMap<String, Semaphore> hosts = new ConcurrentHashMap<>();
+
+    HostLimiter(int maximum) {
+        if (maximum <= 0) throw new IllegalArgumentException("Maximum connections per host must be positive");
+
+        this.maximum = maximum;
+    }
+
+    int getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Waits until a request may be sent to the URL's host. The returned permit
+     * must be released once the response has been read.
+     */
+    Semaphore acquire(URL url) throws InterruptedIOException {
+        Semaphore permits = hosts.get(key(url));
+        if (permits == null) {
+            Semaphore created = new Semaphore(maximum, true);
+            permits = hosts.putIfAbsent(key(url), created);
+            if (permits == null) permits = created;
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a connection to " + url.getHost());
+        }
+        return permits;
+    }
+
+    static URL parse(String url) throws MalformedURLException {
+        URL parsed = new URL(url);
+        if (!"http".equals(parsed.getProtocol()) && !"https".equals(parsed.getProtocol())) {
+            throw new MalformedURLException("Not a HTTP URL: " + url);
+        }
+        return parsed;
+    }
+
+    private static String key(URL url) {
+        int port = url.getPort() < 0 ? url.getDefaultPort() : url.getPort();
+        return url.getProtocol() + "://" + url.getHost() + ":" + port;
+    }
+}
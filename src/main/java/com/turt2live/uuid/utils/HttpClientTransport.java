@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link HttpTransport} built on the {@link HttpClient} added in Java 11. The
+ * client pools connections itself and can negotiate HTTP/2, in which case all
+ * requests to a host are multiplexed over a single connection and the per-host
+ * limit bounds the number of concurrent streams instead.
+ * <p>
+ * The same default timeouts as {@link UrlConnectionTransport} apply, except that
+ * the read timeout bounds the whole response rather than each read.
+ *
+ * @author turt2live
+ */
+public class HttpClientTransport implements HttpTransport {
+
+    private final boolean http2;
+    private final HostLimiter limiter;
+    private volatile HttpClient client;
+    private volatile Duration readTimeout = Duration.ofMillis(UrlConnectionTransport.DEFAULT_READ_TIMEOUT);
+
+    /**
+     * Creates a new HTTP/2 capable transport allowing
+     * {@link UrlConnectionTransport#DEFAULT_MAX_CONNECTIONS_PER_HOST} requests in
+     * flight to each host
+     */
+    public HttpClientTransport() {
+        this(UrlConnectionTransport.DEFAULT_MAX_CONNECTIONS_PER_HOST, true);
+    }
+
+    /**
+     * Creates a new transport
+     *
+     * @param maxConnectionsPerHost the maximum number of requests in flight to a single host,
+     *                              further requests wait for one to finish. Must be positive.
+     * @param http2                 true to negotiate HTTP/2 where the server supports it, false
+     *                              to always use HTTP/1.1
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive limits
+     */
+    public HttpClientTransport(int maxConnectionsPerHost, boolean http2) {
+        this.limiter = new HostLimiter(maxConnectionsPerHost);
+        this.http2 = http2;
+        this.client = createClient(UrlConnectionTransport.DEFAULT_CONNECT_TIMEOUT);
+    }
+
+    private HttpClient createClient(int connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(connectTimeout))
+                .build();
+    }
+
+    /**
+     * Gets the maximum number of requests in flight to a single host
+     *
+     * @return the per-host limit
+     */
+    public int getMaxConnectionsPerHost() {
+        return limiter.getMaximum();
+    }
+
+    /**
+     * Sets how long to wait for a connection to be established. The client is
+     * replaced, so connections pooled so far are not reused afterwards.
+     *
+     * @param time the time to wait, must be positive
+     * @param unit the unit of the time, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive times or a null unit
+     */
+    public void setConnectTimeout(long time, TimeUnit unit) {
+        this.client = createClient(UrlConnectionTransport.toMillis(time, unit));
+    }
+
+    /**
+     * Sets how long to wait for the complete response once the request is sent
+     *
+     * @param time the time to wait, must be positive
+     * @param unit the unit of the time, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive times or a null unit
+     */
+    public void setReadTimeout(long time, TimeUnit unit) {
+        this.readTimeout = Duration.ofMillis(UrlConnectionTransport.toMillis(time, unit));
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        if (request == null) throw new IllegalArgumentException();
+
+        URL url = HostLimiter.parse(request.getUrl());
+        java.net.http.HttpRequest.Builder builder;
+        try {
+            builder = java.net.http.HttpRequest.newBuilder(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid URL: " + request.getUrl(), e);
+        }
+        if (!request.getHeaders().containsKey("Accept-Encoding")) builder.header("Accept-Encoding", HTTPUtils.ACCEPT_ENCODING);
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        builder.timeout(readTimeout);
+        byte[] body = request.getBody();
+        builder.method(request.getMethod(), body == null
+                ? java.net.http.HttpRequest.BodyPublishers.noBody()
+                : java.net.http.HttpRequest.BodyPublishers.ofByteArray(body));
+
+        Semaphore permit = limiter.acquire(url);
+        try {
+            java.net.http.HttpResponse<byte[]> response = client.send(builder.build(), java.net.http.HttpResponse.BodyHandlers.ofByteArray());
+            return new HttpResponse(response.statusCode(), null, headers(response), response.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + request.getUrl());
+        } finally {
+            permit.release();
+        }
+    }
+
+    private static Map<String, String> headers(java.net.http.HttpResponse<?> response) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            if (header.getValue().isEmpty()) continue;
+            headers.put(header.getKey().toLowerCase(Locale.ENGLISH), header.getValue().get(0));
+        }
+        return headers;
+    }
+}
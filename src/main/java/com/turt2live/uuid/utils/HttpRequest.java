@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents a single HTTP request to be executed by a {@link HttpTransport}
+ *
+ * @author turt2live
+ */
+public class HttpRequest {
+
+    private final String method;
+    private final String url;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private byte[] body;
+
+    /**
+     * Creates a new request without a body
+     *
+     * @param method the HTTP method, such as GET, cannot be null
+     * @param url    the URL to request, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public HttpRequest(String method, String url) {
+        if (method == null || url == null) throw new IllegalArgumentException();
+
+        this.method = method;
+        this.url = url;
+    }
+
+    /**
+     * Sets the body of this request
+     *
+     * @param body        the body to send, cannot be null
+     * @param contentType the content type of the body, cannot be null
+     *
+     * @return this request
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public HttpRequest setBody(String body, String contentType) {
+        if (body == null || contentType == null) throw new IllegalArgumentException();
+
+        this.body = body.getBytes(StandardCharsets.UTF_8);
+        return setHeader("Content-Type", contentType);
+    }
+
+    /**
+     * Sets a header on this request, replacing any previous value
+     *
+     * @param name  the name of the header, cannot be null
+     * @param value the value of the header, cannot be null
+     *
+     * @return this request
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public HttpRequest setHeader(String name, String value) {
+        if (name == null || value == null) throw new IllegalArgumentException();
+
+        headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Gets the HTTP method of this request
+     *
+     * @return the HTTP method
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets the URL this request is for
+     *
+     * @return the URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Gets the headers set on this request
+     *
+     * @return an unmodifiable view of the headers
+     */
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Gets the body of this request
+     *
+     * @return the body, or null if there is none
+     */
+    public byte[] getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Represents a fully read response returned by a {@link HttpTransport}
+ *
+ * @author turt2live
+ */
+public class HttpResponse {
+
+    private final int status;
+    private final String message;
+    private final Map<String, String> headers;
+    private final byte[] body;
+
+    /**
+     * Creates a new response
+     *
+     * @param status  the HTTP status code
+     * @param message the status message, may be null
+     * @param headers the response headers, keyed by lower case name, cannot be null
+     * @param body    the response body as received, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public HttpResponse(int status, String message, Map<String, String> headers, byte[] body) {
+        if (headers == null || body == null) throw new IllegalArgumentException();
+
+        this.status = status;
+        this.message = message;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * Gets the HTTP status code of this response
+     *
+     * @return the status code
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the status message of this response
+     *
+     * @return the status message, may be null
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets the first value of a response header
+     *
+     * @param name the header name, case insensitive, cannot be null
+     *
+     * @return the header value, or null if not present
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public String getHeader(String name) {
+        if (name == null) throw new IllegalArgumentException();
+
+        return headers.get(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Gets the headers of this response
+     *
+     * @return an unmodifiable view of the headers, keyed by lower case name
+     */
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Gets the content encoding the body was sent with
+     *
+     * @return the content encoding in lower case, "identity" if the body is not encoded
+     */
+    public String getContentEncoding() {
+        String encoding = headers.get("content-encoding");
+        return encoding == null ? "identity" : encoding.trim().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Gets the body of this response as it was received, which may be compressed
+     *
+     * @return the body as received, never null
+     */
+    public byte[] getRawBody() {
+        return body;
+    }
+
+    /**
+     * Gets the body of this response, decompressing it if needed. Prefer
+     * {@link #getBodyStream()}, which does not hold the decompressed body in memory.
+     *
+     * @return the body, never null
+     *
+     * @throws java.io.IOException thrown if the body cannot be decompressed
+     */
+    public byte[] getBody() throws IOException {
+        if (getContentEncoding().equals("identity")) return body;
+
+        try (InputStream in = getBodyStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 4);
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Gets a stream over the body of this response, decompressing it as it is read
+     *
+     * @return a new stream over the body
+     *
+     * @throws java.io.IOException thrown if the body is not in its declared encoding,
+     *                             or the encoding is not supported
+     */
+    public InputStream getBodyStream() throws IOException {
+        InputStream in = new ByteArrayInputStream(body);
+        switch (getContentEncoding()) {
+            case "identity":
+                return in;
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(in, 4096);
+            case "deflate":
+                // Meant to be zlib wrapped, but some servers send raw deflate data
+                boolean zlib = body.length >= 2 && (body[0] & 0x0F) == 8 && ((body[0] & 0xFF) << 8 | (body[1] & 0xFF)) % 31 == 0;
+                return new DeflateInputStream(in, new Inflater(!zlib));
+            default:
+                throw new IOException("Unsupported content encoding: " + getContentEncoding());
+        }
+    }
+
+    /**
+     * Gets the body of this response decoded as UTF-8
+     *
+     * @return the body, never null
+     *
+     * @throws java.io.IOException thrown if the body cannot be decompressed
+     */
+    public String getBodyAsString() throws IOException {
+        return new String(getBody(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Inflates a deflate body and ends its inflater when closed, which
+     * {@link InflaterInputStream} only does for an inflater it made itself
+     */
+    static final class DeflateInputStream extends InflaterInputStream {
+
+        private boolean ended;
+
+        DeflateInputStream(InputStream in, Inflater inflater) {
+            super(in, inflater, 4096);
+        }
+
+        boolean isEnded() {
+            return ended;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!ended) {
+                    inf.end(); // Frees the native memory now rather than when collected
+                    ended = true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.io.IOException;
+
+/**
+ * Represents the layer which sends HTTP requests on behalf of the services.
+ * Implementations must be thread safe and must fully read every response,
+ * including error responses, so that their connections can be reused.
+ * <p>
+ * Unless a request sets its own Accept-Encoding, implementations ask for
+ * {@link HTTPUtils#ACCEPT_ENCODING} and return the body still compressed;
+ * {@link HttpResponse#getBodyStream()} decompresses it as it is read.
+ *
+ * @author turt2live
+ */
+public interface HttpTransport {
+
+    /**
+     * Executes a request, waiting for the complete response
+     *
+     * @param request the request to execute, cannot be null
+     *
+     * @return the response, never null
+     *
+     * @throws java.io.IOException                thrown if the request could not be completed
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public HttpResponse execute(HttpRequest request) throws IOException;
+}
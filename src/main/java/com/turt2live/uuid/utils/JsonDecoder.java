@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.io.IOException;
+
+/**
+ * Decodes a value from a JSON document as it is read
+ *
+ * @param <T> the type of value decoded
+ *
+ * @author turt2live
+ */
+public interface JsonDecoder<T> {
+
+    /**
+     * Decodes a value from the supplied reader, positioned at the start of the document
+     *
+     * @param reader the reader to decode from, never null
+     *
+     * @return the decoded value, or null if the document does not hold one
+     *
+     * @throws java.io.IOException thrown if the document is malformed or cannot be read
+     */
+    public T decode(JsonReader reader) throws IOException;
+}
@@ -0,0 +1,599 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * A pull parser which reads JSON tokens straight from UTF-8 bytes, without
+ * building a string of the whole document or a tree of its values. Values are
+ * consumed in document order with {@link #peek()} and the {@code next}, {@code
+ * begin} and {@code end} methods; anything not needed is passed over with
+ * {@link #skipValue()}.
+ * <p>
+ * Property names are cached, so the repeated keys of large documents are only
+ * allocated once, and UUIDs are decoded without an intermediate string. Instances
+ * are not thread safe, but are cheap enough to create per document.
+ *
+ * @author turt2live
+ */
+public class JsonReader implements Closeable {
+
+    /**
+     * Represents the type of the next token in the document
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private static final int NAME_CACHE_SIZE = 64; // Power of two
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int pos, limit;
+    private long consumed;
+
+    private char[] chars = new char[64];
+    private int length;
+    private final String[] names = new String[NAME_CACHE_SIZE];
+
+    private int[] stack = new int[16];
+    private int depth = 1;
+    private Token peeked;
+
+    /**
+     * Creates a new reader over a stream of UTF-8 encoded JSON
+     *
+     * @param in the stream to read, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public JsonReader(InputStream in) {
+        if (in == null) throw new IllegalArgumentException();
+
+        int available;
+        try {
+            available = in.available();
+        } catch (IOException e) {
+            available = 0;
+        }
+        this.in = in;
+        this.buffer = new byte[Math.max(64, Math.min(8192, available + 1))];
+        this.stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Creates a new reader over UTF-8 encoded JSON
+     *
+     * @param json the JSON to read, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public JsonReader(byte[] json) {
+        if (json == null) throw new IllegalArgumentException();
+
+        this.in = null;
+        this.buffer = json;
+        this.limit = json.length;
+        this.stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Creates a new reader over JSON text
+     *
+     * @param json the JSON to read, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public JsonReader(String json) {
+        this(json == null ? null : json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets the type of the next token without consuming it
+     *
+     * @return the next token's type
+     *
+     * @throws java.io.IOException thrown if the document is malformed or cannot be read
+     */
+    public Token peek() throws IOException {
+        if (peeked != null) return peeked;
+
+        int scope = stack[depth - 1];
+        int c;
+        switch (scope) {
+            case EMPTY_ARRAY:
+            case NONEMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') return peeked = Token.END_ARRAY;
+                if (scope == NONEMPTY_ARRAY) {
+                    if (c != ',') throw syntaxError("Expected ',' or ']'");
+                } else {
+                    pos--;
+                }
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') return peeked = Token.END_OBJECT;
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') throw syntaxError("Expected ',' or '}'");
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') throw syntaxError("Expected a name");
+                stack[depth - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':') throw syntaxError("Expected ':'");
+                break;
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                if (nextNonWhitespace() != -1) throw syntaxError("Expected the end of the document");
+                return peeked = Token.END_DOCUMENT;
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return peeked = Token.BEGIN_OBJECT;
+            case '[':
+                return peeked = Token.BEGIN_ARRAY;
+            case '"':
+                return peeked = Token.STRING;
+            case 't':
+            case 'f':
+                pos--;
+                return peeked = Token.BOOLEAN;
+            case 'n':
+                pos--;
+                return peeked = Token.NULL;
+            case -1:
+                throw syntaxError("Unexpected end of document");
+            default:
+                if (c != '-' && (c < '0' || c > '9')) throw syntaxError("Unexpected character '" + (char) c + "'");
+                pos--;
+                return peeked = Token.NUMBER;
+        }
+    }
+
+    /**
+     * Determines if the current object or array has another element
+     *
+     * @return true if there is another element, false otherwise
+     *
+     * @throws java.io.IOException thrown if the document is malformed or cannot be read
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the start of the next object
+     *
+     * @throws java.io.IOException thrown if the next token is not an object, or the document
+     *                             is malformed or cannot be read
+     */
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consumes the end of the current object
+     *
+     * @throws java.io.IOException thrown if the next token is not the end of an object, or the document
+     *                             is malformed or cannot be read
+     */
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    /**
+     * Consumes the start of the next array
+     *
+     * @throws java.io.IOException thrown if the next token is not an array, or the document
+     *                             is malformed or cannot be read
+     */
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consumes the end of the current array
+     *
+     * @throws java.io.IOException thrown if the next token is not the end of an array, or the document
+     *                             is malformed or cannot be read
+     */
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * Consumes the next property name
+     *
+     * @return the property name
+     *
+     * @throws java.io.IOException thrown if the next token is not a name, or the document
+     *                             is malformed or cannot be read
+     */
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        readString();
+        return cachedName();
+    }
+
+    /**
+     * Consumes the next property name, which must be a UUID with or without dashes
+     *
+     * @return the UUID, or null if the name is not a UUID
+     *
+     * @throws java.io.IOException thrown if the next token is not a name, or the document
+     *                             is malformed or cannot be read
+     */
+    public UUID nextNameAsUuid() throws IOException {
+        expect(Token.NAME);
+        readString();
+        return parseUuid();
+    }
+
+    /**
+     * Consumes the next string value. Numbers are returned as written.
+     *
+     * @return the string value
+     *
+     * @throws java.io.IOException thrown if the next token is not a string or number, or
+     *                             the document is malformed or cannot be read
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            peeked = null;
+            readString();
+        } else if (token == Token.NUMBER) {
+            peeked = null;
+            readNumber();
+        } else {
+            throw syntaxError("Expected a string but was " + token);
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Consumes the next string value, which must be a UUID with or without dashes
+     *
+     * @return the UUID, or null if the value is null or not a UUID
+     *
+     * @throws java.io.IOException thrown if the next token is not a string or null, or
+     *                             the document is malformed or cannot be read
+     */
+    public UUID nextUuid() throws IOException {
+        if (peek() == Token.NULL) {
+            nextNull();
+            return null;
+        }
+        expect(Token.STRING);
+        readString();
+        return parseUuid();
+    }
+
+    /**
+     * Consumes the next number. Strings holding a whole number are also accepted,
+     * as some services quote their numbers.
+     *
+     * @return the number, with any fraction discarded
+     *
+     * @throws java.io.IOException thrown if the next token is not a number, or the document
+     *                             is malformed or cannot be read
+     */
+    public long nextLong() throws IOException {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            peeked = null;
+            readNumber();
+        } else if (token == Token.STRING) {
+            peeked = null;
+            readString();
+        } else {
+            throw syntaxError("Expected a number but was " + token);
+        }
+
+        long value = 0;
+        boolean negative = length > 0 && chars[0] == '-';
+        int i = negative ? 1 : 0;
+        if (i == length) throw syntaxError("Expected a number");
+        for (; i < length; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9' && value <= (Long.MAX_VALUE - 9) / 10) {
+                value = value * 10 + (c - '0');
+            } else {
+                try {
+                    return (long) Double.parseDouble(new String(chars, 0, length));
+                } catch (NumberFormatException e) {
+                    throw syntaxError("Expected a number");
+                }
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Consumes the next boolean value
+     *
+     * @return the boolean value
+     *
+     * @throws java.io.IOException thrown if the next token is not a boolean, or the document
+     *                             is malformed or cannot be read
+     */
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        if (read() == 't') {
+            literal("rue");
+            return true;
+        }
+        literal("alse");
+        return false;
+    }
+
+    /**
+     * Consumes the next null value
+     *
+     * @throws java.io.IOException thrown if the next token is not null, or the document
+     *                             is malformed or cannot be read
+     */
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        read();
+        literal("ull");
+    }
+
+    /**
+     * Consumes the next value, including everything nested in it
+     *
+     * @throws java.io.IOException thrown if the document is malformed or cannot be read
+     */
+    public void skipValue() throws IOException {
+        int nesting = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    nesting++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    nesting++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    nesting--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    nesting--;
+                    break;
+                case NAME:
+                    peeked = null;
+                    skipString();
+                    break;
+                case STRING:
+                    peeked = null;
+                    skipString();
+                    break;
+                case NUMBER:
+                    peeked = null;
+                    readNumber();
+                    break;
+                case BOOLEAN:
+                    nextBoolean();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                default:
+                    throw syntaxError("Unexpected end of document");
+            }
+        } while (nesting > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) in.close();
+    }
+
+    private void expect(Token token) throws IOException {
+        Token next = peek();
+        if (next != token) throw syntaxError("Expected " + token + " but was " + next);
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            int[] grown = new int[depth * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = scope;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buffer[pos++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        if (in == null) return false;
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        int count = in.read(buffer, 0, buffer.length);
+        if (count <= 0) return false;
+        limit = count;
+        return true;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\t' || c == '\n' || c == '\r');
+        return c;
+    }
+
+    private void literal(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) throw syntaxError("Expected a literal");
+        }
+    }
+
+    private void append(char c) {
+        if (length == chars.length) {
+            char[] grown = new char[length * 2];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+        chars[length++] = c;
+    }
+
+    private void readNumber() throws IOException {
+        length = 0;
+        while (true) {
+            int c = read();
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                append((char) c);
+            } else {
+                if (c != -1) pos--;
+                return;
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        int c;
+        while ((c = read()) != '"') {
+            if (c == -1) throw syntaxError("Unterminated string");
+            if (c == '\\' && read() == 'u') {
+                for (int i = 0; i < 4; i++) read();
+            }
+        }
+    }
+
+    /**
+     * Decodes the string the reader is positioned in into the character buffer,
+     * consuming the closing quote
+     */
+    private void readString() throws IOException {
+        length = 0;
+        while (true) {
+            int c = read();
+            if (c == '"') return;
+            if (c == -1) throw syntaxError("Unterminated string");
+            if (c == '\\') {
+                append(readEscape());
+            } else if (c < 0x80) {
+                append((char) c);
+            } else if (c < 0xE0) {
+                append((char) (((c & 0x1F) << 6) | continuation()));
+            } else if (c < 0xF0) {
+                append((char) (((c & 0x0F) << 12) | (continuation() << 6) | continuation()));
+            } else {
+                int codePoint = ((c & 0x07) << 18) | (continuation() << 12) | (continuation() << 6) | continuation();
+                append(Character.highSurrogate(codePoint));
+                append(Character.lowSurrogate(codePoint));
+            }
+        }
+    }
+
+    private int continuation() throws IOException {
+        int c = read();
+        if ((c & 0xC0) != 0x80) throw syntaxError("Malformed UTF-8");
+        return c & 0x3F;
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) throw syntaxError("Malformed unicode escape");
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw syntaxError("Invalid escape");
+        }
+    }
+
+    private String cachedName() {
+        int hash = 0;
+        for (int i = 0; i < length; i++) hash = 31 * hash + chars[i];
+        int slot = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+
+        String cached = names[slot];
+        if (cached != null && cached.length() == length) {
+            int i = 0;
+            while (i < length && cached.charAt(i) == chars[i]) i++;
+            if (i == length) return cached;
+        }
+        return names[slot] = new String(chars, 0, length);
+    }
+
+    private UUID parseUuid() {
+        return UuidCodec.parse(chars, 0, length);
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at byte " + (consumed + pos));
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latencies of some operation to estimate its percentiles,
+ * such as the p95 used to decide when a request is slow enough to hedge. Only a
+ * fixed window of samples is kept, so the estimate follows changes in latency.
+ * <p>
+ * This class is safe for use by multiple threads at once.
+ *
+ * @author turt2live
+ */
+public class LatencyTracker {
+
+    /**
+     * The default number of recent samples kept
+     */
+    public static final int DEFAULT_WINDOW = 128;
+
+    private final long[] samples;
+    private final int minimumSamples;
+    private long count;
+    private long[] sorted;
+
+    /**
+     * Creates a new tracker keeping {@link #DEFAULT_WINDOW} samples, which gives
+     * estimates once a sixth of the window has been filled
+     */
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW, DEFAULT_WINDOW / 6);
+    }
+
+    /**
+     * Creates a new tracker
+     *
+     * @param window         the number of recent samples to keep, must be positive
+     * @param minimumSamples the number of samples needed before an estimate is given,
+     *                       must be positive and no larger than the window
+     *
+     * @throws java.lang.IllegalArgumentException thrown for invalid sizes
+     */
+    public LatencyTracker(int window, int minimumSamples) {
+        if (window <= 0 || minimumSamples <= 0 || minimumSamples > window) throw new IllegalArgumentException();
+
+        this.samples = new long[window];
+        this.minimumSamples = minimumSamples;
+    }
+
+    /**
+     * Records the latency of one operation
+     *
+     * @param nanos the latency, in nanoseconds. Negative values are treated as zero.
+     */
+    public synchronized void record(long nanos) {
+        samples[(int) (count++ % samples.length)] = Math.max(0, nanos);
+        sorted = null;
+    }
+
+    /**
+     * Estimates a percentile of the recent latencies
+     *
+     * @param percentile the percentile, between 0 and 1 inclusive, such as 0.95
+     *
+     * @return the latency in nanoseconds, or -1 if too few samples were recorded
+     *
+     * @throws java.lang.IllegalArgumentException thrown for percentiles outside 0 to 1
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 1)) throw new IllegalArgumentException();
+        if (count < minimumSamples) return -1;
+
+        if (sorted == null) {
+            sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            Arrays.sort(sorted);
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length) - 1; // Nearest rank
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    /**
+     * Gets the total number of latencies recorded
+     *
+     * @return the number of samples recorded
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+}
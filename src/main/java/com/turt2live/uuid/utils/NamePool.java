@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+/**
+ * Shares equal player names between records, so a name which is held by the
+ * cache, a name history and lookup results is only stored once. The pool is a
+ * fixed size hash table which replaces the older name when two collide, so it
+ * never grows and never holds on to more than its size in names; a name which
+ * was pushed out is simply stored again.
+ * <p>
+ * The pool is safe to use from several threads. Two threads interning the same
+ * name at once may each keep their own copy, which only costs the memory.
+ *
+ * @author turt2live
+ */
+public class NamePool {
+
+    /**
+     * The default number of names held by a pool
+     */
+    public static final int DEFAULT_SIZE = 1 << 16;
+
+    private static final NamePool SHARED = new NamePool(DEFAULT_SIZE);
+
+    private final String[] names;
+    private final int mask;
+
+    /**
+     * Creates a new name pool
+     *
+     * @param size the number of names held, must be a positive power of two
+     *
+     * @throws java.lang.IllegalArgumentException thrown if the size is not a positive power of two
+     */
+    public NamePool(int size) {
+        if (size <= 0 || Integer.bitCount(size) != 1) throw new IllegalArgumentException("Size must be a power of two");
+
+        this.names = new String[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Gets the pool shared by every record in the library
+     *
+     * @return the shared pool
+     */
+    public static NamePool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the pooled copy of a name, adding the name if there is none
+     *
+     * @param name the name, may be null
+     *
+     * @return a name equal to the supplied one, or null if the name is null
+     */
+    public String intern(String name) {
+        if (name == null) return null;
+
+        int hash = name.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String pooled = names[slot];
+        if (name.equals(pooled)) return pooled;
+        return names[slot] = name;
+    }
+
+    /**
+     * Gets the pooled copy of a name held in part of a character array, only
+     * creating a string if the pool has no copy of the name
+     *
+     * @param chars  the characters, cannot be null
+     * @param offset the index of the first character of the name
+     * @param length the number of characters of the name
+     *
+     * @return a name equal to the characters
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public String intern(char[] chars, int offset, int length) {
+        if (chars == null) throw new IllegalArgumentException();
+
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) hash = 31 * hash + chars[i];
+        int slot = (hash ^ (hash >>> 16)) & mask;
+
+        String pooled = names[slot];
+        if (pooled != null && pooled.length() == length) {
+            int i = 0;
+            while (i < length && pooled.charAt(i) == chars[offset + i]) i++;
+            if (i == length) return pooled;
+        }
+        return names[slot] = new String(chars, offset, length);
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Generates the unique IDs offline mode servers give players, which are the
+ * version 3 (MD5) UUIDs of {@code "OfflinePlayer:" + name}. This gives the same
+ * results as {@link UUID#nameUUIDFromBytes(byte[])} but reuses a digest and
+ * buffers per thread, and copies ASCII names into the buffer directly instead
+ * of concatenating and encoding them, so the only allocation is the UUID.
+ *
+ * @author turt2live
+ */
+public final class OfflineUuids {
+
+    /**
+     * The prefix hashed in front of every name
+     */
+    public static final String PREFIX = "OfflinePlayer:";
+
+    /**
+     * The number of names each worker of a bulk generation takes at once
+     */
+    public static final int BATCH_SIZE = 4096;
+
+    private static final byte[] PREFIX_BYTES = PREFIX.getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<Generator> GENERATORS = ThreadLocal.withInitial(Generator::new);
+
+    private OfflineUuids() {
+    }
+
+    /**
+     * Gets the offline unique ID of a player
+     *
+     * @param name the player's name, cannot be null
+     *
+     * @return the offline unique ID
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public static UUID of(String name) {
+        if (name == null) throw new IllegalArgumentException();
+
+        return GENERATORS.get().generate(name);
+    }
+
+    /**
+     * Gets the offline unique IDs of many players, splitting the names into
+     * batches of {@link #BATCH_SIZE} which are worked on in parallel through
+     * {@link FanOut}.
+     *
+     * @param names       the players' names, no element can be null
+     * @param parallelism the maximum number of batches worked on at once, must be positive
+     *
+     * @return the offline unique IDs, in the same order as the names
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null values or a non-positive parallelism
+     */
+    public static UUID[] of(final String[] names, int parallelism) {
+        if (names == null || parallelism <= 0) throw new IllegalArgumentException();
+        for (String name : names) if (name == null) throw new IllegalArgumentException();
+
+        final UUID[] results = new UUID[names.length];
+        if (names.length <= BATCH_SIZE || parallelism == 1) {
+            generate(names, results, 0, names.length);
+            return results;
+        }
+
+        List<Integer> batches = new ArrayList<>();
+        for (int start = 0; start < names.length; start += BATCH_SIZE) batches.add(start);
+        FanOut.map(batches, parallelism, start -> {
+            generate(names, results, start, Math.min(names.length, start + BATCH_SIZE));
+            return null;
+        });
+        return results;
+    }
+
+    private static void generate(String[] names, UUID[] results, int start, int end) {
+        Generator generator = GENERATORS.get();
+        for (int i = start; i < end; i++) results[i] = generator.generate(names[i]);
+    }
+
+    /**
+     * Per-thread digest and buffers
+     */
+    private static class Generator {
+
+        private final MessageDigest md5;
+        private final byte[] hash = new byte[16];
+        private byte[] buffer = new byte[64];
+
+        private Generator() {
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new InternalError("MD5 not supported", e);
+            }
+            System.arraycopy(PREFIX_BYTES, 0, buffer, 0, PREFIX_BYTES.length);
+        }
+
+        private UUID generate(String name) {
+            int length = PREFIX_BYTES.length + name.length();
+            ensureCapacity(length);
+
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c >= 0x80) {
+                    // Not ASCII, so let the encoder deal with multi-byte characters
+                    byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+                    length = PREFIX_BYTES.length + encoded.length;
+                    ensureCapacity(length);
+                    System.arraycopy(encoded, 0, buffer, PREFIX_BYTES.length, encoded.length);
+                    break;
+                }
+                buffer[PREFIX_BYTES.length + i] = (byte) c;
+            }
+
+            md5.update(buffer, 0, length);
+            try {
+                md5.digest(hash, 0, hash.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+
+            hash[6] = (byte) (hash[6] & 0x0f | 0x30); // Version 3
+            hash[8] = (byte) (hash[8] & 0x3f | 0x80); // IETF variant
+            long msb = 0, lsb = 0;
+            for (int i = 0; i < 8; i++) msb = msb << 8 | (hash[i] & 0xff);
+            for (int i = 8; i < 16; i++) lsb = lsb << 8 | (hash[i] & 0xff);
+            return new UUID(msb, lsb);
+        }
+
+        private void ensureCapacity(int length) {
+            if (buffer.length < length) {
+                byte[] grown = new byte[Math.max(length, buffer.length * 2)];
+                System.arraycopy(buffer, 0, grown, 0, PREFIX_BYTES.length);
+                buffer = grown;
+            }
+        }
+    }
+}
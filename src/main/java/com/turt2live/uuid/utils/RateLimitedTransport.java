@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * A {@link HttpTransport} which paces the requests sent through another transport
+ * with a {@link RateLimiter}, reporting each rate limit response (status 429 and
+ * its Retry-After header) back to the limiter so that it can slow down.
+ *
+ * @author turt2live
+ */
+public class RateLimitedTransport implements HttpTransport {
+
+    private final HttpTransport transport;
+    private final RateLimiter limiter;
+
+    /**
+     * Creates a new transport paced by the shared rate limiter
+     *
+     * @param transport the transport to send requests through, cannot be null
+     */
+    public RateLimitedTransport(HttpTransport transport) {
+        this(transport, RateLimiter.getShared());
+    }
+
+    /**
+     * Creates a new transport
+     *
+     * @param transport the transport to send requests through, cannot be null
+     * @param limiter   the limiter to pace requests with, cannot be null
+     */
+    public RateLimitedTransport(HttpTransport transport, RateLimiter limiter) {
+        if (transport == null || limiter == null) throw new IllegalArgumentException();
+
+        this.transport = transport;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Gets the limiter pacing this transport
+     *
+     * @return the rate limiter
+     */
+    public RateLimiter getLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        if (request == null) throw new IllegalArgumentException();
+
+        limiter.acquire(request.getUrl());
+        HttpResponse response = transport.execute(request);
+        if (response.getStatus() == 429) {
+            limiter.onRateLimited(request.getUrl(), retryAfter(response.getHeader("Retry-After")));
+        } else if (response.getStatus() < 500) {
+            limiter.onSuccess(request.getUrl());
+        }
+        return response;
+    }
+
+    /**
+     * Parses a Retry-After header, given either in seconds or as a HTTP date
+     *
+     * @return the time to wait in milliseconds, or zero if absent or invalid
+     */
+    static long retryAfter(String header) {
+        if (header == null) return 0;
+        header = header.trim();
+
+        try {
+            return Math.max(0, Long.parseLong(header) * 1000);
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            long at = ZonedDateTime.parse(header, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - System.currentTimeMillis());
+        } catch (DateTimeParseException ignored) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces requests to each endpoint with a token bucket. An endpoint is the
+ * longest URL prefix given a limit with {@link #setLimit(String, double, int)},
+ * or otherwise the URL's scheme and host, which use the default limit.
+ * <p>
+ * Rates adapt to the service: each rate limit response halves the endpoint's
+ * rate and, if the service supplied one, blocks the endpoint until its Retry-After
+ * time has passed. Each successful response then raises the rate a little, back
+ * towards the configured limit.
+ * <p>
+ * Callers wait in line for their turn, but never for longer than the maximum
+ * wait, and only up to the maximum queue length per endpoint. Requests which
+ * would exceed either are rejected straight away with a
+ * {@link HTTPUtils.RateLimitedException}, rather than being sent to a service
+ * which would reject them anyway.
+ *
+ * @author turt2live
+ */
+public class RateLimiter {
+
+    /**
+     * The limiter shared by the services by default, with conservative limits
+     * for the Mojang and turt2live APIs
+     */
+    private static final RateLimiter SHARED = new RateLimiter();
+
+    static {
+        // 600 requests per 10 minutes, counting the burst
+        SHARED.setLimit("https://api.mojang.com/", 0.9, 60);
+        SHARED.setLimit("https://sessionserver.mojang.com/", 0.9, 60);
+        SHARED.setLimit("http://uuid.turt2live.com/", 10, 20);
+    }
+
+    private static final double DECREASE = 0.5;
+    private static final double INCREASE = 0.05; // Of the configured rate, per success
+    private static final double MINIMUM_RATE = 0.01;
+
+    private class Bucket {
+        private final double limit;
+        private final int burst;
+        private double rate;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+        private long blockedUntil = refilledAt;
+        private int waiting;
+
+        Bucket(double limit, int burst) {
+            this.limit = limit;
+            this.burst = burst;
+            this.rate = limit;
+            this.tokens = burst;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * rate / TimeUnit.SECONDS.toNanos(1));
+            refilledAt = now;
+        }
+
+        /**
+         * Takes a token, returning how long the caller must wait before using it,
+         * or -1 if the caller may not wait for it
+         */
+        synchronized long reserve(long now) {
+            refill(now);
+            double deficit = 1 - tokens;
+            long wait = deficit <= 0 ? 0 : (long) (deficit / rate * TimeUnit.SECONDS.toNanos(1));
+            wait = Math.max(wait, blockedUntil - now);
+
+            if (wait > 0 && (wait > maximumWait || waiting >= maximumQueue)) return -1;
+            tokens -= 1;
+            if (wait > 0) waiting++;
+            return wait;
+        }
+
+        synchronized void cancel() {
+            tokens = Math.min(burst, tokens + 1);
+        }
+
+        synchronized void leave() {
+            waiting--;
+        }
+
+        synchronized void onRateLimited(long now, long retryAfter) {
+            refill(now);
+            rate = Math.max(MINIMUM_RATE, rate * DECREASE);
+            tokens = Math.min(tokens, 0); // No more bursts until the service recovers
+            if (retryAfter > 0) blockedUntil = Math.max(blockedUntil, now + retryAfter);
+        }
+
+        synchronized void onSuccess(long now) {
+            if (rate >= limit) return;
+            refill(now);
+            rate = Math.min(limit, rate + limit * INCREASE);
+        }
+
+        synchronized double getRate() {
+            return rate;
+        }
+
+        synchronized int getWaiting() {
+            return waiting;
+        }
+    }
+
+    private final ConcurrentMap<String, double[]> limits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+    private final double defaultRate;
+    private final int defaultBurst;
+    private volatile long maximumWait = TimeUnit.SECONDS.toNanos(10);
+    private volatile int maximumQueue = 256;
+
+    /**
+     * Creates a new rate limiter allowing 10 requests per second, in bursts of up
+     * to 20, to endpoints without their own limit
+     */
+    public RateLimiter() {
+        this(10, 20);
+    }
+
+    /**
+     * Creates a new rate limiter
+     *
+     * @param defaultRate  the requests per second allowed to endpoints without their own
+     *                     limit, must be positive
+     * @param defaultBurst the number of requests which may be sent at once after a quiet
+     *                     period, must be at least 1
+     */
+    public RateLimiter(double defaultRate, int defaultBurst) {
+        if (!(defaultRate > 0) || defaultBurst < 1) throw new IllegalArgumentException();
+
+        this.defaultRate = defaultRate;
+        this.defaultBurst = defaultBurst;
+    }
+
+    /**
+     * Gets the rate limiter shared by the services by default
+     *
+     * @return the shared rate limiter
+     */
+    public static RateLimiter getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Sets the limit for every URL starting with the supplied prefix. Limits should
+     * be set before the limiter is used; endpoints which were already used keep
+     * their previous limit.
+     *
+     * @param urlPrefix         the URL prefix, such as "https://api.mojang.com/", cannot be null
+     * @param permitsPerSecond  the requests per second allowed, must be positive
+     * @param burst             the number of requests which may be sent at once after a quiet
+     *                          period, must be at least 1
+     */
+    public void setLimit(String urlPrefix, double permitsPerSecond, int burst) {
+        if (urlPrefix == null || !(permitsPerSecond > 0) || burst < 1) throw new IllegalArgumentException();
+
+        limits.put(urlPrefix, new double[] {permitsPerSecond, burst});
+    }
+
+    /**
+     * Sets how long a request may wait for its turn before it is rejected
+     *
+     * @param time the maximum wait, cannot be negative
+     * @param unit the unit of the time, cannot be null
+     */
+    public void setMaximumWait(long time, TimeUnit unit) {
+        if (time < 0 || unit == null) throw new IllegalArgumentException();
+
+        this.maximumWait = unit.toNanos(time);
+    }
+
+    /**
+     * Sets how many requests may wait for their turn at each endpoint before
+     * further requests are rejected
+     *
+     * @param maximumQueue the maximum queue length, cannot be negative
+     */
+    public void setMaximumQueue(int maximumQueue) {
+        if (maximumQueue < 0) throw new IllegalArgumentException();
+
+        this.maximumQueue = maximumQueue;
+    }
+
+    /**
+     * Waits until a request to the supplied URL may be sent
+     *
+     * @param url the URL about to be requested, cannot be null
+     *
+     * @throws java.io.InterruptedIOException                     thrown if interrupted while waiting
+     * @throws com.turt2live.uuid.utils.HTTPUtils.RateLimitedException thrown if the request would
+     *                                                            wait too long or the queue is full
+     */
+    public void acquire(String url) throws InterruptedIOException {
+        if (url == null) throw new IllegalArgumentException();
+
+        Bucket bucket = bucket(url);
+        long wait = bucket.reserve(System.nanoTime());
+        if (wait < 0) {
+            rejectedCount.incrementAndGet();
+            throw new HTTPUtils.RateLimitedException("Rate limited by client for " + endpoint(url));
+        }
+        if (wait == 0) return;
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } catch (InterruptedException e) {
+            bucket.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + endpoint(url));
+        } finally {
+            bucket.leave();
+        }
+    }
+
+    /**
+     * Reports that the service rate limited a request to the supplied URL
+     *
+     * @param url        the URL which was requested, cannot be null
+     * @param retryAfter the time the service asked to wait before retrying, in milliseconds,
+     *                   or zero if it did not say
+     */
+    public void onRateLimited(String url, long retryAfter) {
+        if (url == null) throw new IllegalArgumentException();
+
+        rateLimitedCount.incrementAndGet();
+        bucket(url).onRateLimited(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(Math.max(0, retryAfter)));
+    }
+
+    /**
+     * Reports that the service accepted a request to the supplied URL
+     *
+     * @param url the URL which was requested, cannot be null
+     */
+    public void onSuccess(String url) {
+        if (url == null) throw new IllegalArgumentException();
+
+        bucket(url).onSuccess(System.nanoTime());
+    }
+
+    /**
+     * Gets the requests per second currently allowed to the supplied URL's endpoint
+     *
+     * @param url the URL, cannot be null
+     *
+     * @return the current rate
+     */
+    public double getRate(String url) {
+        if (url == null) throw new IllegalArgumentException();
+
+        return bucket(url).getRate();
+    }
+
+    /**
+     * Gets the number of requests waiting for their turn at the supplied URL's endpoint
+     *
+     * @param url the URL, cannot be null
+     *
+     * @return the queue length
+     */
+    public int getQueueDepth(String url) {
+        if (url == null) throw new IllegalArgumentException();
+
+        return bucket(url).getWaiting();
+    }
+
+    /**
+     * Gets the number of requests waiting for their turn across every endpoint
+     *
+     * @return the total queue length
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Bucket bucket : buckets.values()) depth += bucket.getWaiting();
+        return depth;
+    }
+
+    /**
+     * Gets the number of requests rejected without being sent
+     *
+     * @return the number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Gets the number of rate limit responses reported by services
+     *
+     * @return the number of rate limit responses
+     */
+    public long getRateLimitedCount() {
+        return rateLimitedCount.get();
+    }
+
+    private Bucket bucket(String url) {
+        String endpoint = endpoint(url);
+        Bucket bucket = buckets.get(endpoint);
+        if (bucket != null) return bucket;
+
+        double[] limit = limits.get(endpoint);
+        Bucket created = limit == null ? new Bucket(defaultRate, defaultBurst) : new Bucket(limit[0], (int) limit[1]);
+        bucket = buckets.putIfAbsent(endpoint, created);
+        return bucket == null ? created : bucket;
+    }
+
+    private String endpoint(String url) {
+        String best = null;
+        for (Map.Entry<String, double[]> limit : limits.entrySet()) {
+            String prefix = limit.getKey();
+            if (url.startsWith(prefix) && (best == null || prefix.length() > best.length())) best = prefix;
+        }
+        if (best != null) return best;
+
+        // scheme://host[:port]
+        int start = url.indexOf("://");
+        int end = start < 0 ? -1 : url.indexOf('/', start + 3);
+        return end < 0 ? url : url.substring(0, end);
+    }
+}
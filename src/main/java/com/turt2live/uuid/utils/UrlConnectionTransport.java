@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link HttpTransport} built on {@link HttpURLConnection}, which is available
+ * on every Java version. Connections are kept alive and pooled by the JDK itself;
+ * this transport makes sure every response body, including error bodies, is read
+ * to the end so that the connection is handed back to that pool instead of being
+ * dropped. The JDK keeps at most {@code http.maxConnections} (default 5) idle
+ * connections per host.
+ * <p>
+ * Connecting and reading are bounded by {@link #DEFAULT_CONNECT_TIMEOUT} and
+ * {@link #DEFAULT_READ_TIMEOUT} unless other timeouts are set. A request which
+ * times out throws a {@link java.net.SocketTimeoutException}.
+ *
+ * @author turt2live
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+    /**
+     * The default maximum number of requests in flight to a single host
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+
+    /**
+     * The default time, in milliseconds, to wait for a connection to be established
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+
+    /**
+     * The default time, in milliseconds, to wait for data once connected
+     */
+    public static final int DEFAULT_READ_TIMEOUT = 10000;
+
+    private final HostLimiter limiter;
+    private volatile int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private volatile int readTimeout = DEFAULT_READ_TIMEOUT;
+
+    /**
+     * Creates a new transport allowing {@link #DEFAULT_MAX_CONNECTIONS_PER_HOST}
+     * requests in flight to each host
+     */
+    public UrlConnectionTransport() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    }
+
+    /**
+     * Creates a new transport
+     *
+     * @param maxConnectionsPerHost the maximum number of requests in flight to a single host,
+     *                              further requests wait for one to finish. Must be positive.
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive limits
+     */
+    public UrlConnectionTransport(int maxConnectionsPerHost) {
+        this.limiter = new HostLimiter(maxConnectionsPerHost);
+    }
+
+    /**
+     * Gets the maximum number of requests in flight to a single host
+     *
+     * @return the per-host limit
+     */
+    public int getMaxConnectionsPerHost() {
+        return limiter.getMaximum();
+    }
+
+    /**
+     * Sets how long to wait for a connection to be established
+     *
+     * @param time the time to wait, must be positive
+     * @param unit the unit of the time, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive times or a null unit
+     */
+    public void setConnectTimeout(long time, TimeUnit unit) {
+        this.connectTimeout = toMillis(time, unit);
+    }
+
+    /**
+     * Sets how long to wait for data once connected. This bounds each read, not
+     * the whole response.
+     *
+     * @param time the time to wait, must be positive
+     * @param unit the unit of the time, cannot be null
+     *
+     * @throws java.lang.IllegalArgumentException thrown for non-positive times or a null unit
+     */
+    public void setReadTimeout(long time, TimeUnit unit) {
+        this.readTimeout = toMillis(time, unit);
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        if (request == null) throw new IllegalArgumentException();
+
+        URL url = HostLimiter.parse(request.getUrl());
+        Semaphore permit = limiter.acquire(url);
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod(request.getMethod());
+            connection.setUseCaches(false);
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setRequestProperty("Accept-Encoding", HTTPUtils.ACCEPT_ENCODING);
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            byte[] body = request.getBody();
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+
+            int status = connection.getResponseCode();
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            byte[] content = in == null ? new byte[0] : readFully(in);
+
+            HttpResponse response = new HttpResponse(status, connection.getResponseMessage(), headers(connection), content);
+            connection = null; // Fully read, leave it to the keep-alive pool
+            return response;
+        } finally {
+            // Anything left unread would make the connection unusable, so close it outright
+            if (connection != null) connection.disconnect();
+            permit.release();
+        }
+    }
+
+    static int toMillis(long time, TimeUnit unit) {
+        if (time <= 0 || unit == null) throw new IllegalArgumentException();
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, unit.toMillis(time)));
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static Map<String, String> headers(HttpURLConnection connection) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            if (header.getKey() == null || header.getValue().isEmpty()) continue; // Status line
+            headers.put(header.getKey().toLowerCase(Locale.ENGLISH), header.getValue().get(0));
+        }
+        return headers;
+    }
+}
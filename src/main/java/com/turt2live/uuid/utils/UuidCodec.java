@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.util.UUID;
+
+/**
+ * Converts UUIDs to and from their hexadecimal forms, both dashed
+ * ({@code c465b154-3c29-4dbf-a7e3-e0869504b8d8}, as printed by
+ * {@link UUID#toString()}) and undashed ({@code c465b1543c294dbfa7e3e0869504b8d8},
+ * as used by Mojang). Parsing reads the digits straight into the two halves of
+ * the UUID and printing writes them straight out, without any intermediate
+ * strings; {@link #appendTo(UUID, boolean, StringBuilder)} and
+ * {@link #write(UUID, boolean, byte[], int)} print through a per-thread scratch
+ * buffer and do not allocate at all.
+ *
+ * @author turt2live
+ */
+public final class UuidCodec {
+
+    /**
+     * The length of a dashed UUID
+     */
+    public static final int DASHED_LENGTH = 36;
+
+    /**
+     * The length of an undashed UUID
+     */
+    public static final int UNDASHED_LENGTH = 32;
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[DASHED_LENGTH]);
+
+    static {
+        for (int i = 0; i < VALUES.length; i++) VALUES[i] = -1;
+        for (int i = 0; i < 10; i++) VALUES['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private UuidCodec() {
+    }
+
+    /**
+     * Parses a dashed or undashed UUID
+     *
+     * @param value the UUID to parse, cannot be null
+     *
+     * @return the UUID, or null if the value is not a UUID
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public static UUID parse(CharSequence value) {
+        if (value == null) throw new IllegalArgumentException();
+
+        int length = value.length();
+        long msb, lsb;
+        if (length == UNDASHED_LENGTH) {
+            long high = hex(value, 0, 8), low = hex(value, 8, 8);
+            msb = high << 32 | low;
+            long high2 = hex(value, 16, 8), low2 = hex(value, 24, 8);
+            lsb = high2 << 32 | low2;
+            if ((high | low | high2 | low2) < 0) return null;
+        } else if (length == DASHED_LENGTH) {
+            if (value.charAt(8) != '-' || value.charAt(13) != '-' || value.charAt(18) != '-' || value.charAt(23) != '-') {
+                return null;
+            }
+            long a = hex(value, 0, 8), b = hex(value, 9, 4), c = hex(value, 14, 4);
+            long d = hex(value, 19, 4), e = hex(value, 24, 12);
+            if ((a | b | c | d | e) < 0) return null;
+            msb = a << 32 | b << 16 | c;
+            lsb = d << 48 | e;
+        } else {
+            return null;
+        }
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Parses a dashed or undashed UUID held in part of a character array
+     *
+     * @param chars  the characters, cannot be null
+     * @param offset the index of the first character of the UUID
+     * @param length the number of characters of the UUID
+     *
+     * @return the UUID, or null if the characters are not a UUID
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public static UUID parse(char[] chars, int offset, int length) {
+        if (chars == null) throw new IllegalArgumentException();
+
+        long msb, lsb;
+        if (length == UNDASHED_LENGTH) {
+            long high = hex(chars, offset, 8), low = hex(chars, offset + 8, 8);
+            msb = high << 32 | low;
+            long high2 = hex(chars, offset + 16, 8), low2 = hex(chars, offset + 24, 8);
+            lsb = high2 << 32 | low2;
+            if ((high | low | high2 | low2) < 0) return null;
+        } else if (length == DASHED_LENGTH) {
+            if (chars[offset + 8] != '-' || chars[offset + 13] != '-' || chars[offset + 18] != '-' || chars[offset + 23] != '-') {
+                return null;
+            }
+            long a = hex(chars, offset, 8), b = hex(chars, offset + 9, 4), c = hex(chars, offset + 14, 4);
+            long d = hex(chars, offset + 19, 4), e = hex(chars, offset + 24, 12);
+            if ((a | b | c | d | e) < 0) return null;
+            msb = a << 32 | b << 16 | c;
+            lsb = d << 48 | e;
+        } else {
+            return null;
+        }
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Prints a UUID
+     *
+     * @param uuid   the UUID to print, cannot be null
+     * @param dashes true for the dashed form, false for the undashed form
+     *
+     * @return the printed UUID, in lower case
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public static String toString(UUID uuid, boolean dashes) {
+        if (uuid == null) throw new IllegalArgumentException();
+
+        char[] chars = new char[dashes ? DASHED_LENGTH : UNDASHED_LENGTH];
+        fill(uuid, dashes, chars);
+        return new String(chars);
+    }
+
+    /**
+     * Appends a UUID to a builder
+     *
+     * @param uuid    the UUID to print, cannot be null
+     * @param dashes  true for the dashed form, false for the undashed form
+     * @param builder the builder to append to, cannot be null
+     *
+     * @return the builder
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public static StringBuilder appendTo(UUID uuid, boolean dashes, StringBuilder builder) {
+        if (uuid == null || builder == null) throw new IllegalArgumentException();
+
+        char[] chars = SCRATCH.get();
+        return builder.append(chars, 0, fill(uuid, dashes, chars));
+    }
+
+    /**
+     * Writes a UUID as ASCII into a byte array
+     *
+     * @param uuid   the UUID to print, cannot be null
+     * @param dashes true for the dashed form, false for the undashed form
+     * @param dest   the array to write to, cannot be null and must have room from the offset
+     * @param offset the index to start writing at
+     *
+     * @return the index after the last byte written
+     *
+     * @throws java.lang.IllegalArgumentException thrown for null arguments
+     */
+    public static int write(UUID uuid, boolean dashes, byte[] dest, int offset) {
+        if (uuid == null || dest == null) throw new IllegalArgumentException();
+
+        char[] chars = SCRATCH.get();
+        int length = fill(uuid, dashes, chars);
+        for (int i = 0; i < length; i++) dest[offset + i] = (byte) chars[i];
+        return offset + length;
+    }
+
+    /**
+     * Prints a UUID into the start of an array, returning the number of characters printed
+     */
+    private static int fill(UUID uuid, boolean dashes, char[] chars) {
+        long msb = uuid.getMostSignificantBits(), lsb = uuid.getLeastSignificantBits();
+        if (!dashes) {
+            digits(chars, 16, msb, 16);
+            digits(chars, 32, lsb, 16);
+            return UNDASHED_LENGTH;
+        }
+        digits(chars, 8, msb >>> 32, 8);
+        chars[8] = '-';
+        digits(chars, 13, msb >>> 16, 4);
+        chars[13] = '-';
+        digits(chars, 18, msb, 4);
+        chars[18] = '-';
+        digits(chars, 23, lsb >>> 48, 4);
+        chars[23] = '-';
+        digits(chars, 36, lsb, 12);
+        return DASHED_LENGTH;
+    }
+
+    /**
+     * Writes the lowest digits of a value, the last one just before the end index
+     */
+    private static void digits(char[] chars, int end, long value, int count) {
+        for (int i = end - 1; i >= end - count; i--) {
+            chars[i] = DIGITS[(int) value & 0xF];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * Reads up to 15 hexadecimal digits from a value, returning -1 if any of them is not a digit
+     */
+    private static long hex(CharSequence value, int offset, int count) {
+        long result = 0;
+        int invalid = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = digit(value.charAt(i));
+            invalid |= digit;
+            result = result << 4 | digit;
+        }
+        return invalid < 0 ? -1 : result;
+    }
+
+    private static long hex(char[] chars, int offset, int count) {
+        long result = 0;
+        int invalid = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = digit(chars[i]);
+            invalid |= digit;
+            result = result << 4 | digit;
+        }
+        return invalid < 0 ? -1 : result;
+    }
+
+    private static int digit(char c) {
+        return c < 128 ? VALUES[c] : -1;
+    }
+}
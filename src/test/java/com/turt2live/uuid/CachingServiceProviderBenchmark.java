@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid;
+
+import com.turt2live.uuid.cache.NameIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup throughput of the caching provider as the number of threads grows. The
+ * working set is larger than the pre-warmed portion so that every thread mixes
+ * cache hits with misses (which write to both indexes). The name index is also
+ * written on its own, half puts and half removes, to show its writes scale.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachingServiceProviderBenchmark {
+
+    private static final int PLAYERS = 1 << 16;
+
+    private UUID[] uuids;
+    private String[] names;
+    private CachingServiceProvider service;
+    private NameIndex<UUID> nameIndex;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        StubServiceProvider stub = new StubServiceProvider();
+        uuids = new UUID[PLAYERS];
+        names = new String[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            uuids[i] = UUID.randomUUID();
+            names[i] = "Player" + i;
+            stub.add(uuids[i], names[i]);
+        }
+
+        service = new CachingServiceProvider(stub);
+        for (int i = 0; i < PLAYERS / 2; i++) service.doLookup(uuids[i]);
+
+        nameIndex = new NameIndex<>();
+        for (int i = 0; i < PLAYERS / 2; i++) nameIndex.put(names[i], uuids[i]);
+    }
+
+    private PlayerRecord lookup() {
+        int index = ThreadLocalRandom.current().nextInt(PLAYERS);
+        return (index & 1) == 0 ? service.doLookup(uuids[index]) : service.doLookup(names[index]);
+    }
+
+    private Object write() {
+        int index = ThreadLocalRandom.current().nextInt(PLAYERS);
+        return (index & 1) == 0 ? nameIndex.put(names[index], uuids[index]) : nameIndex.remove(names[index ^ 1], uuids[index ^ 1]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public PlayerRecord lookup_1_thread() {
+        return lookup();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PlayerRecord lookup_4_threads() {
+        return lookup();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public PlayerRecord lookup_16_threads() {
+        return lookup();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object nameIndexWrite_1_thread() {
+        return write();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object nameIndexWrite_4_threads() {
+        return write();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object nameIndexWrite_16_threads() {
+        return write();
+    }
+}
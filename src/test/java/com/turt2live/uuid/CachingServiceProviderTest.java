@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid;
+
+import com.turt2live.uuid.cache.CompactRecordCache;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class CachingServiceProviderTest {
+
+    private static final String PLAYER_NAME = "turt2live";
+    private static final UUID PLAYER_UUID = UUID.fromString("c465b154-3c29-4dbf-a7e3-e0869504b8d8");
+
+    private StubServiceProvider stub;
+    private CachingServiceProvider service;
+
+    @Before
+    public void setup() {
+        stub = new StubServiceProvider().add(PLAYER_UUID, PLAYER_NAME);
+        service = new CachingServiceProvider(stub);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_constructor_throw_exception_on_null_input() {
+        new CachingServiceProvider(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_bulk_name_lookup_throw_expcetion_on_partial_null_input() {
+        service.doBulkLookup("not null", null, "still not null");
+    }
+
+    @Test
+    public void does_get_by_uuid_cache() {
+        PlayerRecord first = service.doLookup(PLAYER_UUID);
+        PlayerRecord second = service.doLookup(PLAYER_UUID);
+
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(1, stub.lookups.get());
+    }
+
+    @Test
+    public void does_get_by_name_share_cache_with_uuid() {
+        service.doLookup(PLAYER_UUID);
+        PlayerRecord record = service.doLookup(PLAYER_NAME.toUpperCase());
+
+        assertNotNull(record);
+        assertEquals(PLAYER_UUID, record.getUuid());
+        assertEquals(1, stub.lookups.get());
+    }
+
+    @Test
+    public void does_seed_load_populate_both_indexes() {
+        UUID uuid = UUID.randomUUID();
+        service.seedLoad(Collections.singletonMap(uuid, "Seeded"));
+
+        assertEquals(uuid, service.doLookup("seeded").getUuid());
+        assertEquals("Seeded", service.doLookup(uuid).getName());
+        assertEquals(0, stub.lookups.get());
+    }
+
+    @Test
+    public void does_concurrent_lookup_keep_indexes_consistent() throws Exception {
+        final int players = 500;
+        final List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            UUID uuid = UUID.randomUUID();
+            uuids.add(uuid);
+            stub.add(uuid, "player" + i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int offset = t;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < players * 4; i++) {
+                        int index = (i + offset * 31) % players;
+                        PlayerRecord byName = service.doLookup("player" + index);
+                        assertNotNull(byName);
+                        assertEquals(uuids.get(index), byName.getUuid());
+
+                        PlayerRecord byUuid = service.doLookup(byName.getUuid());
+                        assertNotNull(byUuid);
+                        assertEquals("player" + index, byUuid.getName());
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    @Test
+    public void does_concurrent_miss_make_one_request() throws Exception {
+        stub.latency = 200;
+        final CyclicBarrier barrier = new CyclicBarrier(8);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<PlayerRecord>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final boolean bulk = (t & 1) == 0;
+            final String name = (t & 2) == 0 ? PLAYER_NAME : PLAYER_NAME.toUpperCase();
+            futures.add(executor.submit(new Callable<PlayerRecord>() {
+                @Override
+                public PlayerRecord call() throws Exception {
+                    barrier.await();
+                    return bulk ? service.doBulkLookup(name).get(0) : service.doLookup(name);
+                }
+            }));
+        }
+        for (Future<PlayerRecord> future : futures) {
+            assertEquals(PLAYER_UUID, future.get(30, TimeUnit.SECONDS).getUuid());
+        }
+        executor.shutdown();
+
+        assertEquals(1, stub.lookups.get());
+    }
+
+    @Test
+    public void does_bulk_lookup_forward_misses_in_batches() {
+        stub.maxBulkSize = 4;
+        String[] names = new String[7];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "player" + i;
+            stub.add(UUID.randomUUID(), names[i]);
+        }
+        service.doLookup(names[0]);
+        assertEquals(1, stub.lookups.get());
+
+        List<PlayerRecord> records = service.doBulkLookup(names);
+
+        assertEquals(names.length, records.size());
+        for (int i = 0; i < names.length; i++) assertEquals(names[i], records.get(i).getName());
+        assertEquals(2, stub.bulkLookups.get()); // 6 misses: 4 + 2
+        assertEquals(1, stub.lookups.get());
+
+        service.doBulkLookup(names);
+        assertEquals(2, stub.bulkLookups.get());
+    }
+
+    @Test
+    public void does_unknown_player_get_cached() {
+        PlayerRecord first = service.doLookup("NotAPlayer");
+        PlayerRecord second = service.doLookup("notaplayer");
+
+        assertTrue(UnknownPlayerRecord.isUnknown(first));
+        assertTrue(UnknownPlayerRecord.isUnknown(second));
+        assertTrue(service.doBulkLookup("notaplayer").isEmpty());
+        assertEquals(1, stub.lookups.get());
+    }
+
+    @Test
+    public void does_connection_problem_not_get_cached() {
+        stub.offline = true;
+        assertNull(service.doLookup(PLAYER_NAME));
+
+        stub.offline = false;
+        assertEquals(PLAYER_UUID, service.doLookup(PLAYER_NAME).getUuid());
+        assertEquals(2, stub.lookups.get());
+    }
+
+    @Test
+    public void does_disabled_negative_caching_forward_every_lookup() {
+        service.setNegativeCaching(0, 0);
+        service.doLookup("NotAPlayer");
+        service.doLookup("NotAPlayer");
+
+        assertEquals(2, stub.lookups.get());
+    }
+
+    @Test
+    public void does_async_hit_complete_immediately() {
+        service.doLookup(PLAYER_UUID);
+
+        CompletableFuture<PlayerRecord> byUuid = service.doLookupAsync(PLAYER_UUID);
+        CompletableFuture<PlayerRecord> byName = service.doLookupAsync(PLAYER_NAME);
+
+        assertTrue(byUuid.isDone());
+        assertTrue(byName.isDone());
+        assertEquals(PLAYER_NAME, byUuid.join().getName());
+        assertEquals(PLAYER_UUID, byName.join().getUuid());
+        assertEquals(1, stub.lookups.get());
+    }
+
+    @Test
+    public void does_async_miss_not_block_caller() throws Exception {
+        stub.latency = 200;
+        CompletableFuture<PlayerRecord> first = service.doLookupAsync(PLAYER_NAME);
+        CompletableFuture<List<PlayerRecord>> second = service.doBulkLookupAsync(PLAYER_NAME.toUpperCase());
+
+        assertFalse(first.isDone());
+        assertEquals(PLAYER_UUID, first.get(30, TimeUnit.SECONDS).getUuid());
+        assertEquals(PLAYER_UUID, second.get(30, TimeUnit.SECONDS).get(0).getUuid());
+        assertEquals(1, stub.lookups.get());
+        assertTrue(service.doLookupAsync(PLAYER_UUID).isDone());
+    }
+
+    @Test
+    public void does_async_bulk_lookup_forward_misses_in_batches() throws Exception {
+        stub.maxBulkSize = 4;
+        String[] names = new String[9];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "player" + i;
+            stub.add(UUID.randomUUID(), names[i]);
+        }
+
+        List<PlayerRecord> records = service.doBulkLookupAsync(names).get(30, TimeUnit.SECONDS);
+
+        assertEquals(names.length, records.size());
+        for (int i = 0; i < names.length; i++) assertEquals(names[i], records.get(i).getName());
+        assertEquals(2, stub.bulkLookups.get()); // 4 + 4, and the last one alone
+        assertEquals(1, stub.lookups.get());
+    }
+
+    @Test
+    public void does_async_failure_complete_exceptionally() throws Exception {
+        service = new CachingServiceProvider(new StubServiceProvider() {
+            @Override
+            public List<PlayerRecord> doBulkLookup(String... playerNames) {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        try {
+            service.doBulkLookupAsync("a", "b").get(30, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_async_lookup_throw_exception_on_null_input() {
+        service.doLookupAsync((UUID) null);
+    }
+
+    @Test
+    public void does_refresh_ahead_reload_in_background() throws Exception {
+        service = new CachingServiceProvider(stub, 2);
+        service.setRefreshAhead(1, 0, 1);
+        service.doLookup(PLAYER_UUID);
+
+        Thread.sleep(1100); // Inside the refresh window, but not expired
+        stub.latency = 300;
+        long start = System.currentTimeMillis();
+        assertTrue(service.doLookupAsync(PLAYER_UUID).isDone());
+        assertNotNull(service.doLookup(PLAYER_NAME));
+        assertTrue(System.currentTimeMillis() - start < 300);
+
+        for (int i = 0; i < 100 && stub.lookups.get() < 2; i++) Thread.sleep(20);
+        for (int i = 0; i < 100 && service.getRefreshesInProgress() > 0; i++) Thread.sleep(20);
+        assertEquals(2, stub.lookups.get());
+        assertEquals(0, service.getRefreshesInProgress());
+
+        Thread.sleep(1000); // The first record would have expired by now
+        assertTrue(service.doLookupAsync(PLAYER_UUID).isDone());
+    }
+
+    @Test
+    public void does_compact_store_cache() {
+        service = new CachingServiceProvider(stub, 60, new CompactRecordCache());
+        service.doLookup(PLAYER_NAME);
+        PlayerRecord record = service.doLookup(PLAYER_UUID);
+
+        assertEquals(PLAYER_NAME, record.getName());
+        assertEquals(1, stub.lookups.get());
+        assertEquals(1, service.getCacheSize());
+    }
+}
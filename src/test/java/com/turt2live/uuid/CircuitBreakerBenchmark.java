@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid;
+
+import com.turt2live.uuid.utils.CircuitBreaker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a lookup through a {@link CircuitBreakingServiceProvider} while the
+ * breaker is closed (its bookkeeping on top of a stub lookup) and while it is
+ * open (the whole cost of failing fast).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircuitBreakerBenchmark {
+
+    private final UUID player = UUID.randomUUID();
+    private StubServiceProvider stub;
+    private CircuitBreakingServiceProvider closed;
+    private CircuitBreakingServiceProvider open;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        stub = new StubServiceProvider().add(player, "Player");
+        closed = new CircuitBreakingServiceProvider(stub);
+
+        StubServiceProvider down = new StubServiceProvider();
+        down.offline = true;
+        open = new CircuitBreakingServiceProvider(down);
+        open.getCircuitBreaker().setOpenDuration(1, TimeUnit.DAYS);
+        while (open.getCircuitBreaker().tryAcquire() != CircuitBreaker.REJECTED) open.doLookup(player);
+    }
+
+    @Benchmark
+    public PlayerRecord stub() {
+        return stub.doLookup(player);
+    }
+
+    @Benchmark
+    public PlayerRecord closed() {
+        return closed.doLookup(player);
+    }
+
+    @Benchmark
+    public PlayerRecord open() {
+        return open.doLookup(player);
+    }
+}
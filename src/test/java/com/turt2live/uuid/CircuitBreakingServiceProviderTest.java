@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid;
+
+import com.turt2live.uuid.utils.CircuitBreaker;
+import com.turt2live.uuid.utils.HTTPUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class CircuitBreakingServiceProviderTest {
+
+    private static final String PLAYER_NAME = "turt2live";
+    private static final UUID PLAYER_UUID = UUID.fromString("c465b154-3c29-4dbf-a7e3-e0869504b8d8");
+
+    private StubServiceProvider stub;
+    private StubServiceProvider fallback;
+    private CircuitBreakingServiceProvider service;
+
+    @Before
+    public void setup() {
+        stub = new StubServiceProvider().add(PLAYER_UUID, PLAYER_NAME);
+        fallback = new StubServiceProvider().add(PLAYER_UUID, PLAYER_NAME);
+        service = new CircuitBreakingServiceProvider(stub);
+        service.getCircuitBreaker().setOpenDuration(100, TimeUnit.MILLISECONDS);
+    }
+
+    private void breakService() {
+        stub.offline = true;
+        for (int i = 0; i < CircuitBreaker.DEFAULT_MINIMUM_CALLS; i++) service.doLookup(PLAYER_UUID);
+        assertEquals(CircuitBreaker.State.OPEN, service.getCircuitBreaker().getState());
+        stub.lookups.set(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_constructor_throw_exception_on_null_input() {
+        new CircuitBreakingServiceProvider(null, fallback);
+    }
+
+    @Test
+    public void does_open_circuit_fail_fast() {
+        breakService();
+        stub.latency = 1000;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) assertNull(service.doLookup(PLAYER_NAME));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(0, stub.lookups.get());
+        assertEquals(1000, service.getCircuitBreaker().getRejectedCount());
+    }
+
+    @Test
+    public void does_open_circuit_use_fallback() {
+        service = new CircuitBreakingServiceProvider(stub, fallback);
+        breakService();
+        assertEquals(CircuitBreaker.DEFAULT_MINIMUM_CALLS, fallback.lookups.get()); // Failed calls too
+
+        assertEquals(PLAYER_UUID, service.doLookup(PLAYER_NAME).getUuid());
+        assertEquals(0, stub.lookups.get());
+        assertEquals(CircuitBreaker.DEFAULT_MINIMUM_CALLS + 1, fallback.lookups.get());
+    }
+
+    @Test
+    public void does_circuit_close_once_service_recovers() throws InterruptedException {
+        breakService();
+        stub.offline = false;
+        Thread.sleep(150);
+
+        for (int i = 0; i < CircuitBreaker.DEFAULT_PROBES; i++) assertNotNull(service.doLookup(PLAYER_UUID));
+        assertEquals(CircuitBreaker.State.CLOSED, service.getCircuitBreaker().getState());
+        assertNotNull(service.doLookup(PLAYER_NAME));
+    }
+
+    @Test
+    public void does_exception_not_count_as_failure() {
+        service = new CircuitBreakingServiceProvider(new StubServiceProvider() {
+            @Override
+            public PlayerRecord doLookup(String playerName) {
+                throw new HTTPUtils.RateLimitedException("Too Many Requests");
+            }
+        });
+        for (int i = 0; i < CircuitBreaker.DEFAULT_MINIMUM_CALLS * 2; i++) {
+            try {
+                service.doLookup(PLAYER_NAME);
+                fail();
+            } catch (HTTPUtils.RateLimitedException expected) {
+                // Passed on
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, service.getCircuitBreaker().getState());
+    }
+}
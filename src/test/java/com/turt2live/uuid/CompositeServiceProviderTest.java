@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class CompositeServiceProviderTest {
+
+    private static final String PLAYER_NAME = "turt2live";
+    private static final UUID PLAYER_UUID = UUID.fromString("c465b154-3c29-4dbf-a7e3-e0869504b8d8");
+
+    private StubServiceProvider slow;
+    private StubServiceProvider fast;
+    private CompositeServiceProvider service;
+
+    @Before
+    public void setup() {
+        slow = new StubServiceProvider().add(PLAYER_UUID, PLAYER_NAME);
+        slow.latency = 30;
+        fast = new StubServiceProvider().add(PLAYER_UUID, PLAYER_NAME);
+        service = new CompositeServiceProvider(slow, fast);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_constructor_throw_exception_on_empty_input() {
+        new CompositeServiceProvider();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_latency_throw_exception_on_unknown_service() {
+        service.getLatency(new StubServiceProvider(), TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void does_route_to_fastest_service() {
+        assertEquals(Arrays.<ServiceProvider>asList(slow, fast), service.getRouting());
+        for (int i = 0; i < 10; i++) assertEquals(PLAYER_UUID, service.doLookup(PLAYER_NAME).getUuid());
+
+        assertEquals(1, slow.lookups.get()); // Once, to time it
+        assertEquals(9, fast.lookups.get());
+        assertEquals(Arrays.<ServiceProvider>asList(fast, slow), service.getRouting());
+        assertTrue(service.getLatency(slow, TimeUnit.MILLISECONDS) >= 30);
+    }
+
+    @Test
+    public void does_failure_fall_over_and_mark_unhealthy() {
+        service.doLookup(PLAYER_NAME);
+        service.doLookup(PLAYER_NAME); // Both timed, fast is preferred
+        fast.offline = true;
+
+        for (int i = 0; i < 5; i++) assertEquals(PLAYER_UUID, service.doLookup(PLAYER_UUID).getUuid());
+
+        assertTrue(service.getErrorRate(fast) >= CompositeServiceProvider.UNHEALTHY_ERROR_RATE);
+        assertEquals(slow, service.getRouting().get(0));
+        assertEquals(6, slow.lookups.get());
+        assertTrue(fast.lookups.get() < 6); // No longer asked first
+    }
+
+    @Test
+    public void does_unknown_player_fall_over() {
+        UUID uuid = UUID.randomUUID();
+        fast.add(uuid, "OnlyFast");
+
+        assertEquals("OnlyFast", service.doLookup(uuid).getName());
+        assertTrue(UnknownPlayerRecord.isUnknown(service.doLookup("NotAPlayer")));
+        assertEquals(2, slow.lookups.get());
+        assertEquals(2, fast.lookups.get());
+
+        service.setMissFallover(false);
+        service.doLookup(PLAYER_UUID);
+        service.doLookup(PLAYER_UUID); // Routing has settled on fast
+        assertTrue(UnknownPlayerRecord.isUnknown(service.doLookup("NotAPlayer")));
+    }
+
+    @Test
+    public void does_bulk_lookup_pick_cheapest_service() {
+        StubServiceProvider perPlayer = new StubServiceProvider() {
+            @Override
+            public int getBulkRequestCount(int players, boolean byUuid) {
+                return players;
+            }
+        }.add(PLAYER_UUID, PLAYER_NAME);
+        service = new CompositeServiceProvider(perPlayer, slow);
+        UUID other = UUID.randomUUID();
+        slow.add(other, "Other");
+
+        List<PlayerRecord> records = service.doBulkLookup(PLAYER_UUID, other);
+
+        assertEquals(2, records.size());
+        assertEquals(0, perPlayer.bulkLookups.get());
+        assertEquals(1, slow.bulkLookups.get());
+        assertEquals(1, service.getBulkRequestCount(2, true));
+    }
+
+    @Test
+    public void does_bulk_lookup_see_through_cached_service() {
+        StubServiceProvider perPlayer = new StubServiceProvider() {
+            @Override
+            public int getBulkRequestCount(int players, boolean byUuid) {
+                return players;
+            }
+        }.add(PLAYER_UUID, PLAYER_NAME);
+        service = new CompositeServiceProvider(new CachingServiceProvider(perPlayer), slow);
+        UUID other = UUID.randomUUID();
+        slow.add(other, "Other");
+
+        assertEquals(2, service.doBulkLookup(PLAYER_UUID, other).size());
+        assertEquals(0, perPlayer.bulkLookups.get());
+        assertEquals(1, slow.bulkLookups.get());
+    }
+
+    @Test
+    public void does_bulk_lookup_forward_missing_players() {
+        fast.add(UUID.randomUUID(), "OnlyFast");
+        slow.maxBulkSize = 1;
+        service = new CompositeServiceProvider(fast, slow);
+        slow.add(UUID.randomUUID(), "OnlySlow");
+
+        List<PlayerRecord> records = service.doBulkLookup(PLAYER_NAME, "onlyfast", "OnlySlow", "NotAPlayer");
+
+        assertEquals(3, records.size());
+        assertEquals(1, fast.bulkLookups.get());
+        assertEquals(2, slow.bulkLookups.get()); // OnlySlow and NotAPlayer, one at a time
+    }
+
+    @Test
+    public void does_total_failure_return_null() {
+        slow.offline = true;
+        fast.offline = true;
+
+        assertNull(service.doLookup(PLAYER_NAME));
+        assertNull(service.doBulkLookup(PLAYER_NAME));
+    }
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid;
+
+import com.turt2live.uuid.utils.LatencyTracker;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class HedgedServiceProviderTest {
+
+    private static final String PLAYER_NAME = "turt2live";
+    private static final UUID PLAYER_UUID = UUID.fromString("c465b154-3c29-4dbf-a7e3-e0869504b8d8");
+
+    private StubServiceProvider primary;
+    private StubServiceProvider alternate;
+    private HedgedServiceProvider service;
+
+    @Before
+    public void setup() {
+        primary = new StubServiceProvider().add(PLAYER_UUID, PLAYER_NAME);
+        alternate = new StubServiceProvider().add(PLAYER_UUID, PLAYER_NAME);
+        service = new HedgedServiceProvider(primary, alternate);
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < 50; i++) assertNotNull(service.doLookup(PLAYER_UUID));
+        primary.lookups.set(0);
+        assertEquals(0, alternate.lookups.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_constructor_throw_exception_on_null_input() {
+        new HedgedServiceProvider(null, alternate);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_bulk_lookup_throw_exception_on_partial_null_input() {
+        service.doBulkLookup("not null", null);
+    }
+
+    @Test
+    public void does_slow_lookup_return_null_at_deadline() {
+        service = new HedgedServiceProvider(primary);
+        service.setDeadline(100, TimeUnit.MILLISECONDS);
+        primary.latency = 1000;
+
+        long start = System.currentTimeMillis();
+        assertNull(service.doLookup(PLAYER_NAME));
+        assertTrue(System.currentTimeMillis() - start < 800);
+        assertEquals(1, service.getTimeoutCount());
+    }
+
+    @Test
+    public void does_timed_out_lookup_count_towards_latency() {
+        service.setDeadline(20, TimeUnit.MILLISECONDS);
+        service.setHedging(HedgedServiceProvider.DEFAULT_HEDGE_PERCENTILE, 1, TimeUnit.MILLISECONDS);
+        primary.latency = 1000;
+        alternate.latency = 1000;
+
+        for (int i = 0; i < LatencyTracker.DEFAULT_WINDOW / 6; i++) assertNull(service.doLookup(PLAYER_UUID));
+        assertEquals(20, service.getHedgeDelay(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void does_failed_lookup_fail_over() {
+        primary.offline = true;
+
+        assertEquals(PLAYER_UUID, service.doLookup(PLAYER_NAME).getUuid());
+        assertNotNull(service.doBulkLookup(PLAYER_NAME));
+        assertEquals(2, service.getHedgeCount());
+        assertEquals(1, alternate.lookups.get());
+        assertEquals(1, alternate.bulkLookups.get());
+    }
+
+    @Test
+    public void does_lookup_not_hedge_before_latency_is_known() {
+        assertEquals(-1, service.getHedgeDelay(TimeUnit.MILLISECONDS));
+        primary.latency = 200;
+
+        assertNotNull(service.doLookup(PLAYER_UUID));
+        assertEquals(0, alternate.lookups.get());
+    }
+
+    @Test
+    public void does_slow_lookup_hedge() {
+        warmUp();
+        assertEquals(HedgedServiceProvider.DEFAULT_MINIMUM_HEDGE_DELAY, service.getHedgeDelay(TimeUnit.MILLISECONDS));
+
+        primary.latency = 1000;
+        long start = System.currentTimeMillis();
+        assertEquals(PLAYER_NAME, service.doLookup(PLAYER_UUID).getName());
+        assertTrue(System.currentTimeMillis() - start < 800);
+        assertEquals(1, primary.lookups.get());
+        assertEquals(1, alternate.lookups.get());
+        assertEquals(1, service.getHedgeCount());
+    }
+
+    @Test
+    public void does_bulk_lookup_not_hedge_on_latency() {
+        warmUp();
+        primary.latency = 200;
+
+        assertEquals(1, service.doBulkLookup(PLAYER_NAME).size());
+        assertEquals(0, alternate.bulkLookups.get());
+        assertEquals(0, service.getHedgeCount());
+    }
+
+    @Test
+    public void does_disabled_hedging_only_fail_over() {
+        service.setHedging(0, 0, TimeUnit.MILLISECONDS);
+        warmUp();
+        assertEquals(-1, service.getHedgeDelay(TimeUnit.MILLISECONDS));
+        primary.latency = 200;
+
+        assertNotNull(service.doLookup(PLAYER_UUID));
+        assertEquals(0, alternate.lookups.get());
+    }
+
+    @Test
+    public void does_max_bulk_size_fit_both_services() {
+        primary.maxBulkSize = 100;
+        assertEquals(100, service.getMaxBulkLookupSize());
+
+        alternate.maxBulkSize = 10;
+        assertEquals(10, service.getMaxBulkLookupSize());
+    }
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs lookups against two stub services with a long latency tail (mostly
+ * 20-40ms, but 2% of lookups take 600ms) and prints the latency percentiles
+ * seen by callers without hedging and with hedging at the p95 and p90, along
+ * with the share of lookups that had to be sent twice.
+ * <p>
+ * Run with: {@code java -cp <test classpath> com.turt2live.uuid.HedgingSimulation}
+ */
+public class HedgingSimulation {
+
+    private static final int LOOKUPS = 1000;
+    private static final UUID PLAYER = UUID.randomUUID();
+
+    public static void main(String[] args) {
+        System.out.printf("%-12s %8s %8s %8s %8s %10s%n", "mode", "p50", "p95", "p99", "max", "hedged");
+        run("plain", new HedgedServiceProvider(new TailService(1)));
+        run("hedged p95", new HedgedServiceProvider(new TailService(2), new TailService(3)));
+
+        HedgedServiceProvider p90 = new HedgedServiceProvider(new TailService(4), new TailService(5));
+        p90.setHedging(0.9, HedgedServiceProvider.DEFAULT_MINIMUM_HEDGE_DELAY, TimeUnit.MILLISECONDS);
+        run("hedged p90", p90);
+    }
+
+    private static void run(String mode, HedgedServiceProvider service) {
+        for (int i = 0; i < 50; i++) service.doLookup(PLAYER); // Learn the latency first
+
+        long hedges = service.getHedgeCount();
+        long[] latencies = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            long start = System.nanoTime();
+            service.doLookup(PLAYER);
+            latencies[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-12s %6dms %6dms %6dms %6dms %9.1f%%%n", mode,
+                latencies[LOOKUPS / 2], latencies[LOOKUPS * 95 / 100], latencies[LOOKUPS * 99 / 100],
+                latencies[LOOKUPS - 1], (service.getHedgeCount() - hedges) * 100.0 / LOOKUPS);
+    }
+
+    private static class TailService extends StubServiceProvider {
+
+        private final Random random;
+
+        private TailService(long seed) {
+            this.random = new Random(seed);
+            add(PLAYER, "Player");
+        }
+
+        @Override
+        public PlayerRecord doLookup(UUID uuid) {
+            long delay;
+            synchronized (random) {
+                delay = random.nextInt(100) < 2 ? 600 : 20 + random.nextInt(20);
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.doLookup(uuid);
+        }
+    }
+}
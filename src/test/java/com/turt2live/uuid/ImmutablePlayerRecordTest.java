@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid;
+
+import com.turt2live.uuid.mojang.MojangPlayerRecord;
+import com.turt2live.uuid.turt2live.Turt2LivePlayerRecord;
+import com.turt2live.uuid.utils.NamePool;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ImmutablePlayerRecordTest {
+
+    private static final String PLAYER_NAME = "turt2live";
+    private static final UUID PLAYER_UUID = UUID.fromString("c465b154-3c29-4dbf-a7e3-e0869504b8d8");
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_constructor_throw_exception_on_null_input() {
+        new ImmutablePlayerRecord(PLAYER_UUID, null);
+    }
+
+    @Test
+    public void does_record_keep_values() {
+        UUID offline = UUID.randomUUID();
+        PlayerRecord record = new Turt2LivePlayerRecord(PLAYER_UUID, PLAYER_NAME, offline, 60, 1234, true);
+
+        assertSame(PLAYER_UUID, record.getUuid()); // Read on every cache hit, so never copied
+        assertEquals(offline, record.getOfflineUuid());
+        assertEquals(PLAYER_NAME, record.getName());
+        assertTrue(record.isCached());
+        assertEquals(1234, record.getExpirationTime());
+        assertEquals(60, record.getTimeLeft());
+
+        assertNull(new MemoryPlayerRecord(PLAYER_UUID, PLAYER_NAME).getOfflineUuid());
+        assertNotNull(new MojangPlayerRecord(PLAYER_UUID, PLAYER_NAME).getOfflineUuid());
+    }
+
+    @Test
+    public void does_record_share_names() {
+        PlayerRecord first = new MemoryPlayerRecord(PLAYER_UUID, new String(PLAYER_NAME.toCharArray()));
+        PlayerRecord second = new MojangPlayerRecord(PLAYER_UUID, new String(PLAYER_NAME.toCharArray()));
+
+        assertSame(first.getName(), second.getName());
+    }
+
+    @Test
+    public void does_pool_replace_colliding_names() {
+        NamePool pool = new NamePool(1);
+        String first = pool.intern(new String("first"));
+        assertSame(first, pool.intern("first".toCharArray(), 0, 5));
+
+        pool.intern("second");
+        assertNotSame(first, pool.intern(new String("first")));
+        assertNull(pool.intern(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_pool_throw_exception_on_bad_size() {
+        new NamePool(3);
+    }
+}
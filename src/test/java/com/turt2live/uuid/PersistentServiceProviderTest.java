@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class PersistentServiceProviderTest {
+
+    private static final String PLAYER_NAME = "turt2live";
+    private static final UUID PLAYER_UUID = UUID.fromString("c465b154-3c29-4dbf-a7e3-e0869504b8d8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubServiceProvider stub;
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        stub = new StubServiceProvider().add(PLAYER_UUID, PLAYER_NAME);
+        file = folder.newFile();
+    }
+
+    @Test
+    public void does_lookup_survive_restart() throws IOException {
+        try (PersistentServiceProvider service = new PersistentServiceProvider(stub, file)) {
+            assertEquals(PLAYER_UUID, service.doLookup(PLAYER_NAME).getUuid());
+            assertEquals(PLAYER_UUID, service.doLookup(PLAYER_UUID).getUuid());
+            assertEquals(1, stub.lookups.get());
+        }
+
+        try (PersistentServiceProvider service = new PersistentServiceProvider(stub, file)) {
+            CachingServiceProvider caching = new CachingServiceProvider(service);
+            assertEquals(PLAYER_NAME, caching.doLookup(PLAYER_UUID).getName());
+            assertEquals(1, stub.lookups.get());
+        }
+    }
+
+    @Test
+    public void does_bulk_lookup_only_forward_misses() throws IOException {
+        UUID other = UUID.randomUUID();
+        stub.add(other, "Other");
+        try (PersistentServiceProvider service = new PersistentServiceProvider(stub, file)) {
+            service.doLookup(PLAYER_UUID);
+
+            List<PlayerRecord> records = service.doBulkLookup("other", PLAYER_NAME, "nobody");
+            assertEquals(2, records.size());
+            assertEquals(1, stub.bulkLookups.get());
+
+            service.doBulkLookup("other", PLAYER_NAME);
+            assertEquals(1, stub.bulkLookups.get());
+        }
+    }
+
+    @Test
+    public void does_unknown_player_not_get_stored() throws IOException {
+        try (PersistentServiceProvider service = new PersistentServiceProvider(stub, file)) {
+            assertTrue(UnknownPlayerRecord.isUnknown(service.doLookup("nobody")));
+            assertEquals(0, service.getStoredCount());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid;
+
+import com.turt2live.uuid.utils.NamePool;
+
+import java.util.UUID;
+
+/**
+ * Measures the heap retained per player record. Every player is held three
+ * times, as a cache, a name history and a lookup result would hold them, each
+ * time with a name string of its own as parsed from a response. The old
+ * representation (a mutable record pointing at its own {@link UUID} objects and
+ * name) is compared with {@link ImmutablePlayerRecord}.
+ * <p>
+ * Run with: {@code java -cp <test classpath> com.turt2live.uuid.RecordHeapSimulation}
+ */
+public class RecordHeapSimulation {
+
+    private static final int COPIES = 3;
+
+    public static void main(String[] args) {
+        run(20000); // Fits the shared name pool
+        run(200000); // Far more players than the pool holds, so names collide
+    }
+
+    private static void run(int players) {
+        UUID[] uuids = new UUID[players];
+        for (int i = 0; i < players; i++) uuids[i] = UUID.randomUUID();
+        System.out.println(players + " players x " + COPIES + " copies, name pool of " + NamePool.DEFAULT_SIZE);
+
+        measure("mutable", uuids, true);
+        measure("immutable", uuids, false);
+    }
+
+    private static void measure(String mode, UUID[] uuids, boolean legacy) {
+        int players = uuids.length;
+        long before = usedHeap();
+        Object[][] held = new Object[COPIES][players];
+        for (int copy = 0; copy < COPIES; copy++) {
+            for (int i = 0; i < players; i++) {
+                UUID uuid = new UUID(uuids[i].getMostSignificantBits(), uuids[i].getLeastSignificantBits());
+                UUID offline = UUID.nameUUIDFromBytes(("OfflinePlayer:Player" + i).getBytes());
+                String name = new String(("Player" + i).toCharArray());
+                held[copy][i] = legacy ? new LegacyRecord(uuid, name, offline, 60, 0, true)
+                        : new ImmutablePlayerRecord(uuid, name, offline, true, 0, 60);
+            }
+        }
+        long after = usedHeap();
+        long arrays = (long) COPIES * (16 + 4L * players);
+        System.out.printf("%-10s %6.1f bytes per record%n", mode, (after - before - arrays) / (double) (COPIES * players));
+        if (held[0][0] == null) throw new IllegalStateException(); // Keep the records reachable until now
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * The layout records had before, with their own unique ID objects
+     */
+    private static class LegacyRecord {
+        private UUID uuid;
+        private UUID offlineUuid;
+        private String name;
+        private long expiresOn;
+        private long expiresIn;
+        private boolean cached;
+
+        LegacyRecord(UUID uuid, String name, UUID offlineUuid, long expiresIn, long expiresOn, boolean cached) {
+            this.uuid = uuid;
+            this.name = name;
+            this.offlineUuid = offlineUuid;
+            this.expiresIn = expiresIn;
+            this.expiresOn = expiresOn;
+            this.cached = cached;
+        }
+    }
+}
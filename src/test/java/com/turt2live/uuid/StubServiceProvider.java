@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory service provider for tests and benchmarks. Every player known to the
+ * stub is answered without touching the network, and every call is counted.
+ */
+public class StubServiceProvider implements ServiceProvider {
+
+    private final Map<UUID, String> namesByUuid = new ConcurrentHashMap<>();
+    private final Map<String, UUID> uuidsByName = new ConcurrentHashMap<>();
+
+    public final AtomicInteger lookups = new AtomicInteger();
+    public final AtomicInteger bulkLookups = new AtomicInteger();
+    public volatile long latency = 0; // Milliseconds added to every lookup
+    public volatile int maxBulkSize = -1;
+    public volatile boolean offline = false; // Simulates a connection problem
+
+    public StubServiceProvider add(UUID uuid, String name) {
+        namesByUuid.put(uuid, name);
+        uuidsByName.put(name.toLowerCase(), uuid);
+        return this;
+    }
+
+    private void simulateLatency() {
+        if (latency <= 0) return;
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public PlayerRecord doLookup(UUID uuid) {
+        if (uuid == null) throw new IllegalArgumentException();
+        lookups.incrementAndGet();
+        simulateLatency();
+        if (offline) return null;
+
+        String name = namesByUuid.get(uuid);
+        return name == null ? new UnknownPlayerRecord(uuid) : new MemoryPlayerRecord(uuid, name);
+    }
+
+    @Override
+    public PlayerRecord doLookup(String playerName) {
+        if (playerName == null) throw new IllegalArgumentException();
+        lookups.incrementAndGet();
+        simulateLatency();
+        if (offline) return null;
+
+        UUID uuid = uuidsByName.get(playerName.toLowerCase());
+        return uuid == null ? new UnknownPlayerRecord(playerName) : new MemoryPlayerRecord(uuid, namesByUuid.get(uuid));
+    }
+
+    @Override
+    public String[] getNameHistory(UUID uuid) {
+        String name = namesByUuid.get(uuid);
+        return name == null ? null : new String[] {name};
+    }
+
+    @Override
+    public List<PlayerRecord> doBulkLookup(UUID... uuids) {
+        if (uuids == null) throw new IllegalArgumentException();
+        if (maxBulkSize > 0 && uuids.length > maxBulkSize) throw new UnsupportedOperationException();
+        bulkLookups.incrementAndGet();
+        simulateLatency();
+        if (offline) return null;
+
+        List<PlayerRecord> records = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            if (uuid == null) throw new IllegalArgumentException();
+            String name = namesByUuid.get(uuid);
+            if (name != null) records.add(new MemoryPlayerRecord(uuid, name));
+        }
+        return records;
+    }
+
+    @Override
+    public List<PlayerRecord> doBulkLookup(String... playerNames) {
+        if (playerNames == null) throw new IllegalArgumentException();
+        if (maxBulkSize > 0 && playerNames.length > maxBulkSize) throw new UnsupportedOperationException();
+        bulkLookups.incrementAndGet();
+        simulateLatency();
+        if (offline) return null;
+
+        List<PlayerRecord> records = new ArrayList<>();
+        for (String name : playerNames) {
+            if (name == null) throw new IllegalArgumentException();
+            UUID uuid = uuidsByName.get(name.toLowerCase());
+            if (uuid != null) records.add(new MemoryPlayerRecord(uuid, namesByUuid.get(uuid)));
+        }
+        return records;
+    }
+
+    @Override
+    public int getMaxBulkLookupSize() {
+        return maxBulkSize;
+    }
+
+    @Override
+    public PlayerRecord getRandomSample() {
+        List<PlayerRecord> records = getRandomSample(1);
+        return records.isEmpty() ? null : records.get(0);
+    }
+
+    @Override
+    public List<PlayerRecord> getRandomSample(int amount) {
+        if (amount <= 0) throw new IllegalArgumentException();
+
+        List<PlayerRecord> records = new ArrayList<>();
+        for (Map.Entry<UUID, String> entry : namesByUuid.entrySet()) {
+            if (records.size() >= amount) break;
+            records.add(new MemoryPlayerRecord(entry.getKey(), entry.getValue()));
+        }
+        return records;
+    }
+
+    @Override
+    public String getServiceName() {
+        return "stub";
+    }
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.MemoryPlayerRecord;
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.turt2live.Turt2LivePlayerRecord;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class CompactRecordCacheTest {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    @Test
+    public void does_get_find_by_uuid_and_name() {
+        CompactRecordCache cache = new CompactRecordCache();
+        UUID uuid = UUID.randomUUID();
+        cache.put(new MemoryPlayerRecord(uuid, "Turt2Live"), NEVER);
+
+        assertEquals("Turt2Live", cache.get(uuid).getName());
+        assertEquals(uuid, cache.get("TURT2LIVE").getUuid());
+        assertNull(cache.get(UUID.randomUUID()));
+        assertNull(cache.get("someone"));
+    }
+
+    @Test
+    public void does_view_keep_record_values() {
+        CompactRecordCache cache = new CompactRecordCache();
+        UUID uuid = UUID.randomUUID();
+        UUID offline = UUID.nameUUIDFromBytes("OfflinePlayer:turt2live".getBytes(StandardCharsets.UTF_8));
+        cache.put(new Turt2LivePlayerRecord(uuid, "turt2live", offline, 3600, 123456789L, true), NEVER);
+
+        PlayerRecord record = cache.get(uuid);
+        assertEquals(offline, record.getOfflineUuid());
+        assertEquals(3600, record.getTimeLeft());
+        assertEquals(123456789L, record.getExpirationTime());
+        assertTrue(record.isCached());
+
+        cache.put(new MemoryPlayerRecord(uuid, "turt2live"), NEVER);
+        record = cache.get("turt2live");
+        assertNull(record.getOfflineUuid());
+        assertEquals(-1, record.getTimeLeft());
+    }
+
+    @Test
+    public void does_rename_move_name_index() {
+        CompactRecordCache cache = new CompactRecordCache();
+        UUID uuid = UUID.randomUUID();
+        cache.put(new MemoryPlayerRecord(uuid, "OldName"), NEVER);
+        cache.put(new MemoryPlayerRecord(uuid, "NewName"), NEVER);
+
+        assertNull(cache.get("oldname"));
+        assertEquals(uuid, cache.get("newname").getUuid());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void does_taken_name_drop_previous_owner() {
+        CompactRecordCache cache = new CompactRecordCache();
+        UUID previous = UUID.randomUUID(), current = UUID.randomUUID();
+        cache.put(new MemoryPlayerRecord(previous, "Name"), NEVER);
+        cache.put(new MemoryPlayerRecord(current, "name"), NEVER);
+
+        assertEquals(current, cache.get("NAME").getUuid());
+        assertNull(cache.get(previous));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void does_expired_record_get_removed() {
+        CompactRecordCache cache = new CompactRecordCache();
+        UUID uuid = UUID.randomUUID();
+        cache.put(new MemoryPlayerRecord(uuid, "expired"), System.currentTimeMillis() - 1);
+
+        assertNull(cache.get("expired"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void does_cache_match_hash_map_through_growth_and_removal() {
+        CompactRecordCache cache = new CompactRecordCache();
+        Map<UUID, String> expected = new HashMap<>();
+        List<UUID> uuids = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20000; i++) {
+            if (!uuids.isEmpty() && random.nextInt(3) == 0) {
+                UUID uuid = uuids.remove(random.nextInt(uuids.size()));
+                assertTrue(cache.remove(uuid));
+                expected.remove(uuid);
+            } else {
+                UUID uuid = new UUID(random.nextLong(), random.nextLong());
+                uuids.add(uuid);
+                expected.put(uuid, "player" + i);
+                cache.put(new MemoryPlayerRecord(uuid, "player" + i), NEVER);
+            }
+        }
+
+        assertEquals(expected.size(), cache.size());
+        for (Map.Entry<UUID, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), cache.get(entry.getKey()).getName());
+            assertEquals(entry.getKey(), cache.get(entry.getValue().toUpperCase()).getUuid());
+        }
+        assertEquals(expected.size(), cache.sample(expected.size() + 1, random).size());
+    }
+
+    @Test
+    public void does_concurrent_access_stay_consistent() throws Exception {
+        final CompactRecordCache cache = new CompactRecordCache();
+        final List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) uuids.add(UUID.randomUUID());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < 20000; i++) {
+                        int index = (i * 7 + offset * 13) % uuids.size();
+                        UUID uuid = uuids.get(index);
+                        if (i % 5 == 0) cache.remove(uuid);
+                        else if (i % 2 == 0) cache.put(new MemoryPlayerRecord(uuid, "player" + index), NEVER);
+
+                        PlayerRecord byUuid = cache.get(uuid);
+                        if (byUuid != null) assertEquals("player" + index, byUuid.getName());
+                        PlayerRecord byName = cache.get("player" + index);
+                        if (byName != null) assertEquals(uuid, byName.getUuid());
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.turt2live.Turt2LivePlayerRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read latency of a {@link DiskRecordStore} hit, as seen on the login path when
+ * the in-memory cache misses after a restart. The log is reopened for the trial
+ * so that reads go through recovery's index, served from the page cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiskRecordStoreBenchmark {
+
+    private static final int PLAYERS = 100000;
+
+    private File file;
+    private UUID[] uuids;
+    private String[] names;
+    private DiskRecordStore store;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("records", ".log");
+        uuids = new UUID[PLAYERS];
+        names = new String[PLAYERS];
+        try (DiskRecordStore writer = new DiskRecordStore(file)) {
+            for (int i = 0; i < PLAYERS; i++) {
+                uuids[i] = UUID.randomUUID();
+                names[i] = "Player" + i;
+                writer.put(new Turt2LivePlayerRecord(uuids[i], names[i], null, 3600, Long.MAX_VALUE, true), Long.MAX_VALUE);
+            }
+        }
+        store = new DiskRecordStore(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public PlayerRecord get_by_uuid() throws IOException {
+        return store.get(uuids[ThreadLocalRandom.current().nextInt(PLAYERS)]);
+    }
+
+    @Benchmark
+    public PlayerRecord get_by_name() throws IOException {
+        return store.get(names[ThreadLocalRandom.current().nextInt(PLAYERS)]);
+    }
+}
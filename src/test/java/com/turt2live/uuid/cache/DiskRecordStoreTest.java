@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.MemoryPlayerRecord;
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.turt2live.Turt2LivePlayerRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class DiskRecordStoreTest {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void does_store_survive_reopen() throws IOException {
+        File file = folder.newFile();
+        UUID uuid = UUID.randomUUID();
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            store.put(new Turt2LivePlayerRecord(uuid, "Turt2Live", null, 3600, 123456789L, true), NEVER);
+        }
+
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            PlayerRecord record = store.get("turt2live");
+            assertEquals(uuid, record.getUuid());
+            assertEquals("Turt2Live", store.get(uuid).getName());
+            assertEquals(123456789L, record.getExpirationTime());
+            assertEquals(3600, record.getTimeLeft());
+        }
+    }
+
+    @Test
+    public void does_expired_record_not_get_served() throws IOException {
+        File file = folder.newFile();
+        UUID uuid = UUID.randomUUID();
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            store.put(new MemoryPlayerRecord(uuid, "expiring"), System.currentTimeMillis() + 100);
+            assertNotNull(store.get(uuid));
+        }
+
+        try {
+            Thread.sleep(150);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            assertNull(store.get(uuid));
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    public void does_remove_and_rename_survive_reopen() throws IOException {
+        File file = folder.newFile();
+        UUID removed = UUID.randomUUID(), renamed = UUID.randomUUID();
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            store.put(new MemoryPlayerRecord(removed, "removed"), NEVER);
+            store.put(new MemoryPlayerRecord(renamed, "before"), NEVER);
+            store.put(new MemoryPlayerRecord(renamed, "after"), NEVER);
+            assertTrue(store.remove(removed));
+        }
+
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            assertNull(store.get(removed));
+            assertNull(store.get("before"));
+            assertEquals(renamed, store.get("AFTER").getUuid());
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    public void does_recovery_cut_off_partial_write() throws IOException {
+        File file = folder.newFile();
+        UUID kept = UUID.randomUUID(), torn = UUID.randomUUID();
+        long goodSize;
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            store.put(new MemoryPlayerRecord(kept, "kept"), NEVER);
+            goodSize = store.getFileSize();
+            store.put(new MemoryPlayerRecord(torn, "torn"), NEVER);
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength(raw.length() - 3); // As if the process died mid-write
+        }
+
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            assertEquals(kept, store.get("kept").getUuid());
+            assertNull(store.get(torn));
+            assertEquals(goodSize, store.getFileSize());
+
+            store.put(new MemoryPlayerRecord(torn, "torn"), NEVER); // Appends after the good records
+        }
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            assertEquals(torn, store.get("torn").getUuid());
+        }
+    }
+
+    @Test
+    public void does_recovery_stop_at_damaged_record() throws IOException {
+        File file = folder.newFile();
+        UUID first = UUID.randomUUID(), second = UUID.randomUUID();
+        long firstEnd;
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            store.put(new MemoryPlayerRecord(first, "first"), NEVER);
+            firstEnd = store.getFileSize();
+            store.put(new MemoryPlayerRecord(second, "second"), NEVER);
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(firstEnd + 10);
+            raw.write(0xFF);
+        }
+
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            assertNotNull(store.get(first));
+            assertNull(store.get(second));
+        }
+    }
+
+    @Test
+    public void does_compaction_keep_live_records() throws IOException {
+        File file = folder.newFile();
+        UUID uuid = UUID.randomUUID();
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            for (int i = 0; i < 100; i++) store.put(new MemoryPlayerRecord(uuid, "player" + i), NEVER);
+            long before = store.getFileSize();
+            store.compact();
+
+            assertTrue(store.getFileSize() < before);
+            assertEquals("player99", store.get(uuid).getName());
+            assertNull(store.get("player98"));
+        }
+        try (DiskRecordStore store = new DiskRecordStore(file)) {
+            assertEquals("player99", store.get(uuid).getName());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void does_open_reject_other_files() throws IOException {
+        File file = folder.newFile();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.writeLong(42);
+        }
+        new DiskRecordStore(file);
+    }
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.MemoryPlayerRecord;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Replays synthetic, skewed, lookup traces against each eviction policy and
+ * prints the hit rate and number of evictions. Half of the lookups go through
+ * the name index so both indexes are measured.
+ * <p>
+ * Run with: {@code java -cp <test classpath> com.turt2live.uuid.cache.EvictionPolicySimulation}
+ */
+public class EvictionPolicySimulation {
+
+    private static final int PLAYERS = 200000;
+    private static final int LOOKUPS = 2000000;
+    private static final int CACHE_SIZE = 5000;
+
+    public static void main(String[] args) {
+        UUID[] uuids = new UUID[PLAYERS];
+        String[] names = new String[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            uuids[i] = UUID.randomUUID();
+            names[i] = "Player" + i;
+        }
+
+        String[] traces = {"zipf(0.8)", "zipf(1.0)", "zipf(1.0) + scans"};
+        int[][] workloads = {
+                zipf(0.8, false), zipf(1.0, false), zipf(1.0, true)
+        };
+
+        System.out.printf("%-20s %-20s %10s %12s%n", "trace", "policy", "hit rate", "evictions");
+        for (int t = 0; t < traces.length; t++) {
+            EvictionPolicy[] policies = {
+                    new LruPolicy(CACHE_SIZE), new SegmentedLruPolicy(CACHE_SIZE), new TinyLfuPolicy(CACHE_SIZE)
+            };
+            for (EvictionPolicy policy : policies) {
+                RecordCache cache = new RecordCache(policy);
+                int hits = 0;
+                for (int i = 0; i < workloads[t].length; i++) {
+                    int player = workloads[t][i];
+                    boolean found = (i & 1) == 0 ? cache.get(uuids[player]) != null : cache.get(names[player]) != null;
+                    if (found) hits++;
+                    else cache.put(new MemoryPlayerRecord(uuids[player], names[player]), Long.MAX_VALUE);
+                }
+
+                System.out.printf("%-20s %-20s %9.2f%% %12d%n", traces[t], policy.getClass().getSimpleName(),
+                        100.0 * hits / workloads[t].length, cache.getEvictionCount());
+            }
+        }
+    }
+
+    private static int[] zipf(double exponent, boolean scans) {
+        // Inverse CDF sampling over a precomputed table
+        double[] cdf = new double[PLAYERS];
+        double sum = 0;
+        for (int i = 0; i < PLAYERS; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+
+        Random random = new Random(42);
+        int[] trace = new int[LOOKUPS];
+        int scanPosition = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (scans && (i / 10000) % 4 == 3) {
+                // A quarter of the time: a sweep over players that are never seen again
+                trace[i] = PLAYERS / 2 + (scanPosition++ % (PLAYERS / 2));
+                continue;
+            }
+
+            double target = random.nextDouble() * sum;
+            int low = 0, high = PLAYERS - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cdf[middle] < target) low = middle + 1;
+                else high = middle;
+            }
+            trace[i] = low;
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.MemoryPlayerRecord;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class EvictionPolicyTest {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_tiny_lfu_throw_exception_on_zero_size() {
+        new TinyLfuPolicy(0);
+    }
+
+    @Test
+    public void does_lru_evict_least_recent() {
+        LruPolicy policy = new LruPolicy(2);
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID(), c = UUID.randomUUID();
+
+        assertNull(policy.onInsert(a));
+        assertNull(policy.onInsert(b));
+        policy.onAccess(a);
+        assertEquals(b, policy.onInsert(c));
+    }
+
+    @Test
+    public void does_segmented_lru_protect_reused_players() {
+        SegmentedLruPolicy policy = new SegmentedLruPolicy(3);
+        UUID hot = UUID.randomUUID();
+
+        policy.onInsert(hot);
+        policy.onAccess(hot); // Promoted to the protected segment
+        for (int i = 0; i < 10; i++) {
+            UUID evicted = policy.onInsert(UUID.randomUUID());
+            assertNotEquals(hot, evicted);
+        }
+    }
+
+    @Test
+    public void does_bounded_cache_respect_maximum_size() {
+        for (EvictionPolicy policy : new EvictionPolicy[] {new LruPolicy(50), new SegmentedLruPolicy(50), new TinyLfuPolicy(50)}) {
+            RecordCache cache = new RecordCache(policy);
+            for (int i = 0; i < 1000; i++) cache.put(new MemoryPlayerRecord(UUID.randomUUID(), "player" + i), NEVER);
+
+            assertTrue(cache.size() <= 50);
+            assertEquals(1000 - cache.size(), cache.getEvictionCount());
+        }
+    }
+
+    @Test
+    public void does_eviction_remove_both_indexes() {
+        RecordCache cache = new RecordCache(new LruPolicy(1));
+        UUID first = UUID.randomUUID();
+
+        cache.put(new MemoryPlayerRecord(first, "First"), NEVER);
+        cache.put(new MemoryPlayerRecord(UUID.randomUUID(), "Second"), NEVER);
+
+        assertNull(cache.get(first));
+        assertNull(cache.get("first"));
+        assertNotNull(cache.get("second"));
+    }
+
+    @Test
+    public void does_tiny_lfu_keep_hot_players_through_a_scan() {
+        RecordCache cache = new RecordCache(new TinyLfuPolicy(100));
+        UUID[] hot = new UUID[50];
+        for (int i = 0; i < hot.length; i++) {
+            hot[i] = UUID.randomUUID();
+            cache.put(new MemoryPlayerRecord(hot[i], "hot" + i), NEVER);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < hot.length; i++) {
+                if (cache.get(hot[i]) == null) cache.put(new MemoryPlayerRecord(hot[i], "hot" + i), NEVER);
+            }
+        }
+
+        for (int i = 0; i < 10000; i++) cache.put(new MemoryPlayerRecord(UUID.randomUUID(), "scan" + i), NEVER);
+
+        int kept = 0;
+        for (UUID uuid : hot) if (cache.get(uuid) != null) kept++;
+        assertTrue("Only " + kept + " hot players survived", kept >= 45);
+    }
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.MemoryPlayerRecord;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ExpirySweeperTest {
+
+    private static final long SECOND = 1000;
+    private static final long HOUR = 60 * 60 * SECOND;
+
+    @Test
+    public void does_expire_remove_unread_records() {
+        RecordCache cache = new RecordCache();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) cache.put(new MemoryPlayerRecord(UUID.randomUUID(), "player" + i), now + i);
+
+        assertEquals(1000, cache.expire(now + 2 * SECOND, Integer.MAX_VALUE));
+        assertEquals(0, cache.size());
+        assertNull(cache.get("player1"));
+        assertEquals(1000, cache.getExpiredCount());
+    }
+
+    @Test
+    public void does_expire_bound_work_per_call() {
+        RecordCache cache = new RecordCache();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) cache.put(new MemoryPlayerRecord(UUID.randomUUID(), "player" + i), now + i);
+
+        assertEquals(100, cache.expire(now + 2 * SECOND, 100));
+        assertEquals(900, cache.size());
+        int calls = 0;
+        while (cache.size() > 0 && calls++ < 20) cache.expire(now + 2 * SECOND, 100);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void does_expire_keep_records_until_their_time() {
+        RecordCache cache = new RecordCache();
+        long now = System.currentTimeMillis();
+        UUID minute = UUID.randomUUID(), hours = UUID.randomUUID(), week = UUID.randomUUID();
+        cache.put(new MemoryPlayerRecord(minute, "minute"), now + 70 * SECOND);
+        cache.put(new MemoryPlayerRecord(hours, "hours"), now + 2 * HOUR);
+        cache.put(new MemoryPlayerRecord(week, "week"), now + 7 * 24 * HOUR);
+
+        assertEquals(0, cache.expire(now + 60 * SECOND, 100));
+        assertEquals(1, cache.expire(now + 72 * SECOND, 100));
+        assertEquals(0, cache.expire(now + HOUR, 100));
+        assertEquals(1, cache.expire(now + 2 * HOUR + 2 * SECOND, 100));
+        assertEquals(0, cache.expire(now + 6 * 24 * HOUR, 100));
+        assertEquals(1, cache.expire(now + 7 * 24 * HOUR + 2 * SECOND, 100));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void does_expire_skip_replaced_and_removed_records() {
+        RecordCache cache = new RecordCache();
+        long now = System.currentTimeMillis();
+        UUID replaced = UUID.randomUUID(), removed = UUID.randomUUID();
+        cache.put(new MemoryPlayerRecord(replaced, "replaced"), now + SECOND);
+        cache.put(new MemoryPlayerRecord(replaced, "replaced"), now + HOUR);
+        cache.put(new MemoryPlayerRecord(removed, "removed"), now + SECOND);
+        cache.remove(removed);
+
+        assertEquals(0, cache.expire(now + 2 * SECOND, 100));
+        assertNotNull(cache.get(replaced));
+    }
+
+    @Test
+    public void does_compact_expire_remove_unread_records() {
+        CompactRecordCache cache = new CompactRecordCache();
+        long now = System.currentTimeMillis();
+        UUID kept = UUID.randomUUID();
+        cache.put(new MemoryPlayerRecord(kept, "kept"), now + HOUR);
+        for (int i = 0; i < 1000; i++) cache.put(new MemoryPlayerRecord(UUID.randomUUID(), "player" + i), now + i);
+
+        int removed = 0;
+        for (int calls = 0; calls < 100 && removed < 1000; calls++) removed += cache.expire(now + 2 * SECOND, 50);
+        assertEquals(1000, removed);
+        assertEquals(1, cache.size());
+        assertEquals("kept", cache.get(kept).getName());
+    }
+
+    @Test
+    public void does_reregistered_sweeper_see_every_record() {
+        RecordCache cache = new RecordCache();
+        long now = System.currentTimeMillis();
+
+        try (ExpirySweeper sweeper = new ExpirySweeper(HOUR, 1000)) {
+            sweeper.register(cache);
+            cache.put(new MemoryPlayerRecord(UUID.randomUUID(), "before"), now + SECOND);
+            sweeper.unregister(cache);
+            cache.put(new MemoryPlayerRecord(UUID.randomUUID(), "between"), now + SECOND);
+            sweeper.register(cache);
+            cache.put(new MemoryPlayerRecord(UUID.randomUUID(), "after"), now + SECOND);
+
+            assertEquals(3, cache.expire(now + 2 * SECOND, 100));
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void does_sweeper_remove_in_background() throws Exception {
+        RecordCache cache = new RecordCache();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) cache.put(new MemoryPlayerRecord(UUID.randomUUID(), "player" + i), now + 50);
+
+        try (ExpirySweeper sweeper = new ExpirySweeper(20, 1000)) {
+            sweeper.register(cache);
+            for (int i = 0; i < 250 && cache.size() > 0; i++) Thread.sleep(20);
+
+            assertEquals(0, cache.size());
+            assertEquals(100, sweeper.getRemovedCount());
+            assertTrue(sweeper.getTickCount() > 0);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.cache;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name lookup cost of {@link NameIndex} against maps keyed by lower cased
+ * names, as the caches used before: a {@link HashMap} and the
+ * {@link ConcurrentHashMap} {@link RecordCache} held. Lookups use names in
+ * their original mixed case, or already lower cased, which
+ * {@link String#toLowerCase()} returns without copying. Run with
+ * {@code -prof gc} to see the allocation per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameIndexBenchmark {
+
+    private static final int PLAYERS = 1 << 14;
+
+    @Param({"mixed", "lower"})
+    public String nameCase;
+
+    private String[] names;
+    private Map<String, Object> hashMap;
+    private Map<String, Object> concurrentMap;
+    private NameIndex<Object> index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        names = new String[PLAYERS];
+        hashMap = new HashMap<>();
+        concurrentMap = new ConcurrentHashMap<>();
+        index = new NameIndex<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            String name = "Player_" + i;
+            Object value = new Object();
+            hashMap.put(name.toLowerCase(), value);
+            concurrentMap.put(name.toLowerCase(), value);
+            index.put(name, value);
+            names[i] = nameCase.equals("mixed") ? name : name.toLowerCase();
+        }
+    }
+
+    private String nextName() {
+        return names[next++ & (PLAYERS - 1)];
+    }
+
+    @Benchmark
+    public Object hashMap() {
+        return hashMap.get(nextName().toLowerCase());
+    }
+
+    @Benchmark
+    public Object concurrentHashMap() {
+        return concurrentMap.get(nextName().toLowerCase());
+    }
+
+    @Benchmark
+    public Object nameIndex() {
+        return index.get(nextName());
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.cache;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class NameIndexTest {
+
+    @Test
+    public void does_get_ignore_case() {
+        NameIndex<String> index = new NameIndex<>();
+        index.put("turt2live_", "value");
+
+        assertEquals("value", index.get("TURT2LIVE_"));
+        assertEquals("value", index.get(new StringBuilder("Turt2Live_")));
+        assertNull(index.get("turt2live"));
+        assertNull(index.get("turt2live-"));
+    }
+
+    @Test
+    public void does_put_replace_name_in_any_case() {
+        NameIndex<String> index = new NameIndex<>();
+        assertNull(index.put("Notch", "first"));
+        assertEquals("first", index.put("NOTCH", "second"));
+
+        assertEquals(1, index.size());
+        assertEquals("second", index.get("notch"));
+    }
+
+    @Test
+    public void does_remove_only_current_value() {
+        NameIndex<String> index = new NameIndex<>();
+        index.put("Notch", "current");
+
+        assertFalse(index.remove("notch", "stale"));
+        assertTrue(index.remove("notch", "current"));
+        assertNull(index.get("Notch"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void does_non_ascii_name_fold_case() {
+        NameIndex<String> index = new NameIndex<>();
+        index.put("Ärger", "value");
+
+        assertEquals("value", index.get("äRGER"));
+        assertEquals(NameIndex.hash("Ärger"), NameIndex.hash("äRGER"));
+        assertTrue(NameIndex.equalsIgnoreCase("Key", "key")); // Kelvin sign lower cases to k
+    }
+
+    @Test
+    public void does_index_grow_and_keep_every_name() {
+        NameIndex<Integer> index = new NameIndex<>();
+        for (int i = 0; i < 10000; i++) index.put("Player" + i, i);
+
+        assertEquals(10000, index.size());
+        for (int i = 0; i < 10000; i++) assertEquals(Integer.valueOf(i), index.get("PLAYER" + i));
+        index.clear();
+        assertNull(index.get("player1"));
+    }
+
+    @Test
+    public void does_concurrent_use_keep_index_consistent() throws Exception {
+        final NameIndex<Integer> index = new NameIndex<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t * 2000;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = offset; i < offset + 2000; i++) {
+                        index.put("player" + i, i);
+                        assertEquals(Integer.valueOf(i), index.get("Player" + i));
+                        if (i % 2 == 0) assertTrue(index.remove("PLAYER" + i, i));
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(4000, index.size());
+        for (int i = 0; i < 8000; i++) assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), index.get("player" + i));
+    }
+
+    @Test
+    public void does_contended_put_keep_one_mapping_per_name() throws Exception {
+        final NameIndex<Integer> index = new NameIndex<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < 2000; i++) index.put(thread % 2 == 0 ? "player" + i : "PLAYER" + i, i);
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(2000, index.size());
+        for (int i = 0; i < 2000; i++) assertEquals(Integer.valueOf(i), index.get("Player" + i));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.get("player0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_get_throw_exception_on_null_input() {
+        new NameIndex<String>().get(null);
+    }
+}
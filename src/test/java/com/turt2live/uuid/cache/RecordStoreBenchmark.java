@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.turt2live.Turt2LivePlayerRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hit latency of the map based {@link RecordCache}, as used by default by
+ * {@link com.turt2live.uuid.CachingServiceProvider}, against the
+ * {@link CompactRecordCache}. See {@link RecordStoreFootprint} for memory use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordStoreBenchmark {
+
+    private static final int PLAYERS = 1 << 18;
+
+    @Param({"RecordCache", "CompactRecordCache"})
+    public String store;
+
+    private UUID[] uuids;
+    private String[] names;
+    private RecordStore cache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cache = store.equals("RecordCache") ? new RecordCache() : new CompactRecordCache();
+        uuids = new UUID[PLAYERS];
+        names = new String[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            uuids[i] = UUID.randomUUID();
+            names[i] = "Player" + i;
+            cache.put(new Turt2LivePlayerRecord(uuids[i], names[i], null, 3600, Long.MAX_VALUE, true), Long.MAX_VALUE);
+        }
+    }
+
+    @Benchmark
+    public PlayerRecord get_by_uuid() {
+        return cache.get(uuids[ThreadLocalRandom.current().nextInt(PLAYERS)]);
+    }
+
+    @Benchmark
+    public PlayerRecord get_by_name() {
+        return cache.get(names[ThreadLocalRandom.current().nextInt(PLAYERS)].toUpperCase());
+    }
+}
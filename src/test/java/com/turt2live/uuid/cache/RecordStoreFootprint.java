@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.turt2live.uuid.cache;
+
+import com.turt2live.uuid.turt2live.Turt2LivePlayerRecord;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.UUID;
+
+/**
+ * Fills each record store with the same players and prints the retained heap
+ * per player. Records are created the way a service would create them, so the
+ * map based store keeps each record, unique ID and name object alive.
+ * <p>
+ * Run with: {@code java -cp <test classpath> com.turt2live.uuid.cache.RecordStoreFootprint}
+ */
+public class RecordStoreFootprint {
+
+    private static final int PLAYERS = 500000;
+
+    public static void main(String[] args) {
+        System.out.printf("%-20s %16s%n", "store", "bytes per player");
+        for (int run = 0; run < 2; run++) { // The first run warms up
+            measure("RecordCache", new RecordCache(), run == 1);
+            measure("CompactRecordCache", new CompactRecordCache(), run == 1);
+        }
+    }
+
+    private static void measure(String label, RecordStore store, boolean print) {
+        long before = usedHeap();
+        long expires = Long.MAX_VALUE;
+        for (int i = 0; i < PLAYERS; i++) {
+            UUID uuid = UUID.randomUUID();
+            store.put(new Turt2LivePlayerRecord(uuid, "Player" + i, null, 3600, expires, true), expires);
+        }
+        long after = usedHeap();
+
+        if (print) System.out.printf("%-20s %16.1f%n", label, (after - before) / (double) PLAYERS);
+        if (store.size() != PLAYERS) throw new IllegalStateException();
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.mojang;
+
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.utils.CannedTransport;
+import com.turt2live.uuid.utils.HttpRequest;
+import com.turt2live.uuid.utils.HttpResponse;
+import com.turt2live.uuid.utils.HttpTransport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for a 200 player bulk unique ID lookup, and a 2,000 player bulk name
+ * lookup (20 requests), against a simulated Mojang which takes 10ms to answer
+ * each request, with requests made one at a time and fanned out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BulkLookupBenchmark {
+
+    private static final int PLAYERS = 200;
+    private static final int NAMES = 2000;
+    private static final long ROUND_TRIP = 10;
+
+    @Param({"1", "8", "16"})
+    public int parallelism;
+
+    private MojangServiceProvider service;
+    private UUID[] uuids;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final CannedTransport canned = new CannedTransport();
+        uuids = new UUID[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            uuids[i] = UUID.randomUUID();
+            String id = MojangServiceProvider.toString(uuids[i]);
+            canned.respond("https://sessionserver.mojang.com/session/minecraft/profile/" + id, 200,
+                    "{\"id\":\"" + id + "\",\"name\":\"Player" + i + "\"}");
+        }
+
+        names = new String[NAMES];
+        StringBuilder chunk = new StringBuilder("[");
+        for (int i = 0; i < NAMES; i++) {
+            names[i] = "Player" + i;
+            if (i >= MojangServiceProvider.MAX_BULK_NAMES) continue;
+            if (i > 0) chunk.append(',');
+            chunk.append("{\"id\":\"").append(MojangServiceProvider.toString(UUID.randomUUID())).append("\",\"name\":\"Player").append(i).append("\"}");
+        }
+        canned.respond("https://api.mojang.com/profiles/minecraft", 200, chunk.append(']').toString());
+
+        service = new MojangServiceProvider();
+        service.setParallelism(parallelism);
+        service.setTransport(new HttpTransport() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                try {
+                    Thread.sleep(ROUND_TRIP);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return canned.execute(request);
+            }
+        });
+    }
+
+    @Benchmark
+    public List<PlayerRecord> lookup() {
+        return service.doBulkLookup(uuids);
+    }
+
+    @Benchmark
+    public List<PlayerRecord> names() {
+        return service.doBulkLookup(names);
+    }
+}
@@ -1,15 +1,27 @@
 package com.turt2live.uuid.mojang;
 
 import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.UnknownPlayerRecord;
+import com.turt2live.uuid.utils.CannedTransport;
+import com.turt2live.uuid.utils.HTTPUtils;
 import com.turt2live.uuid.utils.HTTPUtils.RateLimitedException;
+import com.turt2live.uuid.utils.HttpRequest;
+import com.turt2live.uuid.utils.HttpResponse;
+import com.turt2live.uuid.utils.HttpTransport;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -108,4 +120,123 @@ public class MojangServiceTest {
 
         fail("Record not found: [uuid=" + uuid.toString() + ", name=" + name + "]");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void does_bulk_uuid_lookup_fan_out_in_order() {
+        String profiles = "https://sessionserver.mojang.com/session/minecraft/profile/";
+        final CannedTransport canned = new CannedTransport()
+                .respond(profiles + MojangServiceProvider.toString(UUID_1), 200, "{\"id\":\"" + MojangServiceProvider.toString(UUID_1) + "\",\"name\":\"" + NAME_1 + "\"}")
+                .respond(profiles + MojangServiceProvider.toString(UUID_2), 500, "")
+                .respond(profiles + MojangServiceProvider.toString(UUID_3), 200, "{\"id\":\"" + MojangServiceProvider.toString(UUID_3) + "\",\"name\":\"" + NAME_3 + "\"}")
+                .respond(profiles, 204, "");
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        service.setTransport(new HttpTransport() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                } finally {
+                    active.decrementAndGet();
+                }
+                return canned.execute(request);
+            }
+        });
+
+        UUID[] uuids = new UUID[16];
+        for (int i = 0; i < uuids.length; i++) uuids[i] = UUID.randomUUID(); // Unknown
+        uuids[3] = UUID_3;
+        uuids[7] = UUID_2; // Fails
+        uuids[12] = UUID_1;
+
+        long start = System.currentTimeMillis();
+        List<PlayerRecord> records = service.doBulkLookup(uuids);
+        assertTrue(System.currentTimeMillis() - start < 16 * 50);
+        assertEquals(16, canned.requests.size());
+        assertEquals(service.getParallelism(), maxActive.get());
+
+        assertEquals(2, records.size());
+        assertEquals(UUID_3, records.get(0).getUuid());
+        assertEquals(UUID_1, records.get(1).getUuid());
+
+        canned.respond(profiles, 500, "");
+        assertNull(service.doBulkLookup(UUID.randomUUID(), UUID.randomUUID()));
+    }
+
+    @Test
+    public void does_split_into_chunks() {
+        String[] names = {"a", "b", "c", "d", "e"};
+
+        assertEquals(0, MojangServiceProvider.split(new String[0], 2).length);
+        assertArrayEquals(new String[][] {{"a", "b"}, {"c", "d"}, {"e"}}, MojangServiceProvider.split(names, 2));
+        assertArrayEquals(new String[][] {names}, MojangServiceProvider.split(names, 5));
+    }
+
+    @Test
+    public void does_bulk_name_lookup_retry_failed_chunks() {
+        final String[] names = new String[250];
+        for (int i = 0; i < names.length; i++) names[i] = "Player" + i;
+        final AtomicInteger failures = new AtomicInteger();
+        final List<HttpRequest> requests = new CopyOnWriteArrayList<>();
+        service.setTransport(new HttpTransport() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                requests.add(request);
+                String body = new String(request.getBody(), StandardCharsets.UTF_8);
+                boolean second = body.startsWith("[\"Player100\"");
+                if (second && failures.getAndIncrement() == 0) throw new IOException("Connection reset");
+                if (body.startsWith("[\"Player200\"")) throw new HTTPUtils.RateLimitedException("Too Many Requests");
+
+                StringBuilder response = new StringBuilder("[");
+                for (String name : body.substring(2, body.length() - 2).split("\",\"")) {
+                    if (response.length() > 1) response.append(',');
+                    response.append("{\"id\":\"").append(MojangServiceProvider.toString(UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8))))
+                            .append("\",\"name\":\"").append(name).append("\"}");
+                }
+                return new HttpResponse(200, "OK", Collections.<String, String>emptyMap(), response.append(']').toString().getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        List<PlayerRecord> records = service.doBulkLookup(names);
+
+        assertEquals(200, records.size()); // The last chunk stayed rate limited
+        for (int i = 0; i < records.size(); i++) assertEquals(names[i], records.get(i).getName());
+        assertEquals(2, failures.get()); // The second chunk failed once
+        assertEquals(3 + 2 + 1, requests.size()); // Every chunk, then only those still failing
+        assertEquals(-1, service.getMaxBulkLookupSize());
+
+        try {
+            service.doBulkLookup("Player200");
+            fail();
+        } catch (RateLimitedException expected) {
+            // Nothing succeeded
+        }
+    }
+
+    @Test
+    public void does_decode_canned_responses() {
+        CannedTransport transport = new CannedTransport()
+                .respond("https://sessionserver.mojang.com/session/minecraft/profile/", 204, "")
+                .respond(MojangServiceProvider.BASE_URL + "minecraft/", 200, "{\"id\":\"613517d731bb47bdbc337870d4f3adc5\",\"name\":\"" + PLAYER_NAME + "\"}")
+                .respond(MojangServiceProvider.BASE_URL, 200, "[{\"name\":\"Old\"},{\"name\":\"" + PLAYER_NAME + "\",\"changedToAt\":1423059891000}]")
+                .respond("https://api.mojang.com/profiles/minecraft", 200, "[{\"id\":\"613517d731bb47bdbc337870d4f3adc5\",\"name\":\"" + NAME_1 + "\"},"
+                        + "{\"id\":\"c465b1543c294dbfa7e3e0869504b8d8\",\"name\":\"" + NAME_3 + "\",\"legacy\":true}]");
+        service.setTransport(transport);
+
+        PlayerRecord record = service.doLookup(PLAYER_NAME);
+        assertEquals(PLAYER_UUID, record.getUuid());
+        assertEquals(PLAYER_NAME, record.getName());
+
+        assertTrue(UnknownPlayerRecord.isUnknown(service.doLookup(UUID_2)));
+        assertArrayEquals(new String[] {"Old", PLAYER_NAME}, service.getNameHistory(PLAYER_UUID));
+
+        List<PlayerRecord> records = service.doBulkLookup(NAME_1, NAME_3);
+        assertEquals(2, records.size());
+        assertEquals(UUID_1, records.get(0).getUuid());
+        assertEquals(UUID_3, records.get(1).getUuid());
+        assertEquals("[\"" + NAME_1 + "\",\"" + NAME_3 + "\"]", new String(transport.requests.get(3).getBody(), StandardCharsets.UTF_8));
+    }
+}
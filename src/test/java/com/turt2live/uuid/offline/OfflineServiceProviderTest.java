@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.offline;
+
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.StubServiceProvider;
+import com.turt2live.uuid.UnknownPlayerRecord;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class OfflineServiceProviderTest {
+
+    private static final String PLAYER_NAME = "turt2live";
+    private static final UUID PLAYER_UUID = UUID.fromString("c465b154-3c29-4dbf-a7e3-e0869504b8d8");
+    private static final UUID OFFLINE_UUID = UUID.nameUUIDFromBytes(("OfflinePlayer:" + PLAYER_NAME).getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    public void does_name_lookup_compute_offline_uuid() {
+        OfflineServiceProvider service = new OfflineServiceProvider();
+        PlayerRecord record = service.doLookup(PLAYER_NAME);
+
+        assertEquals(OFFLINE_UUID, record.getUuid());
+        assertEquals(OFFLINE_UUID, record.getOfflineUuid());
+        assertEquals(PLAYER_NAME, record.getName());
+        assertTrue(service.doLookupAsync(PLAYER_NAME).isDone());
+    }
+
+    @Test
+    public void does_uuid_lookup_only_know_seen_names() {
+        OfflineServiceProvider service = new OfflineServiceProvider();
+        assertTrue(UnknownPlayerRecord.isUnknown(service.doLookup(OFFLINE_UUID)));
+        assertEquals(0, service.getNameHistory(OFFLINE_UUID).length);
+
+        service.learn(PLAYER_NAME);
+
+        assertEquals(PLAYER_NAME, service.doLookup(OFFLINE_UUID).getName());
+        assertArrayEquals(new String[]{PLAYER_NAME}, service.getNameHistory(OFFLINE_UUID));
+        assertEquals(1, service.getKnownCount());
+    }
+
+    @Test
+    public void does_bulk_lookup_resolve_every_name() {
+        OfflineServiceProvider service = new OfflineServiceProvider();
+        String[] names = new String[10000];
+        for (int i = 0; i < names.length; i++) names[i] = "Player" + i;
+
+        List<PlayerRecord> records = service.doBulkLookup(names);
+
+        assertEquals(names.length, records.size());
+        assertEquals(names.length, service.getKnownCount());
+        UUID[] uuids = new UUID[names.length];
+        for (int i = 0; i < names.length; i++) uuids[i] = records.get(i).getUuid();
+        List<PlayerRecord> byUuid = service.doBulkLookup(uuids);
+        for (int i = 0; i < names.length; i++) assertEquals(names[i], byUuid.get(i).getName());
+    }
+
+    @Test
+    public void does_hybrid_keep_offline_uuids_local() {
+        StubServiceProvider online = new StubServiceProvider().add(PLAYER_UUID, PLAYER_NAME);
+        OfflineServiceProvider service = new OfflineServiceProvider(online);
+
+        assertEquals(PLAYER_UUID, service.doLookup(PLAYER_NAME).getUuid());
+        assertEquals(PLAYER_NAME, service.doLookup(OFFLINE_UUID).getName()); // Learned from the online record
+        assertEquals(PLAYER_NAME, service.doLookup(PLAYER_UUID).getName());
+        assertEquals(2, online.lookups.get());
+    }
+
+    @Test
+    public void does_hybrid_fall_back_only_for_unknown_players() {
+        StubServiceProvider online = new StubServiceProvider().add(PLAYER_UUID, PLAYER_NAME);
+        OfflineServiceProvider service = new OfflineServiceProvider(online);
+
+        UUID cracked = UUID.nameUUIDFromBytes("OfflinePlayer:Cracked".getBytes(StandardCharsets.UTF_8));
+        assertEquals(cracked, service.doLookup("Cracked").getUuid());
+
+        List<PlayerRecord> records = service.doBulkLookup(PLAYER_NAME, "Cracked");
+        assertEquals(2, records.size());
+        assertEquals(PLAYER_UUID, records.get(0).getUuid());
+        assertEquals(cracked, records.get(1).getUuid());
+
+        online.offline = true;
+        assertNull(service.doLookup("Cracked"));
+        assertNull(service.doBulkLookup(PLAYER_NAME, "Cracked"));
+    }
+
+    @Test
+    public void does_hybrid_not_make_up_players_missing_from_failed_batch() {
+        final UUID other = UUID.randomUUID();
+        StubServiceProvider online = new StubServiceProvider() {
+            @Override
+            public List<PlayerRecord> doBulkLookup(String... playerNames) {
+                return super.doBulkLookup(playerNames[0]); // The rest of the batch failed
+            }
+
+            @Override
+            public PlayerRecord doLookup(String playerName) {
+                return playerName.equals("Flaky") ? null : super.doLookup(playerName);
+            }
+        }.add(PLAYER_UUID, PLAYER_NAME).add(other, "Other");
+        OfflineServiceProvider service = new OfflineServiceProvider(online);
+
+        List<PlayerRecord> records = service.doBulkLookup(PLAYER_NAME, "Other", "Flaky", "Cracked");
+
+        assertEquals(3, records.size());
+        assertEquals(PLAYER_UUID, records.get(0).getUuid());
+        assertEquals(other, records.get(1).getUuid());
+        assertEquals(UUID.nameUUIDFromBytes("OfflinePlayer:Cracked".getBytes(StandardCharsets.UTF_8)), records.get(2).getUuid());
+        UUID flaky = UUID.nameUUIDFromBytes("OfflinePlayer:Flaky".getBytes(StandardCharsets.UTF_8));
+        assertTrue(UnknownPlayerRecord.isUnknown(service.doLookup(flaky)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_bulk_lookup_throw_exception_on_partial_null_input() {
+        new OfflineServiceProvider().doBulkLookup("not null", null);
+    }
+}
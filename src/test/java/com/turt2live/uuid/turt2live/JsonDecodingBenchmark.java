@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.turt2live;
+
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.turt2live.v2.ApiV2Service;
+import com.turt2live.uuid.utils.CannedTransport;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding cost of large v2 responses: a 1,000 player bulk lookup and a 500 player
+ * random sample. "legacy" is the decoding the services had before streaming
+ * (line-by-line string, json-simple tree, re-serialising every sampled record);
+ * "streaming" is the service itself over a canned transport. Run with
+ * {@code -prof gc} to compare the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonDecodingBenchmark {
+
+    private static final int BULK_SIZE = 1000;
+    private static final int SAMPLE_SIZE = 500;
+
+    private byte[] bulk;
+    private byte[] sample;
+    private ApiV2Service service;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder builder = new StringBuilder("{\"results\":{");
+        for (int i = 0; i < BULK_SIZE; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("\"Player").append(i).append("\":\"").append(UUID.randomUUID()).append('"');
+        }
+        bulk = builder.append("}}").toString().getBytes(StandardCharsets.UTF_8);
+
+        builder = new StringBuilder("{\"results\":[");
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"uuid\":\"").append(UUID.randomUUID()).append("\",\"name\":\"Player").append(i)
+                    .append("\",\"offline-uuid\":\"").append(UUID.randomUUID())
+                    .append("\",\"expires-in\":\"3600\",\"expires-on\":\"1420070400\",\"source\":\"cache\"}");
+        }
+        sample = builder.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+
+        CannedTransport transport = new CannedTransport();
+        service = new ApiV2Service();
+        service.setTransport(transport);
+        transport.respond(service.getConnectionUrl() + "/uuid/list/", 200, new String(bulk, StandardCharsets.UTF_8));
+        transport.respond(service.getConnectionUrl() + "/random/", 200, new String(sample, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public List<PlayerRecord> bulk_legacy() throws IOException {
+        JSONObject json = (JSONObject) JSONValue.parse(legacyRead(bulk));
+        JSONObject object = (JSONObject) json.get("results");
+        List<PlayerRecord> records = new ArrayList<>();
+        for (Object key : object.keySet()) {
+            String name = key.toString();
+            UUID uuid = UUID.fromString((String) object.get(key));
+            if (uuid == null || name.equals("unknown")) continue;
+            records.add(new Turt2LivePlayerRecord(uuid, name));
+        }
+        return records;
+    }
+
+    @Benchmark
+    public List<PlayerRecord> bulk_streaming() {
+        return service.doBulkLookup("a");
+    }
+
+    @Benchmark
+    public List<PlayerRecord> sample_legacy() throws IOException {
+        JSONArray array = (JSONArray) ((JSONObject) JSONValue.parse(legacyRead(sample))).get("results");
+        List<PlayerRecord> records = new ArrayList<>();
+        for (Object o : array) {
+            PlayerRecord record = legacyParse(o.toString());
+            if (record != null) records.add(record);
+        }
+        return records;
+    }
+
+    @Benchmark
+    public List<PlayerRecord> sample_streaming() {
+        return service.getRandomSample(SAMPLE_SIZE);
+    }
+
+    private static String legacyRead(byte[] body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body)));
+        StringBuffer result = new StringBuffer();
+        String line;
+        while ((line = reader.readLine()) != null) result.append(line);
+        return result.toString();
+    }
+
+    private static PlayerRecord legacyParse(String json) {
+        JSONObject jsonValue = (JSONObject) JSONValue.parse(json);
+        String uuidStr = (String) jsonValue.get("uuid");
+        String name = (String) jsonValue.get("name");
+        String offlineStr = (String) jsonValue.get("offline-uuid");
+        long expOn = Long.parseLong((String) jsonValue.get("expires-on")) * 1000;
+        long expIn = Long.parseLong((String) jsonValue.get("expires-in"));
+        boolean cached = ((String) jsonValue.get("source")).equalsIgnoreCase("cache");
+        if (name.equals("unknown") || uuidStr.equals("unknown")) return null;
+        return new Turt2LivePlayerRecord(UUID.fromString(uuidStr), name, UUID.fromString(offlineStr), expIn, expOn, cached);
+    }
+}
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.turt2live;
+
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.UnknownPlayerRecord;
+import com.turt2live.uuid.turt2live.v1.ApiV1Service;
+import com.turt2live.uuid.turt2live.v2.ApiV2Service;
+import com.turt2live.uuid.utils.CannedTransport;
+import com.turt2live.uuid.utils.HttpRequest;
+import com.turt2live.uuid.utils.HttpResponse;
+import com.turt2live.uuid.utils.HttpTransport;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Decodes canned responses of both API versions, as documented at uuid.turt2live.com
+ */
+@RunWith(JUnit4.class)
+public class Turt2LiveServiceTest {
+
+    private static final String PLAYER_NAME = "turt2live";
+    private static final UUID PLAYER_UUID = UUID.fromString("c465b154-3c29-4dbf-a7e3-e0869504b8d8");
+    private static final UUID OFFLINE_UUID = UUID.fromString("9a8d6ca2-b89e-3f4e-97d8-4fb3f4e25a77");
+    private static final String UNDASHED = "c465b1543c294dbfa7e3e0869504b8d8";
+    private static final UUID NOTCH_UUID = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+
+    private static final String V2_RECORD = "{\"uuid\":\"" + PLAYER_UUID + "\",\"name\":\"" + PLAYER_NAME + "\","
+            + "\"offline-uuid\":\"" + OFFLINE_UUID + "\",\"expires-in\":\"3600\",\"expires-on\":1420070400,\"source\":\"cache\"}";
+
+    private CannedTransport transport;
+    private ApiV1Service v1;
+    private ApiV2Service v2;
+
+    @Before
+    public void setup() {
+        transport = new CannedTransport();
+        v1 = new ApiV1Service();
+        v1.setTransport(transport);
+        v2 = new ApiV2Service();
+        v2.setTransport(transport);
+    }
+
+    @Test
+    public void does_v2_decode_full_record() {
+        transport.respond(v2.getConnectionUrl() + "/uuid/", 200, V2_RECORD);
+
+        PlayerRecord record = v2.doLookup(PLAYER_NAME);
+
+        assertEquals(PLAYER_UUID, record.getUuid());
+        assertEquals(PLAYER_NAME, record.getName());
+        assertEquals(OFFLINE_UUID, record.getOfflineUuid());
+        assertEquals(3600, record.getTimeLeft());
+        assertEquals(1420070400000L, record.getExpirationTime());
+        assertTrue(record.isCached());
+    }
+
+    @Test
+    public void does_unknown_response_return_unknown_record() {
+        transport.respond(v2.getConnectionUrl() + "/uuid/", 200, "{\"uuid\":\"unknown\",\"name\":\"NotAPlayer\"}");
+        transport.respond(v1.getConnectionUrl() + "/name/", 200, "{\"uuid\":\"" + UNDASHED + "\",\"name\":\"unknown\"}");
+
+        assertTrue(UnknownPlayerRecord.isUnknown(v2.doLookup("NotAPlayer")));
+        assertTrue(UnknownPlayerRecord.isUnknown(v1.doLookup(PLAYER_UUID)));
+    }
+
+    @Test
+    public void does_malformed_response_return_null() {
+        transport.respond(v2.getConnectionUrl(), 200, "{\"uuid\":");
+
+        assertNull(v2.doLookup(PLAYER_NAME));
+        assertNull(v2.getNameHistory(PLAYER_UUID));
+        assertNull(v2.doBulkLookup(PLAYER_NAME));
+    }
+
+    @Test
+    public void does_decode_name_history() {
+        transport.respond(v1.getConnectionUrl() + "/history/", 200, "{\"uuid\":\"" + UNDASHED + "\",\"names\":[\"old\",\"older\"]}");
+
+        assertArrayEquals(new String[] {"old", "older"}, v1.getNameHistory(PLAYER_UUID));
+    }
+
+    @Test
+    public void does_decode_bulk_results() {
+        transport.respond(v1.getConnectionUrl() + "/name/list/", 200, "{\"results\":{\"" + UNDASHED + "\":{\"name\":\"" + PLAYER_NAME + "\"},"
+                + "\"069a79f444e94726a5befca90e38aaf5\":{\"name\":\"unknown\"}}}");
+        transport.respond(v2.getConnectionUrl() + "/name/list/", 200, "{\"results\":{\"" + PLAYER_UUID + "\":\"" + PLAYER_NAME + "\","
+                + "\"" + NOTCH_UUID + "\":\"unknown\"}}");
+        transport.respond(v2.getConnectionUrl() + "/uuid/list/", 200, "{\"results\":{\"" + PLAYER_NAME + "\":\"" + PLAYER_UUID + "\","
+                + "\"NotAPlayer\":\"unknown\"}}");
+
+        List<List<PlayerRecord>> results = Arrays.asList(v1.doBulkLookup(PLAYER_UUID, NOTCH_UUID),
+                v2.doBulkLookup(PLAYER_UUID, NOTCH_UUID), v2.doBulkLookup(PLAYER_NAME, "NotAPlayer"));
+        for (List<PlayerRecord> records : results) {
+            assertEquals(1, records.size());
+            assertEquals(PLAYER_UUID, records.get(0).getUuid());
+            assertEquals(PLAYER_NAME, records.get(0).getName());
+        }
+    }
+
+    @Test
+    public void does_decode_random_sample() {
+        transport.respond(v1.getConnectionUrl() + "/random/", 200, "[{\"uuid\":\"" + UNDASHED + "\",\"name\":\"" + PLAYER_NAME + "\"},{\"uuid\":\"unknown\",\"name\":\"unknown\"}]");
+        transport.respond(v2.getConnectionUrl() + "/random/", 200, "{\"results\":[" + V2_RECORD + "," + V2_RECORD + "]}");
+
+        List<PlayerRecord> first = v1.getRandomSample(2);
+        List<PlayerRecord> second = v2.getRandomSample(2);
+
+        assertEquals(1, first.size());
+        assertEquals(PLAYER_NAME, first.get(0).getName());
+        assertEquals(2, second.size());
+        assertEquals(OFFLINE_UUID, second.get(1).getOfflineUuid());
+    }
+
+    @Test
+    public void does_combine_split_by_length_and_count() {
+        String base = v2.getConnectionUrl() + "/uuid/list/";
+        v2.setBulkChunking(base.length() + 8, 3);
+
+        List<String> urls = v2.combine(base, "a", "b", "c", "d", "eee", "ffff", "toolongforone", "g");
+
+        assertEquals(Arrays.asList(base + "a;b;c", base + "d;eee", base + "ffff", base + "toolongforone", base + "g"), urls);
+    }
+
+    @Test
+    public void does_bulk_lookup_merge_chunks_and_skip_failed() {
+        final String base = v2.getConnectionUrl() + "/uuid/list/";
+        final List<String> urls = new CopyOnWriteArrayList<>();
+        v2.setTransport(new HttpTransport() {
+            @Override
+            public HttpResponse execute(HttpRequest request) {
+                urls.add(request.getUrl());
+                String[] names = request.getUrl().substring(base.length()).split(";");
+                if (names[0].equals("Player50")) return new HttpResponse(500, "Internal Server Error", Collections.<String, String>emptyMap(), new byte[0]);
+
+                StringBuilder body = new StringBuilder("{\"results\":{");
+                for (String name : names) {
+                    if (body.charAt(body.length() - 1) != '{') body.append(',');
+                    body.append('"').append(name).append("\":\"").append(UUID.nameUUIDFromBytes(name.getBytes())).append('"');
+                }
+                return new HttpResponse(200, "OK", Collections.<String, String>emptyMap(), body.append("}}").toString().getBytes());
+            }
+        });
+
+        String[] names = new String[120];
+        for (int i = 0; i < names.length; i++) names[i] = "Player" + i;
+        List<PlayerRecord> records = v2.doBulkLookup(names);
+
+        assertEquals(3, urls.size());
+        for (String url : urls) assertTrue(url.length() <= Turt2LiveService.DEFAULT_MAX_URL_LENGTH);
+        assertEquals(70, records.size()); // The second chunk of 50 failed
+        for (int i = 0; i < 50; i++) assertEquals(names[i], records.get(i).getName());
+        for (int i = 50; i < 70; i++) assertEquals(names[i + 50], records.get(i).getName());
+    }
+}
@@ -18,13 +18,20 @@
 package com.turt2live.uuid.turt2live.v2;
 
 import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.utils.HttpRequest;
+import com.turt2live.uuid.utils.HttpResponse;
+import com.turt2live.uuid.utils.HttpTransport;
+import com.turt2live.uuid.utils.LocalHttpServer;
+import com.turt2live.uuid.utils.UrlConnectionTransport;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -214,4 +221,34 @@ public class ApiV2ServiceTest {
         //assertFalse(record.isCached()); // Can't be asserted: varies
     }
 
+
+    @Test
+    public void does_lookup_use_service_transport() throws IOException {
+        try (final LocalHttpServer server = new LocalHttpServer()) {
+            server.respond("/api/v2/uuid", 200, "{\"uuid\":\"" + PLAYER_UUID + "\",\"name\":\"" + PLAYER_NAME + "\","
+                    + "\"offline-uuid\":\"" + PLAYER_UUID + "\",\"expires-in\":\"60\",\"expires-on\":\"0\"}");
+            service = new ApiV2Service() {
+                @Override
+                public String getConnectionUrl() {
+                    return server.url("/api/v2");
+                }
+            };
+            final AtomicInteger requests = new AtomicInteger();
+            final HttpTransport delegate = new UrlConnectionTransport();
+            service.setTransport(new HttpTransport() {
+                @Override
+                public HttpResponse execute(HttpRequest request) throws IOException {
+                    requests.incrementAndGet();
+                    return delegate.execute(request);
+                }
+            });
+
+            PlayerRecord record = service.doLookup(PLAYER_NAME);
+
+            assertNotNull(record);
+            assertEquals(PLAYER_UUID, record.getUuid());
+            assertEquals(1, requests.get());
+            assertEquals(1, server.getRequestCount());
+        }
+    }
 }
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A transport which answers from canned responses instead of the network. Each
+ * response is registered for a URL prefix and the longest matching prefix wins;
+ * anything unmatched is a 404.
+ */
+public class CannedTransport implements HttpTransport {
+
+    private final Map<String, HttpResponse> responses = new ConcurrentHashMap<>();
+    public final List<HttpRequest> requests = new CopyOnWriteArrayList<>();
+
+    public CannedTransport respond(String urlPrefix, int status, String body) {
+        return respond(urlPrefix, new HttpResponse(status, null, Collections.<String, String>emptyMap(), body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public CannedTransport respond(String urlPrefix, HttpResponse response) {
+        responses.put(urlPrefix, response);
+        return this;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        requests.add(request);
+
+        String best = null;
+        for (String prefix : responses.keySet()) {
+            if (request.getUrl().startsWith(prefix) && (best == null || prefix.length() > best.length())) best = prefix;
+        }
+        if (best == null) return new HttpResponse(404, "Not Found", Collections.<String, String>emptyMap(), new byte[0]);
+        return responses.get(best);
+    }
+}
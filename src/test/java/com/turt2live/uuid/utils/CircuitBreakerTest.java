@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private CircuitBreaker breaker;
+    private final List<String> changes = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        breaker = new CircuitBreaker("test", 10);
+        breaker.setFailureThreshold(0.5, 4);
+        breaker.setOpenDuration(100, TimeUnit.MILLISECONDS);
+        breaker.setProbes(2);
+        breaker.addListener(new CircuitBreaker.Listener() {
+            @Override
+            public void onStateChange(CircuitBreaker breaker, CircuitBreaker.State from, CircuitBreaker.State to) {
+                changes.add(from + "->" + to);
+            }
+        });
+    }
+
+    private long acquire() {
+        long permit = breaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REJECTED, permit);
+        return permit;
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(acquire(), FAST);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_failure_threshold_throw_exception_on_minimum_above_window() {
+        breaker.setFailureThreshold(0.5, 11);
+    }
+
+    @Test
+    public void does_failure_rate_open_breaker() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure(acquire(), FAST);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState()); // Below the minimum calls
+
+        breaker.onSuccess(acquire(), FAST);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(0.75, breaker.getFailureRate(), 0.001);
+
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+        assertEquals(1, breaker.getRejectedCount());
+        assertEquals(1, changes.size());
+        assertEquals("CLOSED->OPEN", changes.get(0));
+    }
+
+    @Test
+    public void does_mostly_successful_window_stay_closed() {
+        for (int i = 0; i < 30; i++) {
+            long permit = acquire();
+            if (i % 4 == 0) breaker.onFailure(permit, FAST);
+            else breaker.onSuccess(permit, FAST);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void does_slow_call_rate_open_breaker() {
+        breaker.setSlowCallThreshold(0.5, 10, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(acquire(), TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1.0, breaker.getSlowCallRate(), 0.001);
+    }
+
+    @Test
+    public void does_successful_probes_close_breaker() throws InterruptedException {
+        open();
+        Thread.sleep(150);
+
+        long first = acquire();
+        long second = acquire();
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire()); // Only two probes
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(first, FAST);
+        breaker.onSuccess(second, FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureRate(), 0.001);
+        assertEquals("[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->CLOSED]", changes.toString());
+    }
+
+    @Test
+    public void does_failed_probe_reopen_breaker() throws InterruptedException {
+        open();
+        Thread.sleep(150);
+
+        breaker.onFailure(acquire(), FAST);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+    }
+
+    @Test
+    public void does_release_return_probe() throws InterruptedException {
+        open();
+        Thread.sleep(150);
+
+        acquire();
+        breaker.release(acquire());
+        acquire();
+    }
+
+    @Test
+    public void does_call_from_before_opening_not_count_as_probe() throws InterruptedException {
+        long slow = acquire(); // Still running when the breaker opens
+        open();
+        Thread.sleep(150);
+
+        long probe = acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(slow, FAST);
+        breaker.onSuccess(slow, FAST);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState()); // Only real probes can close it
+
+        breaker.release(slow);
+        acquire(); // The second probe is still free
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        breaker.onSuccess(probe, FAST);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import com.turt2live.uuid.PlayerRecord;
+import com.turt2live.uuid.turt2live.v2.ApiV2Service;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each content encoding for a 1,000 player v2 bulk response. "lookup"
+ * goes through a {@link LocalHttpServer} end to end; "decode" only decompresses
+ * and decodes an already received body, which is the CPU the client pays for the
+ * smaller transfer. Bytes on the wire per response are printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final int PLAYERS = 1000;
+
+    @Param({"identity", "gzip", "deflate"})
+    public String encoding;
+
+    private LocalHttpServer server;
+    private ApiV2Service remote;
+    private ApiV2Service local;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        StringBuilder builder = new StringBuilder("{\"results\":{");
+        for (int i = 0; i < PLAYERS; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("\"Player").append(i).append("\":\"").append(UUID.randomUUID()).append('"');
+        }
+        final byte[] json = builder.append("}}").toString().getBytes(StandardCharsets.UTF_8);
+
+        server = new LocalHttpServer().handle("/api/v2/uuid/list", new LocalHttpServer.Handler() {
+            @Override
+            public LocalHttpServer.Response handle(LocalHttpServer.Request request) throws Exception {
+                return LocalHttpServer.compressed(request, 200, json);
+            }
+        });
+        final HttpTransport transport = new UrlConnectionTransport();
+        remote = new ApiV2Service() {
+            @Override
+            public String getConnectionUrl() {
+                return server.url("/api/v2");
+            }
+        };
+        remote.setTransport(new HttpTransport() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                return transport.execute(request.setHeader("Accept-Encoding", encoding));
+            }
+        });
+
+        HttpResponse response = remote.getTransport().execute(new HttpRequest("GET", remote.getConnectionUrl() + "/uuid/list/a"));
+        System.out.println();
+        System.out.println(encoding + ": " + response.getRawBody().length + " bytes on the wire, " + json.length + " decoded");
+
+        local = new ApiV2Service();
+        local.setTransport(new CannedTransport().respond(local.getConnectionUrl(), new HttpResponse(200, "OK",
+                Collections.singletonMap("content-encoding", encoding), response.getRawBody())));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public List<PlayerRecord> lookup() {
+        return remote.doBulkLookup("a");
+    }
+
+    @Benchmark
+    public List<PlayerRecord> decode() {
+        return local.doBulkLookup("a");
+    }
+}
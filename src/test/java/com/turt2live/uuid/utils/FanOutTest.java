@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class FanOutTest {
+
+    private static List<Integer> range(int size) {
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < size; i++) inputs.add(i);
+        return inputs;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_map_throw_exception_on_zero_parallelism() {
+        FanOut.map(range(1), 0, Function.identity());
+    }
+
+    @Test
+    public void does_map_keep_order_and_bound_parallelism() {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        List<Integer> results = FanOut.map(range(40), 4, input -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            return input * 2;
+        });
+
+        for (int i = 0; i < 40; i++) assertEquals(Integer.valueOf(i * 2), results.get(i));
+        assertEquals(4, maxActive.get());
+    }
+
+    @Test
+    public void does_single_parallelism_run_on_caller() {
+        final Thread caller = Thread.currentThread();
+        List<Boolean> results = FanOut.map(range(5), 1, input -> Thread.currentThread() == caller);
+
+        assertEquals(Collections.nCopies(5, true), results);
+    }
+
+    @Test
+    public void does_failure_leave_null_result() {
+        List<Integer> results = FanOut.map(range(4), 2, input -> {
+            if (input == 2) throw new IllegalStateException();
+            return input;
+        });
+
+        assertEquals(Arrays.asList(0, 1, null, 3), results);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void does_total_failure_rethrow() {
+        FanOut.map(range(4), 2, input -> {
+            throw new IllegalStateException();
+        });
+    }
+}
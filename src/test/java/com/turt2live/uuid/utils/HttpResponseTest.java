@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class HttpResponseTest {
+
+    private static final String BODY = "{\"results\":{\"turt2live\":\"c465b154-3c29-4dbf-a7e3-e0869504b8d8\"}}";
+
+    @Test
+    public void does_decompress_gzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(BODY.getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(BODY, response("gzip", out.toByteArray()).getBodyAsString());
+    }
+
+    @Test
+    public void does_decompress_zlib_and_raw_deflate() throws IOException {
+        for (boolean raw : new boolean[] {false, true}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+                deflate.write(BODY.getBytes(StandardCharsets.UTF_8));
+            }
+
+            assertEquals(BODY, response("Deflate", out.toByteArray()).getBodyAsString());
+        }
+    }
+
+    @Test
+    public void does_closed_deflate_stream_end_inflater() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out)) {
+            deflate.write(BODY.getBytes(StandardCharsets.UTF_8));
+        }
+
+        InputStream stream = response("deflate", out.toByteArray()).getBodyStream();
+        assertTrue(stream instanceof HttpResponse.DeflateInputStream);
+        assertFalse(((HttpResponse.DeflateInputStream) stream).isEnded());
+
+        stream.close();
+        assertTrue(((HttpResponse.DeflateInputStream) stream).isEnded());
+        stream.close(); // Closing twice is harmless
+    }
+
+    @Test
+    public void does_stream_decode_compressed_json() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(BODY.getBytes(StandardCharsets.UTF_8));
+        }
+
+        JsonReader reader = new JsonReader(response("gzip", out.toByteArray()).getBodyStream());
+        reader.beginObject();
+        assertEquals("results", reader.nextName());
+        reader.beginObject();
+        assertEquals("turt2live", reader.nextName());
+    }
+
+    @Test(expected = IOException.class)
+    public void does_unknown_encoding_throw_exception() throws IOException {
+        response("br", new byte[] {1, 2, 3}).getBodyStream();
+    }
+
+    @Test(expected = IOException.class)
+    public void does_corrupt_body_throw_exception() throws IOException {
+        response("gzip", BODY.getBytes(StandardCharsets.UTF_8)).getBody();
+    }
+
+    private static HttpResponse response(String encoding, byte[] body) {
+        return new HttpResponse(200, "OK", Collections.singletonMap("content-encoding", encoding), body);
+    }
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second against a {@link LocalHttpServer}, comparing the transports
+ * with the connection handling HTTPUtils had before them ("legacy"). One request
+ * in four is for an unknown player (404), as on a busy login path. There is no TLS
+ * on the loopback interface, so real services gain more from reuse than shown here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class HttpTransportBenchmark {
+
+    @Param({"legacy", "url-connection", "http-client"})
+    public String transport;
+
+    private LocalHttpServer server;
+    private HttpTransport pooled;
+    private String found;
+    private String missing;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new LocalHttpServer()
+                .respond("/found", 200, "{\"id\":\"c465b1543c294dbfa7e3e0869504b8d8\",\"name\":\"turt2live\"}")
+                .respond("/missing", 404, "{\"error\":\"Not Found\",\"errorMessage\":\"Unknown player\"}");
+        found = server.url("/found");
+        missing = server.url("/missing");
+        if (transport.equals("url-connection")) pooled = new UrlConnectionTransport(8);
+        else if (transport.equals("http-client")) pooled = new HttpClientTransport(8, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public String lookup() throws IOException {
+        String url = ThreadLocalRandom.current().nextInt(4) == 0 ? missing : found;
+        return pooled == null ? legacyGet(url) : HTTPUtils.get(pooled, url);
+    }
+
+    /**
+     * HTTPUtils.get as it was before the transports: a fresh connection per call
+     * whose error body is never read
+     */
+    private static String legacyGet(String rawUrl) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(rawUrl).openConnection();
+        connection.setRequestMethod("GET");
+
+        int responseCode = connection.getResponseCode();
+        if (responseCode == 204 || responseCode == 404) return "";
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+            StringBuffer result = new StringBuffer();
+            String line;
+            while ((line = reader.readLine()) != null) result.append(line);
+            return result.toString();
+        }
+    }
+}
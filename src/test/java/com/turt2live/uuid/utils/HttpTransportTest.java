@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class HttpTransportTest {
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> transports() {
+        return Arrays.asList(new Object[][] {
+                {"url-connection"}, {"http-client"}, {"http-client-h2"}
+        });
+    }
+
+    private final String type;
+    private LocalHttpServer server;
+
+    public HttpTransportTest(String type) {
+        this.type = type;
+    }
+
+    private HttpTransport create(int maxConnectionsPerHost) {
+        if (type.equals("url-connection")) return new UrlConnectionTransport(maxConnectionsPerHost);
+        return new HttpClientTransport(maxConnectionsPerHost, type.endsWith("h2"));
+    }
+
+    @Before
+    public void setup() throws IOException {
+        server = new LocalHttpServer()
+                .respond("/ok", 200, "{\"name\":\"turt2live\"}")
+                .respond("/missing", 404, "{\"error\":\"Not Found\"}")
+                .respond("/empty", 204, null)
+                .respond("/broken", 500, "Internal Server Error")
+                .respond("/limited", 429, "Too Many Requests")
+                .handle("/slow", new LocalHttpServer.Handler() {
+                    @Override
+                    public LocalHttpServer.Response handle(LocalHttpServer.Request request) throws Exception {
+                        Thread.sleep(1500);
+                        return new LocalHttpServer.Response(200, "late");
+                    }
+                })
+                .handle("/echo", new LocalHttpServer.Handler() {
+                    @Override
+                    public LocalHttpServer.Response handle(LocalHttpServer.Request request) {
+                        return new LocalHttpServer.Response(200, request.getHeader("Content-Type") + ":" + request.getBodyAsString());
+                    }
+                });
+    }
+
+    @After
+    public void teardown() {
+        server.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_constructor_throw_exception_on_zero_limit() {
+        create(0);
+    }
+
+    @Test
+    public void does_get_return_body() throws IOException {
+        HttpResponse response = create(1).execute(new HttpRequest("GET", server.url("/ok")));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("{\"name\":\"turt2live\"}", response.getBodyAsString());
+        assertNotNull(response.getHeader("Content-Length"));
+    }
+
+    @Test
+    public void does_post_send_body() {
+        String response = HTTPUtils.post(create(1), server.url("/echo"), "[\"turt2live\"]", HTTPUtils.JSON_TYPE);
+
+        assertEquals(HTTPUtils.JSON_TYPE + ":[\"turt2live\"]", response);
+    }
+
+    @Test
+    public void does_get_report_missing_as_empty() {
+        HttpTransport transport = create(1);
+
+        assertEquals("", HTTPUtils.get(transport, server.url("/missing")));
+        assertEquals("", HTTPUtils.get(transport, server.url("/empty")));
+        assertNull(HTTPUtils.get(transport, server.url("/broken")));
+    }
+
+    @Test
+    public void does_slow_response_time_out() {
+        HttpTransport transport = create(1);
+        if (transport instanceof UrlConnectionTransport) {
+            ((UrlConnectionTransport) transport).setReadTimeout(200, TimeUnit.MILLISECONDS);
+        } else {
+            ((HttpClientTransport) transport).setReadTimeout(200, TimeUnit.MILLISECONDS);
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            transport.execute(new HttpRequest("GET", server.url("/slow")));
+            fail();
+        } catch (IOException expected) {
+            assertTrue(System.currentTimeMillis() - start < 1200);
+        }
+    }
+
+    @Test(expected = HTTPUtils.RateLimitedException.class)
+    public void does_get_throw_exception_when_rate_limited() {
+        HTTPUtils.get(create(1), server.url("/limited"));
+    }
+
+    @Test
+    public void does_error_response_keep_connection_alive() throws IOException {
+        HttpTransport transport = create(1);
+        String[] paths = {"/ok", "/missing", "/broken", "/empty"};
+        for (int i = 0; i < 40; i++) transport.execute(new HttpRequest("GET", server.url(paths[i % paths.length])));
+
+        assertEquals(40, server.getRequestCount());
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void does_limit_bound_requests_per_host() throws Exception {
+        server.handle("/slow", new LocalHttpServer.Handler() {
+            @Override
+            public LocalHttpServer.Response handle(LocalHttpServer.Request request) throws Exception {
+                Thread.sleep(50);
+                return new LocalHttpServer.Response(200, "slow");
+            }
+        });
+        final HttpTransport transport = create(2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            futures.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return transport.execute(new HttpRequest("GET", server.url("/slow"))).getBodyAsString();
+                }
+            }));
+        }
+        for (Future<String> future : futures) assertEquals("slow", future.get(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(16, server.getRequestCount());
+        assertTrue(server.getMaxActive() <= 2);
+        assertTrue(server.getConnectionCount() <= 2);
+    }
+
+    @Test
+    public void does_negotiate_compressed_bodies() throws IOException {
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) json.append(i == 0 ? "" : ",").append("{\"name\":\"player").append(i).append("\"}");
+        json.append(']');
+        server.handle("/compressed", new LocalHttpServer.Handler() {
+            @Override
+            public LocalHttpServer.Response handle(LocalHttpServer.Request request) throws Exception {
+                return LocalHttpServer.compressed(request, 200, json.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        HttpTransport transport = create(1);
+
+        HttpResponse gzip = transport.execute(new HttpRequest("GET", server.url("/compressed")));
+        HttpResponse deflate = transport.execute(new HttpRequest("GET", server.url("/compressed")).setHeader("Accept-Encoding", "deflate"));
+        HttpResponse identity = transport.execute(new HttpRequest("GET", server.url("/compressed")).setHeader("Accept-Encoding", "identity"));
+
+        assertEquals("gzip", gzip.getContentEncoding());
+        assertEquals("deflate", deflate.getContentEncoding());
+        assertEquals("identity", identity.getContentEncoding());
+        for (HttpResponse response : new HttpResponse[] {gzip, deflate, identity}) assertEquals(json.toString(), response.getBodyAsString());
+        assertTrue(gzip.getRawBody().length < json.length() / 4);
+    }
+}
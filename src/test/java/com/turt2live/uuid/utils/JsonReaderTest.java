@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class JsonReaderTest {
+
+    private static final UUID PLAYER_UUID = UUID.fromString("c465b154-3c29-4dbf-a7e3-e0869504b8d8");
+
+    @Test
+    public void does_read_every_token() throws IOException {
+        JsonReader reader = new JsonReader(" {\"a\": [1, -2.5e1, \"x\"], \"b\": {\"c\": true, \"d\": false}, \"e\": null} ");
+
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        reader.beginArray();
+        assertEquals(1, reader.nextLong());
+        assertEquals(JsonReader.Token.NUMBER, reader.peek());
+        assertEquals(-25, reader.nextLong());
+        assertEquals("x", reader.nextString());
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertEquals("b", reader.nextName());
+        reader.beginObject();
+        assertEquals("c", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        assertEquals("d", reader.nextName());
+        assertFalse(reader.nextBoolean());
+        reader.endObject();
+        assertEquals("e", reader.nextName());
+        reader.nextNull();
+        reader.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void does_decode_escapes_and_utf8_across_buffers() throws IOException {
+        String text = "tab\t quote\" slash/ é ✓ \uD83D\uDE00 \u0001";
+        String json = "[\"tab\\t quote\\\" slash\\/ é \\u2713 \uD83D\uDE00 \\u0001\"]";
+
+        JsonReader reader = new JsonReader(new TrickleInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        reader.beginArray();
+        assertEquals(text, reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    public void does_read_uuids() throws IOException {
+        JsonReader reader = new JsonReader("{\"" + PLAYER_UUID + "\": \"c465b1543c294dbfa7e3e0869504b8d8\", \"x\": \"unknown\", \"y\": null}");
+
+        reader.beginObject();
+        assertEquals(PLAYER_UUID, reader.nextNameAsUuid());
+        assertEquals(PLAYER_UUID, reader.nextUuid());
+        assertNull(reader.nextNameAsUuid());
+        assertNull(reader.nextUuid());
+        reader.nextName();
+        assertNull(reader.nextUuid());
+        reader.endObject();
+    }
+
+    @Test
+    public void does_read_quoted_numbers() throws IOException {
+        JsonReader reader = new JsonReader("[\"1420070400\", 9223372036854775807]");
+
+        reader.beginArray();
+        assertEquals(1420070400L, reader.nextLong());
+        assertEquals(Long.MAX_VALUE, reader.nextLong());
+        reader.endArray();
+    }
+
+    @Test
+    public void does_skip_nested_values() throws IOException {
+        JsonReader reader = new JsonReader("{\"skip\": {\"a\": [1, {\"b\": \"\\\"}]\"}], \"c\": null}, \"keep\": \"yes\"}");
+
+        reader.beginObject();
+        assertEquals("skip", reader.nextName());
+        reader.skipValue();
+        assertEquals("keep", reader.nextName());
+        assertEquals("yes", reader.nextString());
+        reader.endObject();
+    }
+
+    @Test
+    public void does_reuse_repeated_names() throws IOException {
+        JsonReader reader = new JsonReader("[{\"name\": 1}, {\"name\": 2}]");
+
+        reader.beginArray();
+        reader.beginObject();
+        String first = reader.nextName();
+        reader.skipValue();
+        reader.endObject();
+        reader.beginObject();
+        String second = reader.nextName();
+
+        assertEquals("name", first);
+        assertSame(first, second);
+    }
+
+    @Test
+    public void does_malformed_json_throw_exception() {
+        String[] malformed = {"{\"a\" 1}", "{\"a\": 1,}", "[1 2]", "[\"open", "{\"a\": tru}", "[1] [2]", "", "{a: 1}"};
+        for (String json : malformed) {
+            try {
+                JsonReader reader = new JsonReader(json);
+                reader.skipValue();
+                reader.peek();
+                fail("Parsed " + json);
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void does_wrong_token_throw_exception() throws IOException {
+        new JsonReader("[1]").beginObject();
+    }
+
+    /**
+     * Returns a single byte per read, so every token straddles a buffer boundary
+     */
+    private static class TrickleInputStream extends InputStream {
+        private final ByteArrayInputStream in;
+
+        TrickleInputStream(byte[] bytes) {
+            in = new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public int read() {
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return in.read(b, off, Math.min(1, len));
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A minimal HTTP/1.1 server on the loopback interface which stands in for the
+ * real services in tests and benchmarks. It supports keep-alive and fixed
+ * length bodies only, and counts requests, accepted connections and the highest
+ * number of requests handled at once.
+ */
+public class LocalHttpServer implements Closeable {
+
+    public static class Request {
+        public final String method;
+        public final String path;
+        public final Map<String, String> headers;
+        public final byte[] body;
+
+        Request(String method, String path, Map<String, String> headers, byte[] body) {
+            this.method = method;
+            this.path = path;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase(Locale.ENGLISH));
+        }
+
+        public String getBodyAsString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    public static class Response {
+        public final int status;
+        public final Map<String, String> headers = new LinkedHashMap<>();
+        public final byte[] body;
+
+        public Response(int status, String body) {
+            this(status, body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public Response header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+    }
+
+    public interface Handler {
+        public Response handle(Request request) throws Exception;
+    }
+
+    private final ServerSocket socket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ConcurrentMap<String, Handler> handlers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final AtomicLong bodyBytes = new AtomicLong();
+
+    public LocalHttpServer() throws IOException {
+        socket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        });
+    }
+
+    public LocalHttpServer handle(String path, Handler handler) {
+        handlers.put(path, handler);
+        return this;
+    }
+
+    public LocalHttpServer respond(String path, final int status, final String body) {
+        return handle(path, new Handler() {
+            @Override
+            public Response handle(Request request) {
+                return new Response(status, body);
+            }
+        });
+    }
+
+    public String url(String path) {
+        return "http://127.0.0.1:" + socket.getLocalPort() + path;
+    }
+
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    public int getMaxActive() {
+        return maxActive.get();
+    }
+
+    public long getBodyBytesSent() {
+        return bodyBytes.get();
+    }
+
+    /**
+     * Creates a response compressed with the best encoding the request accepts
+     */
+    public static Response compressed(Request request, int status, byte[] body) throws IOException {
+        String accepted = request.getHeader("Accept-Encoding");
+        if (accepted == null) return new Response(status, body);
+
+        if (accepted.contains("gzip")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(body);
+            }
+            return new Response(status, out.toByteArray()).header("Content-Encoding", "gzip");
+        }
+        if (accepted.contains("deflate")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflate = new DeflaterOutputStream(out)) {
+                deflate.write(body);
+            }
+            return new Response(status, out.toByteArray()).header("Content-Encoding", "deflate");
+        }
+        return new Response(status, body);
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+        executor.shutdownNow();
+    }
+
+    private void accept() {
+        while (!socket.isClosed()) {
+            try {
+                final Socket client = socket.accept();
+                connections.incrementAndGet();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(client);
+                    }
+                });
+            } catch (IOException ignored) {
+                // Closed
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (Socket socket = client) {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                Request request = read(in);
+                if (request == null) return;
+
+                Response response = dispatch(request);
+                write(out, request, response);
+                bodyBytes.addAndGet(response.body.length);
+                if ("close".equalsIgnoreCase(request.getHeader("Connection"))) return;
+            }
+        } catch (IOException ignored) {
+            // Client went away
+        }
+    }
+
+    private Response dispatch(Request request) {
+        requests.incrementAndGet();
+        int now = active.incrementAndGet();
+        for (int max = maxActive.get(); now > max && !maxActive.compareAndSet(max, now); max = maxActive.get()) ;
+        try {
+            String path = request.path.contains("?") ? request.path.substring(0, request.path.indexOf('?')) : request.path;
+            Handler handler = handlers.get(path);
+            for (String prefix = path; handler == null && prefix.lastIndexOf('/') > 0; ) {
+                prefix = prefix.substring(0, prefix.lastIndexOf('/'));
+                handler = handlers.get(prefix);
+            }
+            return handler == null ? new Response(404, "") : handler.handle(request);
+        } catch (Exception e) {
+            return new Response(500, String.valueOf(e));
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    private static Request read(InputStream in) throws IOException {
+        String line = readLine(in);
+        if (line == null || line.isEmpty()) return null;
+        String[] parts = line.split(" ");
+        if (parts.length < 2) throw new SocketException("Bad request line: " + line);
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ENGLISH), line.substring(colon + 1).trim());
+        }
+
+        String length = headers.get("content-length");
+        byte[] body = new byte[length == null ? 0 : Integer.parseInt(length)];
+        for (int read = 0; read < body.length; ) {
+            int count = in.read(body, read, body.length - read);
+            if (count < 0) throw new SocketException("Truncated body");
+            read += count;
+        }
+        return new Request(parts[0], parts[1], headers, body);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') line.write(b);
+        }
+        if (b == -1 && line.size() == 0) return null;
+        return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static void write(OutputStream out, Request request, Response response) throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(response.status).append(' ').append(reason(response.status)).append("\r\n");
+        for (Map.Entry<String, String> header : response.headers.entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        boolean hasBody = response.status != 204 && response.status != 304 && !request.method.equals("HEAD");
+        if (hasBody) head.append("Content-Length: ").append(response.body.length).append("\r\n");
+        head.append("\r\n");
+
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (hasBody) out.write(response.body);
+        out.flush();
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 204:
+                return "No Content";
+            case 404:
+                return "Not Found";
+            case 429:
+                return "Too Many Requests";
+            case 500:
+                return "Internal Server Error";
+            case 503:
+                return "Service Unavailable";
+            default:
+                return "Status";
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating offline unique IDs. "single" compares the
+ * {@link UUID#nameUUIDFromBytes(byte[])} call the records made on every
+ * {@code getOfflineUuid()} with {@link OfflineUuids#of(String)}; "bulk" generates
+ * 100,000 at once through {@link OfflineUuids#of(String[], int)}. Run with
+ * {@code -prof gc} to see the allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OfflineUuidsBenchmark {
+
+    private static final int BULK_SIZE = 100000;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private String name;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        name = "turt2live";
+        names = new String[BULK_SIZE];
+        for (int i = 0; i < names.length; i++) names[i] = "Player" + i;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public UUID singleLegacy() {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public UUID single() {
+        return OfflineUuids.of(name);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public UUID[] bulk() {
+        return OfflineUuids.of(names, parallelism);
+    }
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import com.turt2live.uuid.mojang.MojangPlayerRecord;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class OfflineUuidsTest {
+
+    private static UUID expected(String name) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void does_single_generation_match_name_uuid() {
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 100; i++) longName.append('x');
+
+        String[] names = {"turt2live", "", "Notch", "Ünïcødé", "😀smile", longName.toString(), "after_long"};
+        for (String name : names) {
+            UUID uuid = OfflineUuids.of(name);
+            assertEquals(name, expected(name), uuid);
+            assertEquals(3, uuid.version());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_single_generation_throw_exception_on_null_input() {
+        OfflineUuids.of((String) null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_bulk_generation_throw_exception_on_partial_null_input() {
+        OfflineUuids.of(new String[]{"a", null}, 1);
+    }
+
+    @Test
+    public void does_bulk_generation_keep_order() {
+        String[] names = new String[OfflineUuids.BATCH_SIZE * 3 + 7];
+        for (int i = 0; i < names.length; i++) names[i] = (i % 100 == 0 ? "Spieler_ä" : "Player") + i;
+
+        UUID[] uuids = OfflineUuids.of(names, 4);
+
+        assertEquals(names.length, uuids.length);
+        for (int i = 0; i < names.length; i++) assertEquals(expected(names[i]), uuids[i]);
+    }
+
+    @Test
+    public void does_record_memoize_offline_uuid() {
+        MojangPlayerRecord record = new MojangPlayerRecord(UUID.randomUUID(), "turt2live");
+
+        assertEquals(expected("turt2live"), record.getOfflineUuid());
+        assertSame(record.getOfflineUuid(), record.getOfflineUuid());
+    }
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class RateLimiterTest {
+
+    private static final String URL = "https://api.mojang.com/users/profiles/minecraft/turt2live";
+
+    @Test
+    public void does_burst_pass_then_pace() throws IOException {
+        RateLimiter limiter = new RateLimiter(20, 3);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) limiter.acquire(URL);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(40));
+
+        for (int i = 0; i < 4; i++) limiter.acquire(URL);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(180)); // 4 more at 20/s
+    }
+
+    @Test
+    public void does_endpoints_have_separate_buckets() throws IOException {
+        RateLimiter limiter = new RateLimiter(1, 1);
+        limiter.setLimit("https://api.mojang.com/profiles/", 1, 1);
+        limiter.setMaximumWait(0, TimeUnit.MILLISECONDS);
+
+        limiter.acquire(URL);
+        limiter.acquire("https://api.mojang.com/profiles/minecraft");
+        limiter.acquire("https://sessionserver.mojang.com/session/minecraft/profile/abc");
+        try {
+            limiter.acquire("https://api.mojang.com/user/profiles/abc/names");
+            fail();
+        } catch (HTTPUtils.RateLimitedException expected) {
+        }
+    }
+
+    @Test
+    public void does_long_wait_get_rejected_immediately() throws IOException {
+        RateLimiter limiter = new RateLimiter(0.1, 1);
+        limiter.setMaximumWait(100, TimeUnit.MILLISECONDS);
+        limiter.acquire(URL);
+
+        long start = System.nanoTime();
+        try {
+            limiter.acquire(URL);
+            fail();
+        } catch (HTTPUtils.RateLimitedException expected) {
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void does_full_queue_reject_requests() throws Exception {
+        final RateLimiter limiter = new RateLimiter(5, 1);
+        limiter.setMaximumQueue(2);
+        limiter.acquire(URL);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    try {
+                        limiter.acquire(URL);
+                        return true;
+                    } catch (HTTPUtils.RateLimitedException e) {
+                        return false;
+                    }
+                }
+            }));
+        }
+        int passed = 0;
+        for (Future<Boolean> future : futures) if (future.get(10, TimeUnit.SECONDS)) passed++;
+        executor.shutdown();
+
+        assertEquals(2, passed);
+        assertEquals(2, limiter.getRejectedCount());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    public void does_rate_limit_response_back_off_and_recover() {
+        RateLimiter limiter = new RateLimiter(10, 1);
+
+        limiter.onRateLimited(URL, 0);
+        assertEquals(5, limiter.getRate(URL), 0.001);
+        limiter.onRateLimited(URL, 0);
+        assertEquals(2.5, limiter.getRate(URL), 0.001);
+        assertEquals(2, limiter.getRateLimitedCount());
+
+        for (int i = 0; i < 100; i++) limiter.onSuccess(URL);
+        assertEquals(10, limiter.getRate(URL), 0.001);
+    }
+
+    @Test
+    public void does_transport_honor_retry_after() throws IOException {
+        RateLimiter limiter = new RateLimiter(100, 10);
+        limiter.setMaximumWait(200, TimeUnit.MILLISECONDS);
+        CannedTransport canned = new CannedTransport()
+                .respond(URL, new HttpResponse(429, "Too Many Requests", Collections.singletonMap("retry-after", "1"), new byte[0]));
+        RateLimitedTransport transport = new RateLimitedTransport(canned, limiter);
+
+        try {
+            HTTPUtils.get(transport, URL);
+            fail();
+        } catch (HTTPUtils.RateLimitedException expected) {
+        }
+        assertEquals(50, limiter.getRate(URL), 0.001);
+        try {
+            HTTPUtils.get(transport, URL); // Blocked for a second, longer than the maximum wait
+            fail();
+        } catch (HTTPUtils.RateLimitedException expected) {
+        }
+        assertEquals(1, canned.requests.size());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void does_parse_retry_after_dates() {
+        assertEquals(120000, RateLimitedTransport.retryAfter("120"));
+        assertEquals(0, RateLimitedTransport.retryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals(0, RateLimitedTransport.retryAfter("soon"));
+        long inFuture = RateLimitedTransport.retryAfter(java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(java.time.ZonedDateTime.now(java.time.ZoneOffset.UTC).plusSeconds(30)));
+        assertTrue(inFuture > 25000 && inFuture <= 30000);
+    }
+}
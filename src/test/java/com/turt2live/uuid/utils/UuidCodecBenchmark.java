@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of converting UUIDs to and from the forms the services use, comparing
+ * the substring/{@link UUID#fromString(String)}/{@code replace("-", "")} code
+ * the providers used before with {@link UuidCodec}. Run with {@code -prof gc}
+ * to see the allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidCodecBenchmark {
+
+    private UUID uuid;
+    private String dashed;
+    private String undashed;
+    private StringBuilder builder;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        uuid = UUID.randomUUID();
+        dashed = uuid.toString();
+        undashed = dashed.replace("-", "");
+        builder = new StringBuilder(64);
+        bytes = new byte[64];
+    }
+
+    @Benchmark
+    public UUID parseUndashedLegacy() {
+        String raw = undashed;
+        return UUID.fromString(raw.substring(0, 8) + "-" + raw.substring(8, 12) + "-" + raw.substring(12, 16) + "-" + raw.substring(16, 20) + "-" + raw.substring(20, 32));
+    }
+
+    @Benchmark
+    public UUID parseUndashedCodec() {
+        return UuidCodec.parse(undashed);
+    }
+
+    @Benchmark
+    public UUID parseDashedLegacy() {
+        return UUID.fromString(dashed);
+    }
+
+    @Benchmark
+    public UUID parseDashedCodec() {
+        return UuidCodec.parse(dashed);
+    }
+
+    @Benchmark
+    public String printUndashedLegacy() {
+        return uuid.toString().replace("-", "");
+    }
+
+    @Benchmark
+    public String printUndashedCodec() {
+        return UuidCodec.toString(uuid, false);
+    }
+
+    @Benchmark
+    public int appendUndashedCodec() {
+        builder.setLength(0);
+        return UuidCodec.appendTo(uuid, false, builder).length();
+    }
+
+    @Benchmark
+    public int writeUndashedCodec() {
+        return UuidCodec.write(uuid, false, bytes, 0);
+    }
+}
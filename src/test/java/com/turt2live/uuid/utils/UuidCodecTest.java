@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (C) 2014 Travis Ralston (turt2live)
+ *
+ * This software is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+
+package com.turt2live.uuid.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class UuidCodecTest {
+
+    private static final UUID PLAYER_UUID = UUID.fromString("c465b154-3c29-4dbf-a7e3-e0869504b8d8");
+    private static final String DASHED = "c465b154-3c29-4dbf-a7e3-e0869504b8d8";
+    private static final String UNDASHED = "c465b1543c294dbfa7e3e0869504b8d8";
+
+    @Test
+    public void does_parse_accept_both_forms() {
+        assertEquals(PLAYER_UUID, UuidCodec.parse(DASHED));
+        assertEquals(PLAYER_UUID, UuidCodec.parse(UNDASHED));
+        assertEquals(PLAYER_UUID, UuidCodec.parse(UNDASHED.toUpperCase()));
+        assertEquals(PLAYER_UUID, UuidCodec.parse(("x" + DASHED).toCharArray(), 1, 36));
+    }
+
+    @Test
+    public void does_parse_reject_invalid_input() {
+        assertNull(UuidCodec.parse(UNDASHED.substring(1)));
+        assertNull(UuidCodec.parse(UNDASHED.replace('c', 'g')));
+        assertNull(UuidCodec.parse(DASHED.replace('-', '_')));
+        assertNull(UuidCodec.parse(UNDASHED.replace('c', '٣'))); // A non-ASCII digit
+        assertNull(UuidCodec.parse("c465b154-3c29-4dbf-a7e3-e0869504b8d-8"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void does_parse_throw_exception_on_null_input() {
+        UuidCodec.parse((CharSequence) null);
+    }
+
+    @Test
+    public void does_print_match_uuid_to_string() {
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = i == 0 ? new UUID(-1, 0) : UUID.randomUUID();
+            assertEquals(uuid.toString(), UuidCodec.toString(uuid, true));
+            assertEquals(uuid.toString().replace("-", ""), UuidCodec.toString(uuid, false));
+            assertEquals(uuid, UuidCodec.parse(UuidCodec.toString(uuid, false)));
+        }
+    }
+
+    @Test
+    public void does_append_and_write_reuse_buffers() {
+        StringBuilder builder = new StringBuilder("id=");
+        UuidCodec.appendTo(PLAYER_UUID, false, builder);
+        assertEquals("id=" + UNDASHED, builder.toString());
+
+        byte[] dest = new byte[40];
+        assertEquals(38, UuidCodec.write(PLAYER_UUID, true, dest, 2));
+        assertEquals(DASHED, new String(dest, 2, 36, StandardCharsets.US_ASCII));
+    }
+}